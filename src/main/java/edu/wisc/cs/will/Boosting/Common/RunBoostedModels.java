@@ -61,6 +61,7 @@ public abstract class RunBoostedModels {
 		beforeLearn();
 		learn();
 		afterLearn();
+		setup.getInnerLooper().shutDownScoringThreads();
 	}
 
 	private void setupWILLForTrain() {
@@ -98,6 +99,9 @@ public abstract class RunBoostedModels {
 		if (Utils.fileExists(BoostingUtils.getCheckPointFlattenedLitFile(saveModelName))) {
 			Utils.delete(BoostingUtils.getCheckPointFlattenedLitFile(saveModelName));
 		}
+		if (Utils.fileExists(BoostingUtils.getBinaryModelFile(BoostingUtils.getCheckPointFile(saveModelName)))) {
+			Utils.delete(BoostingUtils.getBinaryModelFile(BoostingUtils.getCheckPointFile(saveModelName)));
+		}
 		
 	}
 	private void renameOldModelFiles() {
@@ -110,6 +114,10 @@ public abstract class RunBoostedModels {
 				if (f.exists()) {
 					renameAsOld(f);
 				}
+				File binaryFile = new CondorFile(BoostingUtils.getBinaryModelFile(filename));
+				if (binaryFile.exists()) {
+					renameAsOld(binaryFile);
+				}
 			}
 		}		
 	}
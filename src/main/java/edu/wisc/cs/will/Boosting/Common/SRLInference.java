@@ -6,10 +6,19 @@ import edu.wisc.cs.will.Boosting.RDN.Models.RelationalDependencyNetwork;
 import edu.wisc.cs.will.Boosting.RDN.RegressionRDNExample;
 import edu.wisc.cs.will.Boosting.RDN.WILLSetup;
 import edu.wisc.cs.will.DataSetUtils.Example;
+import edu.wisc.cs.will.ILP.LearnOneClause;
+import edu.wisc.cs.will.ResThmProver.HornClausebase;
 import edu.wisc.cs.will.Utils.ProbDistribution;
+import edu.wisc.cs.will.Utils.Utils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Generic inference interfact for RFGB
@@ -38,12 +47,68 @@ public abstract class SRLInference {
 	}
 	
 	public void getProbabilities(List<RegressionRDNExample> allExs) {
+		int numberOfThreads = setup.cmdArgs == null ? 1 : setup.cmdArgs.getNumberOfThreadsVal();
+		if (numberOfThreads > 1 && allExs.size() > 1) {
+			getProbabilitiesInParallel(allExs, Math.min(numberOfThreads, allExs.size()));
+			return;
+		}
 		System.currentTimeMillis();
+		if (this instanceof MLNInference) {
+			((MLNInference)this).resetCache();
+		}
 		for (RegressionRDNExample ex : allExs) {
+			setExampleProbability(ex);
+		}
+		if (this instanceof MLNInference) {
+			((MLNInference)this).releaseCaches();
+		}
+	}
+
+	/*
+	 * Spreads the examples over a pool of workers.  Each worker proves with its own prover
+	 * (see LearnOneClause.useWorkerProver) over the shared clausebase, which is frozen
+	 * while probabilities are computed.  The probability of an example only depends on that
+	 * example, so the results are the same as those of the serial loop.
+	 */
+	private void getProbabilitiesInParallel(final List<RegressionRDNExample> allExs, int numberOfThreads) {
+		final LearnOneClause innerLooper = setup.getInnerLooper();
+		final AtomicInteger nextExample = new AtomicInteger(0);
+		HornClausebase clausebase = setup.getContext().getClausebase();
+		boolean wasFrozen = clausebase.isFrozen();
+		clausebase.setFrozen(true);
+		ExecutorService pool = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			List<Future<?>> workers = new ArrayList<>(numberOfThreads);
+			for (int i = 0; i < numberOfThreads; i++) {
+				workers.add(pool.submit(() -> {
+					innerLooper.useWorkerProver(true);
+					if (this instanceof MLNInference) {
+						((MLNInference)this).resetCache();
+					}
+					try {
+						for (int index = nextExample.getAndIncrement(); index < allExs.size() && !Thread.currentThread().isInterrupted(); index = nextExample.getAndIncrement()) {
+							setExampleProbability(allExs.get(index));
+						}
+					} finally {
+						innerLooper.useWorkerProver(false);
+					}
+				}));
+			}
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
 			if (this instanceof MLNInference) {
-				((MLNInference)this).resetCache();
+				((MLNInference)this).releaseCaches();
 			}
-			setExampleProbability(ex);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			Utils.error("Interrupted while computing example probabilities.");
+		} catch (ExecutionException e) {
+			Utils.reportStackTrace(e.getCause());
+			Utils.error("Problem computing example probabilities: " + e.getCause());
+		} finally {
+			pool.shutdownNow();
+			clausebase.setFrozen(wasFrozen);
 		}
 	}
 
@@ -5,13 +5,17 @@ import edu.wisc.cs.will.Boosting.RDN.ConditionalModelPerPredicate;
 import edu.wisc.cs.will.Boosting.RDN.JointRDNModel;
 import edu.wisc.cs.will.Boosting.RDN.RegressionRDNExample;
 import edu.wisc.cs.will.Boosting.RDN.WILLSetup;
+import edu.wisc.cs.will.Boosting.Utils.GroundingCountCache;
 import edu.wisc.cs.will.DataSetUtils.Example;
 import edu.wisc.cs.will.Utils.ProbDistribution;
 import edu.wisc.cs.will.Utils.RegressionValueOrVector;
+import edu.wisc.cs.will.Utils.Utils;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /*
  * Class used for inference in MLNs
@@ -19,16 +23,44 @@ import java.util.Map;
  */
 public class MLNInference extends SRLInference {
 
-	private final Map<String, Long> timePerModel = new HashMap<>();
-	private Map<String, Long> cachedRegressionClauseWeights;
+	private static final int groundingCountCacheSize = 1 << 16;
+
+	private final Map<String, Long> timePerModel = new ConcurrentHashMap<>();
+	// One cache per thread, since examples may be scored in parallel.
+	private final ThreadLocal<GroundingCountCache> cachedRegressionClauseWeights = new ThreadLocal<>();
+	// The caches handed out since the last releaseCaches().
+	private final Queue<GroundingCountCache> cachesInUse = new ConcurrentLinkedQueue<>();
 	public MLNInference(WILLSetup setup, JointRDNModel model) {
 		super(setup);
 		this.jointModel = model;
-		cachedRegressionClauseWeights = new HashMap<>();
 	}
 	
+	/*
+	 * Gives the calling thread an empty cache.  The counts only depend on the clause and the example
+	 * as long as the facts do not change, so one cache serves all the examples of an inference pass.
+	 */
 	public void resetCache() {
-		cachedRegressionClauseWeights = new HashMap<>();
+		GroundingCountCache cache = new GroundingCountCache(groundingCountCacheSize);
+		cachedRegressionClauseWeights.set(cache);
+		cachesInUse.add(cache);
+	}
+
+	/*
+	 * Ends an inference pass: reports how well the caches did and drops the calling thread's cache,
+	 * since its counts may be wrong once the facts change.
+	 */
+	public void releaseCaches() {
+		cachedRegressionClauseWeights.remove();
+		long hits = 0, misses = 0, evictions = 0;
+		for (GroundingCountCache cache = cachesInUse.poll(); cache != null; cache = cachesInUse.poll()) {
+			hits      += cache.getHits();
+			misses    += cache.getMisses();
+			evictions += cache.getEvictions();
+		}
+		if (hits + misses > 0) {
+			Utils.println("% Grounding count cache: " + Utils.comma(hits) + " hits, " + Utils.comma(misses) + " misses ("
+						  + Utils.truncate(100.0 * hits / (hits + misses), 2) + "% hit rate), " + Utils.comma(evictions) + " evictions.");
+		}
 	}
 
 	@Override
@@ -45,7 +77,7 @@ public class MLNInference extends SRLInference {
 		for (ConditionalModelPerPredicate mod : jointModel.values()) {
 			String pred = mod.getTargetPredicate();
 			long start = System.currentTimeMillis();
-			mod.setCache(cachedRegressionClauseWeights);
+			mod.setCache(getCache());
 			// TODO(TVK!) see if this works
 			if (mod.getTargetPredicate().equals(eg.predicateName.name)) {
 				reg.addValueOrVector(mod.returnModelRegressionWithPrior(eg));
@@ -59,11 +91,15 @@ public class MLNInference extends SRLInference {
 		return new ProbDistribution(reg, true);
 		
 	}
-	private void addToTimePerModel(String pred, long l) {
-		if (!timePerModel.containsKey(pred)) {
-			timePerModel.put(pred, 0L);
+	private GroundingCountCache getCache() {
+		if (cachedRegressionClauseWeights.get() == null) {
+			resetCache();
 		}
-		timePerModel.put(pred, timePerModel.get(pred) + l);
+		return cachedRegressionClauseWeights.get();
+	}
+
+	private void addToTimePerModel(String pred, long l) {
+		timePerModel.merge(pred, l, Long::sum);
 	}
 
 	@Override
@@ -4,19 +4,32 @@ import edu.wisc.cs.will.Boosting.Trees.ClauseBasedTree;
 import edu.wisc.cs.will.Boosting.Trees.RegressionMLNModel;
 import edu.wisc.cs.will.Boosting.Trees.RegressionTree;
 import edu.wisc.cs.will.Boosting.Utils.BoostingUtils;
+import edu.wisc.cs.will.Boosting.Utils.ClauseDecoder;
+import edu.wisc.cs.will.Boosting.Utils.ClauseEncoder;
+import edu.wisc.cs.will.Boosting.Utils.GroundingCountCache;
 import edu.wisc.cs.will.DataSetUtils.Example;
 import edu.wisc.cs.will.FOPC.*;
 import edu.wisc.cs.will.Utils.ProbDistribution;
 import edu.wisc.cs.will.Utils.RegressionValueOrVector;
 import edu.wisc.cs.will.Utils.Utils;
+import edu.wisc.cs.will.Utils.condor.CondorFile;
+import edu.wisc.cs.will.Utils.condor.CondorFileInputStream;
+import edu.wisc.cs.will.Utils.condor.CondorFileOutputStream;
 import edu.wisc.cs.will.Utils.condor.CondorFileReader;
 import edu.wisc.cs.will.Utils.condor.CondorFileWriter;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.zip.CRC32;
 
 // TODO(@hayesall): There are a large number of private variables and getters/setters scattered around this file.
 
@@ -24,6 +37,10 @@ public class ConditionalModelPerPredicate implements Serializable {
 
 	private static final long serialVersionUID = 9130108889576097786L;
 
+	private static final int BINARY_MODEL_MAGIC = 0x53524C4D; // "SRLM"
+
+	private static final int BINARY_MODEL_VERSION = 1;
+
 	/*
 	 *  Prior log probability i.e. \psi_0
 	 */
@@ -72,30 +89,41 @@ public class ConditionalModelPerPredicate implements Serializable {
 	/*
 	 * Calculates the regression value for an example based on the model.
 	 * Mostly one shouldn't have to use this but should directly use returnModelProbability.
+	 * The running sum is cached on the example, so an example that was already scored
+	 * only evaluates the trees added since then.
 	 * @param ex Example to evaluate
 	 * @return the regression value for the example
 	 */
 	public RegressionValueOrVector returnModelRegression(Example ex) {
 		RegressionValueOrVector total_sum_grad;
 		RegressionRDNExample rex = (RegressionRDNExample)ex;
-		if (rex.isHasRegressionVector()) {
-			double[] regs = new double[rex.getOutputVector().length];
-			Arrays.fill(regs, 0);
-			total_sum_grad = new RegressionValueOrVector(regs);
-		} else {
-			total_sum_grad = new RegressionValueOrVector(0.0);
-		}
+		if (setup == null) { Utils.error("WILLSetup object not initialized"); }
+		long factsVersion = setup.getContext().getClausebase().getFactsVersion();
 
+		// Start from the sum over the trees that already scored this example, if any.
 		int counter = 0;
+		total_sum_grad = null;
+		if (rex.getCachedNumberOfTrees() <= numTrees) {
+			total_sum_grad = rex.getCachedModelRegression(this, factsVersion);
+			if (total_sum_grad != null) {
+				counter = rex.getCachedNumberOfTrees();
+			}
+		}
+		if (total_sum_grad == null) {
+			if (rex.isHasRegressionVector()) {
+				double[] regs = new double[rex.getOutputVector().length];
+				Arrays.fill(regs, 0);
+				total_sum_grad = new RegressionValueOrVector(regs);
+			} else {
+				total_sum_grad = new RegressionValueOrVector(0.0);
+			}
+		}
 
-		for (RegressionTree[] tree : boostedTrees) {
-			if (counter == numTrees) { break; }
-			
+		for (; counter < numTrees && counter < boostedTrees.size(); counter++) {
+			RegressionTree[] tree = boostedTrees.get(counter);
 			RegressionValueOrVector sum_grad = null;
 
 			for (int i = 0; i < RunBoostedRDN.numbModelsToMake; i++) {
-				if (setup == null) { Utils.error("WILLSetup object not initialized"); }
-
 				RegressionValueOrVector thisValue = tree[i].getRegressionValue(ex);
 				thisValue.multiply(stepLength.get(counter));
 
@@ -103,8 +131,8 @@ public class ConditionalModelPerPredicate implements Serializable {
 			}
 			sum_grad.multiply(1/RunBoostedRDN.numbModelsToMake);
 			total_sum_grad.addValueOrVector(sum_grad);
-			counter++;
 		}
+		rex.setCachedModelRegression(this, total_sum_grad, counter, factsVersion);
 		return total_sum_grad;
 	}
 
@@ -173,6 +201,134 @@ public class ConditionalModelPerPredicate implements Serializable {
 			Utils.reportStackTrace(e);
 			Utils.error("saveMode: IO exception");
 		}
+
+		if (useBinaryModel(setup)) {
+			saveBinaryModel(BoostingUtils.getBinaryModelFile(filename));
+		}
+	}
+
+	/*
+	 * Saves the model and all its trees in one binary file, which loadBinaryModel() reads without any parsing:
+	 *
+	 *     header:  magic, version, and the length and CRC-32 checksum of the rest,
+	 *     rest:    what a ClauseEncoder wrote: the number of trees, the models per tree, the tree prefix, the log prior,
+	 *              the target predicate, and for each tree its step length and the clauses of each of its models.
+	 *
+	 * The text model and tree files are still written by saveModel(), as an export.
+	 */
+	private void saveBinaryModel(String filename) {
+		Utils.println("% Saving binary model in: " + filename);
+		try {
+			ClauseEncoder encoder = new ClauseEncoder();
+			encoder.writeInt(numTrees);
+			encoder.writeInt(RunBoostedRDN.numbModelsToMake);
+			encoder.writeSymbol(treePrefix);
+			encoder.writeDouble(log_prior);
+			encoder.writeSymbol(targetPredicate);
+			for (int i = 0; i < numTrees; i++) {
+				encoder.writeDouble(stepLength.get(i));
+				for (int modelNumber = 0; modelNumber < RunBoostedRDN.numbModelsToMake; modelNumber++) {
+					boostedTrees.get(i)[modelNumber].writeClauses(encoder);
+				}
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			encoder.writeTo(new DataOutputStream(bytes));
+			byte[] rest = bytes.toByteArray();
+			CRC32 checksum = new CRC32();
+			checksum.update(rest);
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CondorFileOutputStream(filename)))) {
+				out.writeInt(BINARY_MODEL_MAGIC);
+				out.writeInt(BINARY_MODEL_VERSION);
+				out.writeInt(rest.length);
+				out.writeLong(checksum.getValue());
+				out.write(rest);
+			}
+		} catch (IOException e) {
+			Utils.reportStackTrace(e);
+			Utils.error("saveBinaryModel: IO exception");
+		}
+	}
+
+	/*
+	 * Loads a model saved by saveBinaryModel().
+	 */
+	private void loadBinaryModel(String filename, WILLSetup setup, int loadMaxTrees) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new CondorFileInputStream(filename)))) {
+			if (in.readInt() != BINARY_MODEL_MAGIC) {
+				Utils.error("Not a binary model file:\n " + filename);
+			}
+			int version = in.readInt();
+			if (version != BINARY_MODEL_VERSION) {
+				Utils.error("The binary model is version " + version + " but only version " + BINARY_MODEL_VERSION + " can be read:\n " + filename);
+			}
+			byte[] rest = new byte[in.readInt()];
+			long expectedChecksum = in.readLong();
+			in.readFully(rest);
+			CRC32 checksum = new CRC32();
+			checksum.update(rest);
+			if (checksum.getValue() != expectedChecksum) {
+				Utils.error("The checksum of the binary model does not match, so the file is damaged:\n " + filename);
+			}
+
+			ClauseDecoder decoder = new ClauseDecoder(setup.getHandler(), new DataInputStream(new ByteArrayInputStream(rest)));
+			int numberOfTrees = getNumberOfTreesToLoad(decoder.readInt(), loadMaxTrees, filename);
+			int modelsPerTree = decoder.readInt();
+			if (modelsPerTree != RunBoostedRDN.numbModelsToMake) {
+				Utils.error("The binary model has " + modelsPerTree + " models per tree but " + RunBoostedRDN.numbModelsToMake + " are expected:\n " + filename);
+			}
+			treePrefix      = decoder.readSymbol();
+			log_prior       = decoder.readDouble();
+			targetPredicate = decoder.readSymbol();
+
+			for (int i = 0; i < numberOfTrees; i++) {
+				double treeStepLength = decoder.readDouble();
+				for (int modelNumber = 0; modelNumber < RunBoostedRDN.numbModelsToMake; modelNumber++) {
+					RegressionTree tree;
+					if (setup.useMLNs) {
+						tree = new RegressionMLNModel(setup);
+					} else {
+						tree = new RegressionTree(setup);
+					}
+					tree.readClauses(decoder);
+					addTree(tree, treeStepLength, modelNumber);
+				}
+				updateSetOfTrees();
+			}
+			Utils.println("%  Done loading " + Utils.comma(numberOfTrees) + " models from: " + filename);
+		} catch (IOException e) {
+			Utils.reportStackTrace(e);
+			Utils.error("Problem encountered reading binary model:\n " + filename);
+		}
+	}
+
+	private static boolean useBinaryModel(WILLSetup setup) {
+		return setup != null && setup.cmdArgs != null && setup.cmdArgs.isBinaryModelVal();
+	}
+
+	/*
+	 * With -binaryModel, the binary model is the model, and the text model and tree files are only an export of it.
+	 * So it is loaded whenever it is there, without looking at the text files.  Learning moves an older binary model
+	 * aside (see RunBoostedModels.renameOldModelFiles), so one that is there was saved with the text model.
+	 */
+	private static boolean hasBinaryModel(String binaryFilename) {
+		return new CondorFile(binaryFilename).exists();
+	}
+
+	private static int getNumberOfTreesToLoad(int numberOfTrees, int loadMaxTrees, String filename) {
+		// Only limit trees if >= 0
+		if (loadMaxTrees >= 0) {
+			// Make sure the numberOfTrees >= loadMaxTrees
+			if (numberOfTrees < loadMaxTrees) {
+				Utils.error("Number of trees in the model (" + numberOfTrees + ") is less than the trees to be loaded (" + loadMaxTrees + ").\nFile: " + filename);
+			} else {
+				if (numberOfTrees > loadMaxTrees) {
+					Utils.println("Model had " + numberOfTrees + " trees but loading only " + loadMaxTrees);
+				}
+			}
+			numberOfTrees = loadMaxTrees;
+		}
+		return numberOfTrees;
 	}
 
 	/*
@@ -180,26 +336,18 @@ public class ConditionalModelPerPredicate implements Serializable {
 	 */
 	public void loadModel(String filename, WILLSetup setup, int loadMaxTrees) {
 
+		if (useBinaryModel(setup) && hasBinaryModel(BoostingUtils.getBinaryModelFile(filename))) {
+			loadBinaryModel(BoostingUtils.getBinaryModelFile(filename), setup, loadMaxTrees);
+			return;
+		}
+
 		try {
 			BufferedReader reader = new BufferedReader(new CondorFileReader(filename));
 			String line;
 
 			// Number of trees
 			line = reader.readLine();
-			int numberOfTrees = Integer.parseInt(line);
-			
-			// Only limit trees if >= 0
-			if (loadMaxTrees >= 0) {
-				// Make sure the numberOfTrees >= loadMaxTrees
-				if (numberOfTrees < loadMaxTrees) {
-					Utils.error("Number of trees in the model (" + numberOfTrees + ") is less than the trees to be loaded (" + loadMaxTrees + ").\nFile: " + filename);
-				} else {
-					if (numberOfTrees > loadMaxTrees) {
-						Utils.println("Model had " + numberOfTrees + " trees but loading only " + loadMaxTrees);
-					}
-				}
-				numberOfTrees = loadMaxTrees;
-			}
+			int numberOfTrees = getNumberOfTreesToLoad(Integer.parseInt(line), loadMaxTrees, filename);
 			
 			// Prefix for boosted trees
 			line = reader.readLine();
@@ -281,7 +429,11 @@ public class ConditionalModelPerPredicate implements Serializable {
 		for (ClauseBasedTree[] btree : boostedTrees) {
 			for (int i = 0; i < RunBoostedRDN.numbModelsToMake; i++) {
 				btree[i].setSetup(setup);
-				btree[i].reparseRegressionTrees();
+				if (useBinaryModel(setup)) {
+					btree[i].recodeRegressionTrees();
+				} else {
+					btree[i].reparseRegressionTrees();
+				}
 			}
 		}
 
@@ -390,7 +542,7 @@ public class ConditionalModelPerPredicate implements Serializable {
 		return LearnBoostedRDN.LOG_PRIOR_PREDICATE + "(" + log_prior +").";
 	}
 
-	public void setCache(Map<String, Long> cachedRegressionClauseWeights) {
+	public void setCache(GroundingCountCache cachedRegressionClauseWeights) {
 		for (ClauseBasedTree[] trees : boostedTrees) {
 			for (ClauseBasedTree tree : trees) {
 				if (tree instanceof RegressionMLNModel) {
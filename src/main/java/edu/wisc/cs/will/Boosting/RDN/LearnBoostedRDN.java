@@ -20,8 +20,10 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 /*
  * @author Tushar Khot
@@ -217,10 +219,13 @@ public class LearnBoostedRDN {
 
 	private void getSampledPosNegEx(List<RegressionRDNExample> all_exs) {
 
+		Map<Literal, RegressionRDNExample> previousExamples = null;
 		if (egs != null) {
+			previousExamples = new HashMap<>(egs.size());
 			for (int i = 0; i < Utils.getSizeSafely(egs); i++) {
 				RegressionRDNExample eg = egs.get(i);
 				eg.clearCache();
+				previousExamples.put(eg, eg);
 			}
 		}
 		// Only sample the second time onwards.
@@ -228,6 +233,16 @@ public class LearnBoostedRDN {
 			setup.prepareExamplesForTarget(targetPredicate);
 		}
 		all_exs.addAll(BoostingUtils.castToListOfRegressionRDNExamples(setup.getOuterLooper().getPosExamples()));
+
+		// Resampling creates new example objects, so keep the tree sums of the examples that were sampled again.
+		if (previousExamples != null) {
+			for (RegressionRDNExample eg : all_exs) {
+				RegressionRDNExample previous = previousExamples.get(eg);
+				if (previous != null) {
+					eg.copyCachedModelRegression(previous);
+				}
+			}
+		}
 		Utils.println("% Dataset size: " + Utils.comma(all_exs));
 		egs = all_exs;
 	}
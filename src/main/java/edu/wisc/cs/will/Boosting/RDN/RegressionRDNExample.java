@@ -4,6 +4,7 @@ import edu.wisc.cs.will.DataSetUtils.RegressionExample;
 import edu.wisc.cs.will.FOPC.HandleFOPCstrings;
 import edu.wisc.cs.will.FOPC.Literal;
 import edu.wisc.cs.will.Utils.ProbDistribution;
+import edu.wisc.cs.will.Utils.RegressionValueOrVector;
 import edu.wisc.cs.will.Utils.Utils;
 
 import java.io.Serializable;
@@ -48,6 +49,17 @@ public class RegressionRDNExample extends RegressionExample  implements Serializ
 	 * Hence  has Nan default value.
 	 */
 	private ProbDistribution probOfExample = null;
+
+	/**
+	 * Running sum of the step-weighted outputs of the first cachedNumberOfTrees trees in
+	 * cachedModel. Boosting adds one tree per iteration, so the model only has to evaluate
+	 * the trees added since this example was last scored.
+	 * The sum is dropped if the facts in the clausebase change (see cachedFactsVersion).
+	 */
+	private transient RegressionValueOrVector cachedModelRegression = null;
+	private transient ConditionalModelPerPredicate cachedModel = null;
+	private transient int cachedNumberOfTrees = 0;
+	private transient long cachedFactsVersion = -1;
 	
 	public RegressionRDNExample(HandleFOPCstrings stringHandler, Literal literal, double outputValue, String provenance, String extraLabel) {
 		super(stringHandler, literal, outputValue, provenance, extraLabel);
@@ -82,6 +94,39 @@ public class RegressionRDNExample extends RegressionExample  implements Serializ
 		this.probOfExample = probOfExample;
 	}
 
+	/**
+	 * @return a copy of the cached sum of tree outputs if it was computed by this model
+	 * against the same facts, otherwise null.
+	 */
+	RegressionValueOrVector getCachedModelRegression(ConditionalModelPerPredicate model, long factsVersion) {
+		if (cachedModelRegression == null || cachedModel != model || cachedFactsVersion != factsVersion) {
+			return null;
+		}
+		return cachedModelRegression.copy();
+	}
+
+	int getCachedNumberOfTrees() {
+		return cachedNumberOfTrees;
+	}
+
+	void setCachedModelRegression(ConditionalModelPerPredicate model, RegressionValueOrVector sum, int numberOfTrees, long factsVersion) {
+		cachedModelRegression = sum.copy();
+		cachedModel           = model;
+		cachedNumberOfTrees   = numberOfTrees;
+		cachedFactsVersion    = factsVersion;
+	}
+
+	/**
+	 * Examples are recreated every time they are resampled, so carry the
+	 * cached sum over from the previous instance of the same example.
+	 */
+	void copyCachedModelRegression(RegressionRDNExample other) {
+		cachedModelRegression = other.cachedModelRegression;
+		cachedModel           = other.cachedModel;
+		cachedNumberOfTrees   = other.cachedNumberOfTrees;
+		cachedFactsVersion    = other.cachedFactsVersion;
+	}
+
 	public String toPrettyString() {
 		String result= super.toString();
 		result += " Actual Bool=" + originalTruthValue +" Prob=" + probOfExample + " Output=";
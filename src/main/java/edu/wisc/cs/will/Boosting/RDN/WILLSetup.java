@@ -64,10 +64,11 @@ public final class WILLSetup {
 
 		Utils.Verbosity defaultVerbosity = Utils.Verbosity.Medium;
 
-		// TODO(@hayesall): Providing a seed could be useful for replicating results.
-		//	Utils.seedRandom((long) 12345); // Use this if we want to repeat runs exactly.
-
-		Utils.seedRandom(System.currentTimeMillis() % 100000); // Only use the last few digits (though probably doesn't matter).  JWS
+		if (args.getRandomSeedVal() >= 0) {
+			Utils.seedRandom(args.getRandomSeedVal()); // Use this if we want to repeat runs exactly.
+		} else {
+			Utils.seedRandom(System.currentTimeMillis() % 100000); // Only use the last few digits (though probably doesn't matter).  JWS
+		}
 		Utils.setVerbosity(defaultVerbosity);
 
 		File dir = new CondorFile(directory);
@@ -192,6 +193,10 @@ public final class WILLSetup {
 			return false; 
 		}
 		
+		if (cmdArgs.isEagerIndexVal()) {
+			getContext().getClausebase().buildEagerIndex();
+		}
+
 		reportStats();
 
 		return true;
@@ -433,6 +438,8 @@ public final class WILLSetup {
 			context.getStringHandler().variantRuleHandling = VariantClauseAction.WARN_AND_REMOVE_VARIANTS;
 
 			stringHandler.keepQuoteMarks                       = true;
+			stringHandler.streamFacts                          = cmdArgs.isStreamFactsVal();
+			stringHandler.useFactsSnapshot                     = cmdArgs.isFactsSnapshotVal();
 			stringHandler.dontComplainIfMoreThanOneTargetModes = true;
 			Utils.println("\n% Calling ILPouterLoop from createRegressionOuterLooper.");
 			setOuterLooper(new ILPouterLoop(directory, prefix, newArgList, strategy, scorer, new Gleaner(), context, isaRegressionTaskRightAway));
@@ -452,6 +459,12 @@ public final class WILLSetup {
 		getInnerLooper().setMEstimatePos(0.1);
 		getInnerLooper().setMEstimateNeg(0.1);
 		getInnerLooper().setMaxNegCoverage(0.499);
+		getInnerLooper().setNumberOfScoringThreads(cmdArgs.getNumberOfThreadsVal());
+		getInnerLooper().setUseCoverageCache(cmdArgs.isCoverageCacheVal());
+		getInnerLooper().setUseAdaptiveCoverage(cmdArgs.isAdaptiveCoverageVal());
+		getInnerLooper().setUseBatchCoverage(cmdArgs.isBatchCoverageVal());
+		getInnerLooper().setUseLiteralReordering(cmdArgs.isReorderLiteralsVal());
+		getOuterLooper().setNumberOfParallelTreeNodes(cmdArgs.getNumberOfParallelTreeNodesVal());
 
 		getInnerLooper().getProver().setMaxNodesToConsider(1000000);
 		getInnerLooper().getProver().setMaxNodesToCreate( 10000000);
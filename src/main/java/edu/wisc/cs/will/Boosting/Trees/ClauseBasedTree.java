@@ -3,6 +3,8 @@ package edu.wisc.cs.will.Boosting.Trees;
 import edu.wisc.cs.will.Boosting.RDN.RegressionRDNExample;
 import edu.wisc.cs.will.Boosting.RDN.WILLSetup;
 import edu.wisc.cs.will.Boosting.Utils.BoostingUtils;
+import edu.wisc.cs.will.Boosting.Utils.ClauseDecoder;
+import edu.wisc.cs.will.Boosting.Utils.ClauseEncoder;
 import edu.wisc.cs.will.DataSetUtils.Example;
 import edu.wisc.cs.will.DataSetUtils.RegressionExample;
 import edu.wisc.cs.will.FOPC.*;
@@ -11,6 +13,10 @@ import edu.wisc.cs.will.Utils.Utils;
 import edu.wisc.cs.will.Utils.condor.CondorFileWriter;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -24,6 +30,12 @@ public class ClauseBasedTree  {
 	private boolean breakAfterFirstMatch;
 	private final boolean addLeafId;
 
+	/*
+	 * The leaves, each with its query already rewritten (see compileLeaves()).
+	 * Null until the tree is first evaluated, and reset whenever the clauses change.
+	 */
+	private volatile List<CompiledLeaf> compiledLeaves;
+
 	ClauseBasedTree(WILLSetup setup) {
 		regressionClauses = new ArrayList<>();
 		suppClauses = new ArrayList<>();
@@ -43,16 +55,17 @@ public class ClauseBasedTree  {
 	public RegressionValueOrVector getRegressionValue(Example ex) {
 		RegressionValueOrVector sum = null;
 		int id = 0;
-		for (Clause clause : regressionClauses) {
+		for (CompiledLeaf leaf : getCompiledLeaves()) {
 			id++;
-			RegressionValueOrVector wt = getRegressionClauseWt(clause, ex);
+			Clause clause = leaf.clause;
+			RegressionValueOrVector wt = getRegressionLeafWt(leaf, ex);
 			if (wt != null) {
 				if (sum != null) {
 					sum.addValueOrVector(wt);
 				} else {
 					sum = wt;
 				}
-				if (breakAfterFirstMatch) {
+				if (breakAfterMatch(clause, ex)) {
 					if (addLeafId && ex instanceof RegressionExample) {
 						RegressionExample rex = (RegressionExample)ex;
 						rex.leafId = rex.leafId + id + "_";
@@ -78,28 +91,74 @@ public class ClauseBasedTree  {
 		return sum;
 	}
 
+	private List<CompiledLeaf> getCompiledLeaves() {
+		List<CompiledLeaf> leaves = compiledLeaves;
+		if (leaves == null) {
+			synchronized (this) {
+				leaves = compiledLeaves;
+				if (leaves == null) {
+					leaves = compileLeaves();
+					compiledLeaves = leaves;
+				}
+			}
+		}
+		return leaves;
+	}
+
+	private List<CompiledLeaf> compileLeaves() {
+		List<CompiledLeaf> leaves = new ArrayList<>(regressionClauses.size());
+		for (Clause clause : regressionClauses) {
+			leaves.add(compileLeaf(clause));
+		}
+		return leaves;
+	}
+
 	/*
-	 * 
-	 * @param clause - the clause to evaluate against
-	 * @param ex - the example to evaluate
-	 * @return the regression value for this clause. Return a NaN if the example doesn't satisfy the clause.
+	 * Rewrites a leaf clause into the query getRegressionClauseWt would build for it:
+	 * the head without its regression value, and the body without the trailing cut and the
+	 * negation-by-failure literals.  This only depends on the clause, so it is done once per tree
+	 * instead of once per example.  Leaves whose value is a variable are left to getRegressionClauseWt.
 	 */
-	RegressionValueOrVector getRegressionClauseWt(Clause clause, Example ex) {
-	
-		// If the last argument is a constant
+	CompiledLeaf compileLeaf(Clause clause) {
 		Literal head = clause.posLiterals.get(0);
 		Term    y    = head.getArgument(head.numberArgs() - 1);
-		if (! ( y instanceof Variable)) {
-			RegressionValueOrVector value = BoostingUtils.getRegressionValueOrVectorFromTerm(y);
-			
-			List<Literal> new_body = clause.getDefiniteClauseBody();
-	
+		if (y instanceof Variable) {
+			return new CompiledLeaf(clause, null, null, null);
+		}
+		Literal queryHead = head.copy(false);
+		queryHead.removeArgument(y);
+		return new CompiledLeaf(clause, queryHead, stripClauseBody(clause), BoostingUtils.getRegressionValueOrVectorFromTerm(y));
+	}
+
+	/*
+	 * @param leaf - the leaf to evaluate against
+	 * @param ex - the example to evaluate
+	 * @return the regression value for this leaf, or null if the example doesn't satisfy it.
+	 */
+	RegressionValueOrVector getRegressionLeafWt(CompiledLeaf leaf, Example ex) {
+		if (leaf.value == null) {
+			return getRegressionClauseWt(leaf.clause, ex);
+		}
+		if (setup.getOuterLooper().proveExample(leaf.queryHead, leaf.queryBody, ex)) {
+			return leaf.value.copy(); // The caller adds the other leaves' values into the one returned.
+		}
+		return null;
+	}
+
+	/*
+	 * Removes the trailing cut and the negation by failure literals from the clause's own body, which is returned.
+	 */
+	private List<Literal> stripClauseBody(Clause clause) {
+		List<Literal> new_body = clause.getDefiniteClauseBody();
+
+		// This is the clause's own body, so lock it in case other threads are evaluating this tree.
+		synchronized (clause) {
 			// Remove cuts
 			if (new_body.size() > 0 &&
 					new_body.get(new_body.size()-1).equals(setup.getHandler().cutLiteral)) {
 				new_body.remove(new_body.size() - 1);
 			}
-			
+
 			// Remove the negation by failure literals
 			for (int i = 0; i < new_body.size(); i++) {
 				Literal lit = new_body.get(i);
@@ -108,6 +167,26 @@ public class ClauseBasedTree  {
 					i--;
 				}
 			}
+		}
+		return new_body;
+	}
+
+	/*
+	 * 
+	 * @param clause - the clause to evaluate against
+	 * @param ex - the example to evaluate
+	 * @return the regression value for this clause. Return a NaN if the example doesn't satisfy the clause.
+	 */
+	RegressionValueOrVector getRegressionClauseWt(Clause clause, Example ex) {
+	
+		// If the last argument is a constant
+		Literal head = clause.posLiterals.get(0);
+		Term    y    = head.getArgument(head.numberArgs() - 1);
+		if (! ( y instanceof Variable)) {
+			RegressionValueOrVector value = BoostingUtils.getRegressionValueOrVectorFromTerm(y);
+			
+			List<Literal> new_body = stripClauseBody(clause);
+
 			// Remove the last argument of the head(regression value)
 			Literal new_head_lit = head.copy(false);
 			new_head_lit.removeArgument(y);
@@ -149,6 +228,7 @@ public class ClauseBasedTree  {
 			}
 			regressionClauses.set(i, cl2);
 		}
+		compiledLeaves = null;
 		for (Clause suppClause : suppClauses) {
 			if (suppClause !=null)  { 
 				Clause cl2 = setup.convertFactToClause(suppClause + ".");
@@ -158,6 +238,59 @@ public class ClauseBasedTree  {
 		}
 	}
 
+	/*
+	 * Does the same as reparseRegressionTrees(), but copies the clauses into the current setup
+	 * by encoding and decoding them, rather than by printing and parsing them.
+	 */
+	public void recodeRegressionTrees() {
+		try {
+			ClauseEncoder encoder = new ClauseEncoder();
+			writeClauses(encoder);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			encoder.writeTo(new DataOutputStream(bytes));
+			ClauseDecoder decoder = new ClauseDecoder(setup.getHandler(), new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+			for (int i = 0; i < regressionClauses.size(); i++) {
+				regressionClauses.set(i, decoder.readClause());
+			}
+			decoder.readInt(); // The number of supporting clauses, which reparseRegressionTrees() leaves in suppClauses.
+			for (int i = 0; i < suppClauses.size(); i++) {
+				setup.getInnerLooper().getContext().getClausebase().assertBackgroundKnowledge(decoder.readClause());
+			}
+		} catch (IOException e) {
+			Utils.reportStackTrace(e);
+			Utils.error("Unable to copy the clauses of the tree.");
+		}
+		compiledLeaves = null;
+	}
+
+	/* Writes the leaf clauses and then the supporting clauses, for readClauses(). */
+	public void writeClauses(ClauseEncoder encoder) throws IOException {
+		encoder.writeInt(regressionClauses.size());
+		for (Clause cl : regressionClauses) {
+			encoder.writeClause(cl);
+		}
+		encoder.writeInt(suppClauses.size());
+		for (Clause cl : suppClauses) {
+			encoder.writeClause(cl);
+		}
+	}
+
+	/* Reads the clauses written by writeClauses(), as loadFromFile() would read them from a tree file. */
+	public void readClauses(ClauseDecoder decoder) throws IOException {
+		int numberOfRegressionClauses = decoder.readInt();
+		for (int i = 0; i < numberOfRegressionClauses; i++) {
+			regressionClauses.add(decoder.readClause());
+		}
+		compiledLeaves = null;
+		int numberOfSupportingClauses = decoder.readInt();
+		for (int i = 0; i < numberOfSupportingClauses; i++) {
+			Clause cl = decoder.readClause();
+			addSupportingClause(cl);
+			setup.getInnerLooper().getContext().getClausebase().assertBackgroundKnowledge(cl);
+		}
+	}
+
 	public void saveToFile(String filename) throws IOException {
 		Utils.ensureDirExists(filename);
 		// Create a new file.
@@ -199,6 +332,7 @@ public class ClauseBasedTree  {
 					setup.getInnerLooper().getContext().getClausebase().assertBackgroundKnowledge(cl);
 				} else {
 					regressionClauses.add(cl);
+					compiledLeaves = null;
 				}
 			} else {
 				Utils.error("Not parsed as one clause. : " + clauses);
@@ -212,6 +346,7 @@ public class ClauseBasedTree  {
 
 	void addClause(Clause regressionClause) {
 		regressionClauses.add(regressionClause);
+		compiledLeaves = null;
 	}
 
 	void addSupportingClause(Clause regressionClause) {
@@ -222,8 +357,29 @@ public class ClauseBasedTree  {
 		return regressionClauses;
 	}
 
-	void setBreakAfterFirstMatch(boolean breakAfterFirstMatch) {
-		this.breakAfterFirstMatch = breakAfterFirstMatch;
+	/*
+	 * Called after the example matched this clause.
+	 * @return true if the later clauses should not be evaluated.
+	 */
+	boolean breakAfterMatch(Clause clause, Example ex) {
+		return breakAfterFirstMatch;
+	}
+
+	/*
+	 * A leaf clause together with the query that proves it.
+	 */
+	static class CompiledLeaf {
+		final Clause                  clause;
+		final Literal                 queryHead;
+		final List<Literal>           queryBody;
+		final RegressionValueOrVector value; // Null if the leaf is not compiled.
+
+		CompiledLeaf(Clause clause, Literal queryHead, List<Literal> queryBody, RegressionValueOrVector value) {
+			this.clause    = clause;
+			this.queryHead = queryHead;
+			this.queryBody = queryBody;
+			this.value     = value;
+		}
 	}
 
 }
\ No newline at end of file
@@ -2,62 +2,41 @@ package edu.wisc.cs.will.Boosting.Trees;
 
 import edu.wisc.cs.will.Boosting.RDN.WILLSetup;
 import edu.wisc.cs.will.Boosting.Utils.BoostingUtils;
+import edu.wisc.cs.will.Boosting.Utils.GroundingCountCache;
 import edu.wisc.cs.will.Boosting.Utils.NumberGroundingsCalculator;
 import edu.wisc.cs.will.DataSetUtils.Example;
 import edu.wisc.cs.will.FOPC.Clause;
 import edu.wisc.cs.will.FOPC.Literal;
 import edu.wisc.cs.will.FOPC.Term;
+import edu.wisc.cs.will.ResThmProver.HornClauseContext;
 import edu.wisc.cs.will.Utils.RegressionValueOrVector;
 import edu.wisc.cs.will.Utils.Utils;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /*
  * @author tkhot
  */
 public class RegressionMLNModel extends RegressionTree {
 
-	private NumberGroundingsCalculator calc;
+	/*
+	 * Each thread counts groundings with its own calculator (and hence its own prover).
+	 */
+	private ThreadLocal<NumberGroundingsCalculator> calc;
 	
-	private Map<String, Long> cachedRegressionClauseWeights = null; 
+	private final ThreadLocal<GroundingCountCache> cachedRegressionClauseWeights = new ThreadLocal<>();
 
 	public RegressionMLNModel(WILLSetup setup) {
 		super(setup);
 		resetGroundingCalculator();
 	}
 	
-	public void setCachedValues(Map<String, Long> cache) {
-		cachedRegressionClauseWeights = cache;
-	}
-	
-	private void addToCache(Clause cl, Literal eg, long val) {
-		if (cachedRegressionClauseWeights == null) {
-			return;
-		}
-		String key = getCacheKey(cl, eg);
-		cachedRegressionClauseWeights.put(key, val);
-	}
-
-	private String getCacheKey(Clause cl, Literal eg) {
-		return cl.toString() + ":::" + eg.toString();
-	}
-
-	private boolean inCache(Clause cl, Literal eg) {
-		if (cachedRegressionClauseWeights == null) {
-			return false;
-		}
-		String key = getCacheKey(cl, eg);
-		return cachedRegressionClauseWeights.containsKey(key);
-	}
-
-	private long cachedWeight(Clause cl, Literal eg) {
-		if (cachedRegressionClauseWeights == null) {
-			Utils.error("No cache provided");
-		}
-		String key = getCacheKey(cl, eg);
-		return cachedRegressionClauseWeights.get(key);
+	/*
+	 * Sets the cache used by the calling thread.
+	 */
+	public void setCachedValues(GroundingCountCache cache) {
+		cachedRegressionClauseWeights.set(cache);
 	}
 
 	@Override
@@ -67,7 +46,16 @@ public class RegressionMLNModel extends RegressionTree {
 	}
 	
 	private void resetGroundingCalculator() {
-		calc = new NumberGroundingsCalculator(setup.getContext());
+		final HornClauseContext context = setup.getContext();
+		calc = ThreadLocal.withInitial(() -> new NumberGroundingsCalculator(context));
+	}
+
+	/*
+	 * Which literals are dropped depends on the example, so the leaves are not compiled here.
+	 */
+	@Override
+	CompiledLeaf compileLeaf(Clause clause) {
+		return new CompiledLeaf(clause, null, null, null);
 	}
 
 	@Override
@@ -84,36 +72,43 @@ public class RegressionMLNModel extends RegressionTree {
 		new_head.add(head);
 		
 		List<Literal> new_body = clause.getDefiniteClauseBody();
-		// remove the cut to get number of proofs
-		if (new_body.size() > 0 &&
-			new_body.get(new_body.size()-1).equals(setup.getHandler().cutLiteral)) {
-			new_body.remove(new_body.size() - 1);
-		}
-		Clause cl = new Clause(setup.getHandler(), new_head, new_body);
-		// Ignore the negation by failure literals as the ordering takes care
-		if (calc.isOnlyInHead(cl, ex)) {
-			for (int i = 0; i < new_body.size(); i++) {
-				Literal lit = new_body.get(i);
-				if(lit.predicateName.equals(setup.getHandler().standardPredicateNames.negationByFailure)) {
-					new_body.remove(i);
-					i--;
-				}
+		Clause cl;
+		// This is the clause's own body, so lock it in case other threads are evaluating this tree.
+		synchronized (clause) {
+			// remove the cut to get number of proofs
+			if (new_body.size() > 0 &&
+				new_body.get(new_body.size()-1).equals(setup.getHandler().cutLiteral)) {
+				new_body.remove(new_body.size() - 1);
 			}
-			if (!setup.learnClauses) {
-				setBreakAfterFirstMatch(true);
+			cl = new Clause(setup.getHandler(), new_head, new_body);
+			// Ignore the negation by failure literals as the ordering takes care
+			if (calc.get().isOnlyInHead(cl, ex)) {
+				for (int i = 0; i < new_body.size(); i++) {
+					Literal lit = new_body.get(i);
+					if(lit.predicateName.equals(setup.getHandler().standardPredicateNames.negationByFailure)) {
+						new_body.remove(i);
+						i--;
+					}
+				}
 			}
-		} else {
-			setBreakAfterFirstMatch(false);
+			// Another thread may still remove literals from the clause's body, so count the groundings of a copy.
+			new_body = new ArrayList<>(new_body);
 		}
 
 		
 		cl = new Clause(setup.getHandler(), new_head, new_body);
 		long num;
-		if (inCache(cl, ex)) {
-			num=cachedWeight(cl, ex);
+		GroundingCountCache cache = cachedRegressionClauseWeights.get();
+		if (cache == null) {
+			num = calc.get().countNumberOfNonTrivialGroundings(cl, ex);
 		} else {
-			num = calc.countNumberOfNonTrivialGroundings(cl, ex);
-			addToCache(cl, ex, num);
+			int clauseId  = cache.getClauseId(clause, cl);
+			int exampleId = cache.getExampleId(ex);
+			num = cache.get(clauseId, exampleId);
+			if (num < 0) {
+				num = calc.get().countNumberOfNonTrivialGroundings(cl, ex);
+				cache.put(clauseId, exampleId, num);
+			}
 		}
 		// If the clause head unifies with the example and it has no groundings, we want to evaluate the next
 		// clause. So return Nan. If the example doesn't unify with the head, then it doesn't matter if we return 0 or Nan, 
@@ -125,4 +120,28 @@ public class RegressionMLNModel extends RegressionTree {
 		return val;
 
 	}
+
+	/*
+	 * Only stop at the first matching clause if the example's predicate is only in the head.
+	 * Decided per call rather than stored in the tree, since several threads may evaluate it.
+	 */
+	@Override
+	boolean breakAfterMatch(Clause clause, Example ex) {
+		if (setup.learnClauses) {
+			return false;
+		}
+		Literal head = clause.getPosLiteral(0);
+		if (head.predicateName != ex.predicateName || head.numberArgs() - 1 != ex.numberArgs()) {
+			return false;
+		}
+		// The same lock as getRegressionClauseWt(), which may be removing literals from this body.
+		synchronized (clause) {
+			for (Literal lit : clause.getDefiniteClauseBody()) {
+				if (lit.getPredicateNameAndArity().equals(ex.getPredicateNameAndArity())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
 }
@@ -86,5 +86,9 @@ public class BoostingUtils {
 		return saveModelName + ".ckptLits";
 	}
 
+	public static String getBinaryModelFile(String saveModelName) {
+		return saveModelName + ".bin";
+	}
+
 
 }
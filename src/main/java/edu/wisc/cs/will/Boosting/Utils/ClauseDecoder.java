@@ -0,0 +1,120 @@
+package edu.wisc.cs.will.Boosting.Utils;
+
+import edu.wisc.cs.will.FOPC.Clause;
+import edu.wisc.cs.will.FOPC.HandleFOPCstrings;
+import edu.wisc.cs.will.FOPC.Literal;
+import edu.wisc.cs.will.FOPC.Term;
+import edu.wisc.cs.will.FOPC.Variable;
+import edu.wisc.cs.will.Utils.Utils;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Reads what a ClauseEncoder wrote, in the same order.  The names are interned in the given string handler, as
+ * FactSnapshot does, and each clause gets new variables.
+ */
+public class ClauseDecoder {
+
+	private final HandleFOPCstrings stringHandler;
+
+	private final DataInputStream in;
+
+	private final String[] symbols;
+
+	private final List<Variable> variables = new ArrayList<>(); // Of the clause being read.
+
+	/* Reads the symbol table at the front of in. */
+	public ClauseDecoder(HandleFOPCstrings stringHandler, DataInputStream in) throws IOException {
+		this.stringHandler = stringHandler;
+		this.in            = in;
+		symbols = new String[in.readInt()];
+		for (int i = 0; i < symbols.length; i++) {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			symbols[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	public int readInt() throws IOException {
+		return in.readInt();
+	}
+
+	public double readDouble() throws IOException {
+		return in.readDouble();
+	}
+
+	public String readSymbol() throws IOException {
+		return symbols[in.readInt()];
+	}
+
+	public Clause readClause() throws IOException {
+		variables.clear();
+		List<Literal> posLiterals = readLiterals();
+		List<Literal> negLiterals = readLiterals();
+		return stringHandler.getClause(posLiterals, negLiterals);
+	}
+
+	private List<Literal> readLiterals() throws IOException {
+		int numberOfLiterals = readInt();
+		List<Literal> literals = new ArrayList<>(numberOfLiterals);
+		for (int i = 0; i < numberOfLiterals; i++) {
+			String        predicateName = readSymbol();
+			List<Term>    arguments     = readTerms();
+			List<String>  argumentNames = readNames();
+			literals.add(stringHandler.getLiteral(stringHandler.getPredicateName(predicateName), arguments, argumentNames));
+		}
+		return literals;
+	}
+
+	// Returns null rather than an empty list, as the parser does for a literal or function with no arguments.
+	private List<Term> readTerms() throws IOException {
+		int numberOfTerms = readInt();
+		if (numberOfTerms == 0) {
+			return null;
+		}
+		List<Term> terms = new ArrayList<>(numberOfTerms);
+		for (int i = 0; i < numberOfTerms; i++) {
+			byte kind = in.readByte();
+			switch (kind) {
+				case ClauseEncoder.VARIABLE:
+					int number = readInt();
+					if (number == variables.size()) {
+						variables.add(stringHandler.getNewUnamedVariable());
+					}
+					terms.add(variables.get(number));
+					break;
+				case ClauseEncoder.STRING_CONSTANT:
+					terms.add(stringHandler.getStringConstant(null, readSymbol(), true));
+					break;
+				case ClauseEncoder.NUMERIC_CONSTANT:
+					terms.add(stringHandler.getNumericConstant(null, readDouble()));
+					break;
+				case ClauseEncoder.FUNCTION:
+					String       functionName  = readSymbol();
+					List<Term>   arguments     = readTerms();
+					List<String> argumentNames = readNames();
+					terms.add(stringHandler.getFunction(stringHandler.getFunctionName(functionName), arguments, argumentNames, null));
+					break;
+				default:
+					Utils.error("Unknown kind of term (" + kind + ") in the encoded clauses.");
+			}
+		}
+		return terms;
+	}
+
+	private List<String> readNames() throws IOException {
+		int numberOfNames = readInt();
+		if (numberOfNames < 0) {
+			return null;
+		}
+		List<String> names = new ArrayList<>(numberOfNames);
+		for (int i = 0; i < numberOfNames; i++) {
+			names.add(readSymbol());
+		}
+		return names;
+	}
+}
@@ -0,0 +1,140 @@
+package edu.wisc.cs.will.Boosting.Utils;
+
+import edu.wisc.cs.will.FOPC.Clause;
+import edu.wisc.cs.will.FOPC.Function;
+import edu.wisc.cs.will.FOPC.Literal;
+import edu.wisc.cs.will.FOPC.NumericConstant;
+import edu.wisc.cs.will.FOPC.StringConstant;
+import edu.wisc.cs.will.FOPC.Term;
+import edu.wisc.cs.will.FOPC.Variable;
+import edu.wisc.cs.will.Utils.Utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Writes clauses (and the numbers that go with them) in a binary form that ClauseDecoder reads back without any parsing.
+ *
+ * Every name (of a predicate, function or string constant) is written once, to a symbol table, and is referred to
+ * by its number after that.  Since the symbol table is only complete once everything has been written, writeTo()
+ * puts it in front of the rest:
+ *
+ *     symbols:  the number of names, then each name,
+ *     values:   the ints, doubles, names and clauses, in the order they were written.
+ *
+ * A clause is its positive literals then its negative literals.  A literal is its predicate name, its arguments and
+ * its argument names.  The variables of a clause are numbered in the order they first appear in it.
+ */
+public class ClauseEncoder {
+
+	static final byte VARIABLE         = 0;
+	static final byte STRING_CONSTANT  = 1;
+	static final byte NUMERIC_CONSTANT = 2;
+	static final byte FUNCTION         = 3;
+
+	private final Map<String, Integer> symbolNumbers = new HashMap<>();
+
+	private final List<String> symbols = new ArrayList<>();
+
+	private final ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+
+	private final DataOutputStream values = new DataOutputStream(valueBytes);
+
+	private final Map<Variable, Integer> variableNumbers = new IdentityHashMap<>(); // For the clause being written.
+
+	public void writeInt(int value) throws IOException {
+		values.writeInt(value);
+	}
+
+	public void writeDouble(double value) throws IOException {
+		values.writeDouble(value);
+	}
+
+	public void writeSymbol(String name) throws IOException {
+		Integer number = symbolNumbers.get(name);
+		if (number == null) {
+			number = symbols.size();
+			symbolNumbers.put(name, number);
+			symbols.add(name);
+		}
+		values.writeInt(number);
+	}
+
+	public void writeClause(Clause clause) throws IOException {
+		variableNumbers.clear();
+		writeLiterals(clause.posLiterals);
+		writeLiterals(clause.negLiterals);
+	}
+
+	/* Writes the symbol table and then everything written so far. */
+	public void writeTo(DataOutputStream out) throws IOException {
+		out.writeInt(symbols.size());
+		for (String symbol : symbols) {
+			byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		values.flush();
+		valueBytes.writeTo(out);
+	}
+
+	private void writeLiterals(List<Literal> literals) throws IOException {
+		writeInt(Utils.getSizeSafely(literals));
+		if (literals != null) for (Literal literal : literals) {
+			writeSymbol(literal.predicateName.name);
+			writeTerms(literal.getArguments());
+			writeNames(literal.getArgumentNames());
+		}
+	}
+
+	private void writeTerms(List<Term> terms) throws IOException {
+		writeInt(Utils.getSizeSafely(terms));
+		if (terms != null) for (Term term : terms) {
+			if (term instanceof Variable) {
+				Integer number = variableNumbers.get(term);
+				if (number == null) {
+					number = variableNumbers.size();
+					variableNumbers.put((Variable) term, number);
+				}
+				values.writeByte(VARIABLE);
+				writeInt(number);
+			}
+			else if (term instanceof StringConstant) {
+				values.writeByte(STRING_CONSTANT);
+				writeSymbol(((StringConstant) term).getBareName());
+			}
+			else if (term instanceof NumericConstant) {
+				values.writeByte(NUMERIC_CONSTANT);
+				writeDouble(((NumericConstant) term).value.doubleValue());
+			}
+			else if (term instanceof Function) {
+				Function function = (Function) term;
+				values.writeByte(FUNCTION);
+				writeSymbol(function.functionName.name);
+				writeTerms(function.getArguments());
+				writeNames(function.getArgumentNames());
+			}
+			else {
+				Utils.error("Cannot write the term '" + term + "' of class " + term.getClass().getSimpleName() + ".");
+			}
+		}
+	}
+
+	private void writeNames(List<String> names) throws IOException {
+		if (names == null) {
+			writeInt(-1);
+			return;
+		}
+		writeInt(names.size());
+		for (String name : names) {
+			writeSymbol(name);
+		}
+	}
+}
@@ -88,6 +88,39 @@ public class CommandLineArguments {
 
 	private static final String aucPath = "aucJarPath";
 
+	private static final String numberOfThreads = "threads";
+	private int numberOfThreadsVal = 1;
+
+	private static final String numberOfParallelTreeNodes = "parallelTreeNodes";
+	private int numberOfParallelTreeNodesVal = 1;
+
+	private static final String randomSeed = "seed";
+	private long randomSeedVal = -1;
+
+	private static final String eagerIndex = "eagerIndex";
+	private boolean eagerIndexVal = false;
+
+	private static final String streamFacts = "streamFacts";
+	private boolean streamFactsVal = false;
+
+	private static final String factsSnapshot = "factsSnapshot";
+	private boolean factsSnapshotVal = false;
+
+	private static final String coverageCache = "coverageCache";
+	private boolean coverageCacheVal = false;
+
+	private static final String adaptiveCoverage = "adaptiveCoverage";
+	private boolean adaptiveCoverageVal = false;
+
+	private static final String batchCoverage = "batchCoverage";
+	private boolean batchCoverageVal = false;
+
+	private static final String reorderLiterals = "reorderLiterals";
+	private boolean reorderLiteralsVal = false;
+
+	private static final String binaryModel = "binaryModel";
+	private boolean binaryModelVal = false;
+
 	public boolean parseArgs(String[] args) {
 
 		for (int i = 0; i < args.length; i++) {
@@ -201,6 +234,74 @@ public class CommandLineArguments {
 				testNegsToPosRatioVal=Double.parseDouble(args[++i]);
 				continue;
 			}
+			if (argMatches(args[i], numberOfThreads)) {
+				numberOfThreadsVal=Integer.parseInt(args[++i]);
+				continue;
+			}
+			if (argMatches(args[i], numberOfParallelTreeNodes)) {
+				numberOfParallelTreeNodesVal=Integer.parseInt(args[++i]);
+				continue;
+			}
+			if (argMatches(args[i], randomSeed)) {
+				randomSeedVal=Long.parseLong(args[++i]);
+				continue;
+			}
+			if (argMatches(args[i], eagerIndex)) {
+				eagerIndexVal=true;
+				if (isArgumentNotAFlag(args, i+1)) {
+					eagerIndexVal = Utils.parseBoolean(args[++i]);
+				}
+				continue;
+			}
+			if (argMatches(args[i], streamFacts)) {
+				streamFactsVal=true;
+				if (isArgumentNotAFlag(args, i+1)) {
+					streamFactsVal = Utils.parseBoolean(args[++i]);
+				}
+				continue;
+			}
+			if (argMatches(args[i], factsSnapshot)) {
+				factsSnapshotVal=true;
+				if (isArgumentNotAFlag(args, i+1)) {
+					factsSnapshotVal = Utils.parseBoolean(args[++i]);
+				}
+				continue;
+			}
+			if (argMatches(args[i], coverageCache)) {
+				coverageCacheVal=true;
+				if (isArgumentNotAFlag(args, i+1)) {
+					coverageCacheVal = Utils.parseBoolean(args[++i]);
+				}
+				continue;
+			}
+			if (argMatches(args[i], adaptiveCoverage)) {
+				adaptiveCoverageVal=true;
+				if (isArgumentNotAFlag(args, i+1)) {
+					adaptiveCoverageVal = Utils.parseBoolean(args[++i]);
+				}
+				continue;
+			}
+			if (argMatches(args[i], batchCoverage)) {
+				batchCoverageVal=true;
+				if (isArgumentNotAFlag(args, i+1)) {
+					batchCoverageVal = Utils.parseBoolean(args[++i]);
+				}
+				continue;
+			}
+			if (argMatches(args[i], reorderLiterals)) {
+				reorderLiteralsVal=true;
+				if (isArgumentNotAFlag(args, i+1)) {
+					reorderLiteralsVal = Utils.parseBoolean(args[++i]);
+				}
+				continue;
+			}
+			if (argMatches(args[i], binaryModel)) {
+				binaryModelVal=true;
+				if (isArgumentNotAFlag(args, i+1)) {
+					binaryModelVal = Utils.parseBoolean(args[++i]);
+				}
+				continue;
+			}
 			if (argMatches(args[i], aucPath)) {
 				// TODO(hayesall): No longer used, but might be passed in other setups where I've shelled out.
 				String aucPathVal = args[++i];
@@ -248,6 +349,28 @@ public class CommandLineArguments {
 		result += argPrefix + stepLen + " <Step Length>: Default step length for functional gradient.\n";
 
 		result += argPrefix + testNegsToPosRatio + " <Negative/Positive ratio>: Ratio of negatives to positive for testing.\n";
+
+		result += argPrefix + numberOfThreads + " <Number of threads>: Threads used to compute example probabilities and to score candidate clauses (default 1).\n";
+
+		result += argPrefix + numberOfParallelTreeNodes + " <Number of tree nodes>: Queued nodes of a regression tree learned at once, each on its own thread (default 1).  The trees learned are the same.\n";
+
+		result += argPrefix + randomSeed + " <Seed>: Seed for the random numbers, to repeat a run exactly (default is based on the clock).\n";
+
+		result += argPrefix + eagerIndex + " : Index every argument of every predicate once the facts are loaded, instead of lazily.\n";
+
+		result += argPrefix + streamFacts + " : Assert the facts as they are read, instead of parsing the whole facts file first.\n";
+
+		result += argPrefix + factsSnapshot + " : Read the facts from a binary snapshot next to the facts file, writing the snapshot first if it is missing or out of date.\n";
+
+		result += argPrefix + coverageCache + " : Remember which examples each candidate clause covers, so later trees do not prove them again.\n";
+
+		result += argPrefix + adaptiveCoverage + " : Prove first the examples that sibling clauses failed on, and stop proving those for a clause once it cannot score well enough to be kept.\n";
+
+		result += argPrefix + batchCoverage + " : Prove all the examples for a candidate clause at once, by joining its body over the facts.\n";
+
+		result += argPrefix + reorderLiterals + " : Prove the literals of a candidate clause in the order expected to match the fewest facts, as the modes allow.\n";
+
+		result += argPrefix + binaryModel + " : Also save each model as a single binary file next to the text model, and load models from it when it is there (edits to the text files are then ignored).\n";
 		
 		return result;
 	}
@@ -377,6 +500,50 @@ public class CommandLineArguments {
 		return testNegsToPosRatioVal;
 	}
 
+	public int getNumberOfThreadsVal() {
+		return numberOfThreadsVal;
+	}
+
+	public int getNumberOfParallelTreeNodesVal() {
+		return numberOfParallelTreeNodesVal;
+	}
+
+	public long getRandomSeedVal() {
+		return randomSeedVal;
+	}
+
+	public boolean isEagerIndexVal() {
+		return eagerIndexVal;
+	}
+
+	public boolean isStreamFactsVal() {
+		return streamFactsVal;
+	}
+
+	public boolean isFactsSnapshotVal() {
+		return factsSnapshotVal;
+	}
+
+	public boolean isCoverageCacheVal() {
+		return coverageCacheVal;
+	}
+
+	public boolean isAdaptiveCoverageVal() {
+		return adaptiveCoverageVal;
+	}
+
+	public boolean isBatchCoverageVal() {
+		return batchCoverageVal;
+	}
+
+	public boolean isReorderLiteralsVal() {
+		return reorderLiteralsVal;
+	}
+
+	public boolean isBinaryModelVal() {
+		return binaryModelVal;
+	}
+
 	public boolean isLearnMLN() {
 		return learnMLN;
 	}
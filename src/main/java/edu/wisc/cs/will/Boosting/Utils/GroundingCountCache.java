@@ -0,0 +1,136 @@
+package edu.wisc.cs.will.Boosting.Utils;
+
+import edu.wisc.cs.will.FOPC.Clause;
+import edu.wisc.cs.will.FOPC.Literal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/*
+ * Caches the number of groundings of a tree clause for an example.
+ *
+ * Clauses and examples are numbered the first time they are seen and the counts are kept in
+ * a fixed size, direct mapped table of primitive longs keyed on (clause number, example number).
+ * A new count simply replaces whatever was in its slot, which bounds the memory used.
+ *
+ * Clauses get the same number if they print the same, so equal leaves in different trees share
+ * counts.  The printed form is only worked out again when the clause's body changes length (the
+ * trees drop cuts and negation-by-failure literals from their clauses as they are evaluated).
+ *
+ * Counts are only valid while the facts do not change, so use a new cache for every inference pass.
+ * Not thread safe; each thread should have its own.
+ */
+public class GroundingCountCache {
+
+	private static final long EMPTY = -1;
+
+	private final long[] keys;
+	private final long[] counts;
+	private final int    mask;
+
+	private final Map<String, Integer>  clauseIdsByText = new HashMap<>();
+	private final Map<Clause, ClauseId> clauseIds       = new IdentityHashMap<>();
+	private final Map<Literal, Integer> exampleIds      = new HashMap<>();
+
+	private long hits      = 0;
+	private long misses    = 0;
+	private long evictions = 0;
+
+	/*
+	 * @param capacity Number of counts kept; rounded up to a power of two.
+	 */
+	public GroundingCountCache(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		keys   = new long[size];
+		counts = new long[size];
+		mask   = size - 1;
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/*
+	 * @param treeClause The clause as stored in the tree, used to recognize it cheaply.
+	 * @param query The clause whose groundings are counted, i.e., treeClause without its regression value.
+	 * @return The number of the query clause.
+	 */
+	public int getClauseId(Clause treeClause, Clause query) {
+		int bodySize = query.getLength();
+		ClauseId clauseId = clauseIds.get(treeClause);
+		if (clauseId == null || clauseId.length != bodySize) {
+			String text = query.toString();
+			Integer id = clauseIdsByText.get(text);
+			if (id == null) {
+				id = clauseIdsByText.size();
+				clauseIdsByText.put(text, id);
+			}
+			clauseId = new ClauseId(bodySize, id);
+			clauseIds.put(treeClause, clauseId);
+		}
+		return clauseId.id;
+	}
+
+	public int getExampleId(Literal example) {
+		Integer id = exampleIds.get(example);
+		if (id == null) {
+			id = exampleIds.size();
+			exampleIds.put(example, id);
+		}
+		return id;
+	}
+
+	/*
+	 * @return The cached count, or -1 if there is none.
+	 */
+	public long get(int clauseId, int exampleId) {
+		long key  = toKey(clauseId, exampleId);
+		int  slot = slotOf(key);
+		if (keys[slot] == key) {
+			hits++;
+			return counts[slot];
+		}
+		misses++;
+		return -1;
+	}
+
+	public void put(int clauseId, int exampleId, long count) {
+		long key  = toKey(clauseId, exampleId);
+		int  slot = slotOf(key);
+		if (keys[slot] != EMPTY && keys[slot] != key) {
+			evictions++;
+		}
+		keys[slot]   = key;
+		counts[slot] = count;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	private static long toKey(int clauseId, int exampleId) {
+		return ((long) clauseId << 32) | (exampleId & 0xffffffffL);
+	}
+
+	private int slotOf(long key) {
+		long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing, so consecutive ids spread over the table.
+		return (int) (h >>> 32) & mask;
+	}
+
+	private static class ClauseId {
+		final int length;
+		final int id;
+
+		ClauseId(int length, int id) {
+			this.length = length;
+			this.id     = id;
+		}
+	}
+}
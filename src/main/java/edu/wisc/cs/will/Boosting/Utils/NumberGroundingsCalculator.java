@@ -296,6 +296,15 @@ public class NumberGroundingsCalculator {
 		if (!disableTrivialGndgs) {
 			sortedPos = sortByVariables(posLiterals);
 		}
+		if (negLiterals.isEmpty()) {
+			// Only the number of proofs is needed, not their bindings.
+			try {
+				return groundings_prover.countProofs(sortedPos, Long.MAX_VALUE);
+			} catch (SearchInterrupted e) {
+				e.printStackTrace();
+				return 0;
+			}
+		}
 		((InitHornProofSpace) groundings_prover.initializer).loadNegatedConjunctiveQuery(sortedPos,
 					groundings_prover.open);
 		        
@@ -304,13 +313,15 @@ public class NumberGroundingsCalculator {
 		while(bl != null) {
 			
 			
-			 Collection<BindingList> negBLs = new ArrayList<>();
-			 negBLs.add(bl);
+			 List<WeightedBindingList> negBLs = new ArrayList<>();
+			 negBLs.add(new WeightedBindingList(bl, 1));
 				
-			for (Literal lit : negLiterals) {
-				negBLs = expandNegativeLiteralBindingList(lit, negBLs); 
+			for (int i = 0; i < negLiterals.size(); i++) {
+				negBLs = expandNegativeLiteralBindingList(negLiterals.get(i), negLiterals.subList(i + 1, negLiterals.size()), negBLs);
+			}
+			for (WeightedBindingList negBL : negBLs) {
+				counter = addCounts(counter, negBL.weight);
 			}
-			counter+= negBLs.size();
 
 			bl = getNextProof(groundings_prover);
 		}
@@ -350,11 +361,25 @@ public class NumberGroundingsCalculator {
 		return result;
 	}
 
-	private Collection<BindingList> expandNegativeLiteralBindingList(
-			Literal lit, Collection<BindingList> negBLs) {
-		Collection<BindingList> outBLs = new HashSet<>();
-		for (BindingList bl : negBLs) {
+	/*
+	 * Extends each binding list with the groundings of lit that are not facts.  Each binding list stands for weight of them,
+	 * so that when no later literal uses the variables lit binds, the groundings are only counted (see countGroundingsNotInFacts).
+	 */
+	private List<WeightedBindingList> expandNegativeLiteralBindingList(
+			Literal lit, List<Literal> laterLiterals, List<WeightedBindingList> negBLs) {
+		List<WeightedBindingList> outBLs = new ArrayList<>();
+		for (WeightedBindingList weightedBL : negBLs) {
+			BindingList bl = weightedBL.bindings;
 			Literal newLit = lit.applyTheta(bl);
+			if (!sharesVariables(newLit, laterLiterals)) {
+				long notInFacts = countGroundingsNotInFacts(newLit);
+				if (notInFacts >= 0) {
+					if (notInFacts > 0) {
+						outBLs.add(new WeightedBindingList(bl, multiplyCounts(weightedBL.weight, notInFacts)));
+					}
+					continue;
+				}
+			}
 			Collection<BindingList> thisLitBL = getAllPossibleGroundingsOf(newLit);
 			for (BindingList newBL : thisLitBL) {
 				Literal groundedLit = newLit.applyTheta(newBL);
@@ -363,20 +388,137 @@ public class NumberGroundingsCalculator {
 					!context.getClausebase().getPossibleMatchingFacts(groundedLit, null).iterator().hasNext()) {
 					BindingList addBL = new BindingList(newBL.collectBindingsInList());
 					addBL.addBindings(bl);
-					outBLs.add(addBL);
+					outBLs.add(new WeightedBindingList(addBL, weightedBL.weight));
 				}
 			}
 		}
 		return outBLs;
 		
 	}
-	
+
+	private boolean sharesVariables(Literal lit, List<Literal> otherLiterals) {
+		Collection<Variable> vars = lit.collectAllVariables();
+		if (vars == null || vars.isEmpty()) {
+			return false;
+		}
+		for (Literal other : otherLiterals) {
+			Collection<Variable> otherVars = other.collectAllVariables();
+			if (otherVars != null) {
+				for (Variable var : vars) {
+					if (otherVars.contains(var)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * The number of groundings getAllPossibleGroundingsOf(lit) returns that are not facts, computed as the number of all of
+	 * them less those that are facts.  Only the facts matching lit are looked at, so the groundings that are not facts are never listed.
+	 * Returns -1 if the facts cannot be matched this way (a variable in several arguments of lit, or an argument of lit or of
+	 * a fact that is neither a constant nor a variable), in which case the groundings have to be listed.
+	 */
+	private long countGroundingsNotInFacts(Literal lit) {
+		List<Integer> variablePositions = new ArrayList<>();
+		for (int i = 0; i < lit.numberArgs(); i++) {
+			Term arg = lit.getArgument(i);
+			if (!arg.isGrounded()) {
+				if (!(arg instanceof Variable) || lit.getArguments().indexOf(arg) != i) {
+					return -1;
+				}
+				variablePositions.add(i);
+			} else if (!(arg instanceof Constant)) {
+				return -1;
+			}
+		}
+		if (variablePositions.isEmpty()) {
+			return isaFact(lit) ? 0 : 1;
+		}
+		List<Term> variableArguments = new ArrayList<>();
+		List<Collection<Term>> rangeForArguments = getRangesOfNonGroundArguments(lit, variableArguments);
+		long allGroundings = 1;
+		for (Collection<Term> range : rangeForArguments) {
+			allGroundings = multiplyCounts(allGroundings, range.size());
+		}
+
+		// The groundings that are facts, as their constants in the arguments that are variables.  A fact may be listed more than once.
+		Set<List<Term>> groundingsInFacts = new HashSet<>();
+		Iterable<Literal> facts = context.getClausebase().getPossibleMatchingFacts(lit, null);
+		if (facts != null) {
+			for (Literal fact : facts) {
+				if (fact.numberArgs() != lit.numberArgs()) {
+					continue;
+				}
+				List<Term> grounding = new ArrayList<>(variablePositions.size());
+				boolean matches = true;
+				for (int i = 0; i < lit.numberArgs() && matches; i++) {
+					Term factArg = fact.getArgument(i);
+					if (!(factArg instanceof Constant)) {
+						return -1;
+					}
+					Term arg = lit.getArgument(i);
+					if (arg instanceof Constant) {
+						matches = (arg == factArg);
+					} else {
+						matches = rangeForArguments.get(grounding.size()).contains(factArg);
+						grounding.add(factArg);
+					}
+				}
+				if (matches) {
+					groundingsInFacts.add(grounding);
+				}
+			}
+		}
+		return allGroundings - groundingsInFacts.size();
+	}
+
+	// The counts of groundings are products of the sizes of the types, so check that they still fit in a long.
+	private static long multiplyCounts(long count1, long count2) {
+		try {
+			return Math.multiplyExact(count1, count2);
+		} catch (ArithmeticException e) {
+			Utils.error("The number of groundings (" + count1 + " times " + count2 + ") is too large to count.");
+			return Long.MAX_VALUE;
+		}
+	}
+
+	private static long addCounts(long count1, long count2) {
+		try {
+			return Math.addExact(count1, count2);
+		} catch (ArithmeticException e) {
+			Utils.error("The number of groundings (" + count1 + " plus " + count2 + ") is too large to count.");
+			return Long.MAX_VALUE;
+		}
+	}
+
 	private List<BindingList> getAllPossibleGroundingsOf(Literal lit) {
+		List<Term> variableArguments = new ArrayList<>();
+		List<Collection<Term>> rangeForArguments = getRangesOfNonGroundArguments(lit, variableArguments);
+		List<BindingList> bindings = new ArrayList<>();
+		if (variableArguments.isEmpty()) {
+			bindings.add(new BindingList());
+			return bindings;
+		}
+		
+		List<List<Term>> crossProd = Utils.computeCrossProduct(rangeForArguments);
+		
+		for (List<Term> oneGrounding : crossProd) {
+			BindingList bl = new BindingList();
+			for (int i = 0; i < oneGrounding.size(); i++) {
+				bl.addBinding((Variable)variableArguments.get(i), oneGrounding.get(i));
+			}
+			bindings.add(bl);
+		}
+		return bindings;
+	}
+
+	// The constants of the types of each argument of lit that is not ground, whose terms are added to variableArguments.
+	private List<Collection<Term>> getRangesOfNonGroundArguments(Literal lit, List<Term> variableArguments) {
 		PredicateName pName = lit.predicateName;
 		int index=-1;
 		List<Collection<Term>> rangeForArguments = new ArrayList<>();
-		List<Term> variableArguments = new ArrayList<>();
-		List<BindingList> bindings = new ArrayList<>();
 		for (Term arg : lit.getArguments()) {
 			index++;
 			if (!arg.isGrounded()) {
@@ -400,21 +542,18 @@ public class NumberGroundingsCalculator {
 				}
 			}
 		}
-		if (variableArguments.isEmpty()) {
-			bindings.add(new BindingList());
-			return bindings;
-		}
-		
-		List<List<Term>> crossProd = Utils.computeCrossProduct(rangeForArguments);
-		
-		for (List<Term> oneGrounding : crossProd) {
-			BindingList bl = new BindingList();
-			for (int i = 0; i < oneGrounding.size(); i++) {
-				bl.addBinding((Variable)variableArguments.get(i), oneGrounding.get(i));
-			}
-			bindings.add(bl);
+		return rangeForArguments;
+	}
+
+	// A binding list that stands for weight groundings.
+	private static class WeightedBindingList {
+		final BindingList bindings;
+		final long        weight;
+
+		WeightedBindingList(BindingList bindings, long weight) {
+			this.bindings = bindings;
+			this.weight   = weight;
 		}
-		return bindings;
 	}
 
 	private BindingList getNextProof(HornClauseProver prover2) {
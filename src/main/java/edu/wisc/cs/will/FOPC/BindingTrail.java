@@ -0,0 +1,123 @@
+package edu.wisc.cs.will.FOPC;
+
+import edu.wisc.cs.will.Utils.Utils;
+
+import java.util.Arrays;
+
+/*
+ * A binding store for unification that can be reused without allocating.
+ *
+ * Bindings are kept in two parallel arrays in the order they were made (the trail), so
+ * undoing everything since a mark is just resetting the size.  Lookups scan the trail, which
+ * is cheap since unifying two literals rarely binds more than a handful of variables.
+ * Call toBindingList() to get a BindingList with the same bindings once a unification succeeds.
+ *
+ * Not thread safe; each prover keeps its own.
+ */
+public class BindingTrail {
+
+	private Variable[] vars;
+	private Term[]     terms;
+	private int        size = 0;
+
+	public BindingTrail() {
+		this(16);
+	}
+	public BindingTrail(int initialCapacity) {
+		vars  = new Variable[initialCapacity];
+		terms = new Term[initialCapacity];
+	}
+
+	public int mark() {
+		return size;
+	}
+
+	// Drops every binding made since the mark was taken.
+	public void undo(int mark) {
+		for (int i = mark; i < size; i++) { vars[i] = null; terms[i] = null; }
+		size = mark;
+	}
+
+	public void clear() {
+		undo(0);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// Same as BindingList.getMapping(), i.e., non-recursive.
+	public Term getMapping(Variable var) {
+		for (int i = 0; i < size; i++) {
+			if (vars[i] == var) { return terms[i]; }
+		}
+		return null;
+	}
+
+	// Same as BindingList.lookup(), i.e., variables are looked up recursively.
+	public Term lookup(Variable var) {
+		Term result = getMapping(var);
+		if (result == null) { return null; }
+		if (result == var ) { return result; }
+		if (result instanceof Variable) {
+			Term result2 = lookup((Variable) result);
+			if (result2 == null) { return result; } { return result2; }
+		}
+		return result;
+	}
+
+	// Same rules as BindingList.addBindingFailSoftly().
+	boolean addBindingFailSoftly(Variable var, Term term) {
+		if (help_addBinding(var, term, false)) { return true; }
+		if (term instanceof Variable) { return help_addBinding((Variable) term, var, false); }
+		return false;
+	}
+	private boolean help_addBinding(Variable var, Term term, boolean errorIfProblem) {
+		Term oldAnswer = getMapping(var);
+		if (oldAnswer != null) {
+			if (oldAnswer == term) { return true; }
+			if (oldAnswer instanceof Variable) { help_addBinding((Variable) oldAnswer, term, true); return true; }
+			else if (term instanceof Variable) {
+				Variable v = (Variable) term;
+				if (getMapping(v) == null) {
+					push(v, oldAnswer);
+					return true;
+				}
+			}
+			if (errorIfProblem) {
+				Utils.error("Cannot addBinding(" + var + "," + term +") because '" + var + "' is already bound to '" + oldAnswer + "'.");
+			}
+			return false;
+		}
+		push(var, term);
+		return true;
+	}
+
+	private void push(Variable var, Term term) {
+		if (size == vars.length) {
+			vars  = Arrays.copyOf(vars,  size * 2);
+			terms = Arrays.copyOf(terms, size * 2);
+		}
+		vars[size]  = var;
+		terms[size] = term;
+		size++;
+	}
+
+	// Copies the current bindings into a new BindingList.
+	public BindingList toBindingList() {
+		BindingList result = new BindingList();
+		for (int i = 0; i < size; i++) {
+			result.theta.put(vars[i], terms[i]);
+		}
+		return result;
+	}
+
+	public String toString() {
+		StringBuilder stringBuilder = new StringBuilder("{");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) { stringBuilder.append(", "); }
+			stringBuilder.append(vars[i]).append("=").append(terms[i]);
+		}
+		return stringBuilder.append("}").toString();
+	}
+}
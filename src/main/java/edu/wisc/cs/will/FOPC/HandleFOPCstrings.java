@@ -6,6 +6,7 @@ import edu.wisc.cs.will.ResThmProver.VariantClauseAction;
 import edu.wisc.cs.will.Utils.Utils;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static edu.wisc.cs.will.ResThmProver.VariantClauseAction.WARN_AND_REMOVE_VARIANTS;
 import static edu.wisc.cs.will.Utils.MessageType.STRING_HANDLER_CREATION;
@@ -32,6 +33,8 @@ public final class HandleFOPCstrings {
 	private boolean ignoreCaseOfStringsOtherThanFirstChar = false; // If this is ever set, strange bugs can occur.
 	public  boolean cleanFunctionAndPredicateNames        = false; // Check for hyphens and spaces.  DO NOT SET UNTIL AFTER LIBRARIES ARE LOADED.
 	public  boolean keepQuoteMarks                        = false; // Set to true if quote marks on string constants should be preserved.  NOTE: if true, then strings with quote marks will NOT be cleaned regardless of any other setting.
+	public  boolean streamFacts                           = false; // Set to true to assert facts files as they are read (see StreamingFactLoader), rather than parsing the whole file first.
+	public  boolean useFactsSnapshot                      = false; // Set to true to read facts files from (and write them to) binary snapshots (see FactSnapshot).
 
 	public boolean printVariableCounters = false; // If set to true, then variables will have their counters printed.
 
@@ -62,7 +65,7 @@ public final class HandleFOPCstrings {
 	public final Map<Term,List<Type>>    constantToTypesMap;       // A given constant can have multiple types.  Record them here.  TODO 'wrap' this variable?
 	private final Map<Type,Set<Term>>     knownConstantsOfThisType; // Collection all constants of a given type.  Use a hash map for efficiency.
 	private   long varCounter             = 0; // Used to create new variable names that start with 'a', 'b', 'c', etc.
-	private   long overallCounter         = 0;
+	private final AtomicLong overallCounter = new AtomicLong(); // Atomic since parallel inference creates variables from several threads.
 	private   int  countOfSkolemFunctions = 0;
 
 	final Constant  trueIndicator;
@@ -861,10 +864,10 @@ public final class HandleFOPCstrings {
 
 	private Variable pushVariable(TypeSpec spec, String name) {
 		checkForValidVariableName(name);
-		if (name != null && name.length() > 0 && name.charAt(0) == '_') { return new Variable(this, name, overallCounter++, spec); } // Ala' YAP Prolog, variables that start with underscores are always unique.
+		if (name != null && name.length() > 0 && name.charAt(0) == '_') { return new Variable(this, name, overallCounter.getAndIncrement(), spec); } // Ala' YAP Prolog, variables that start with underscores are always unique.
 		Stack<Variable> varStack = variableHash.get(name);
 		if (varStack != null) {
-			Variable variable = new Variable(this, name, overallCounter++, spec);
+			Variable variable = new Variable(this, name, overallCounter.getAndIncrement(), spec);
 			varStack.push(variable);
 			return variable;
 		}
@@ -898,7 +901,7 @@ public final class HandleFOPCstrings {
 		return s.applyTheta(bl.theta);
 	}
 
-	BindingList renameAllVariables(Collection<Variable> vars, AllOfFOPC owner) { // If owner != null, variables that only appear once are renamed to "_";
+	synchronized BindingList renameAllVariables(Collection<Variable> vars, AllOfFOPC owner) { // If owner != null, variables that only appear once are renamed to "_".  Synchronized since clauses may be printed from several threads.
 		if (vars == null) { return null; }
 		BindingList bl = new BindingList();
 		resetVarCounters();
@@ -953,7 +956,7 @@ public final class HandleFOPCstrings {
 	}
 
 	public Variable getNewUnamedVariable() {
-		return new Variable(this, null, overallCounter++, null, true); // These do not need to be hashed.
+		return new Variable(this, null, overallCounter.getAndIncrement(), null, true); // These do not need to be hashed.
 	}
 	public Variable getNewNamedGeneratedVariable() {
 		return getNewGeneratedVariable(false);
@@ -969,7 +972,7 @@ public final class HandleFOPCstrings {
 		}
 		checkForValidVariableName(name);
 
-		Variable        variable = new Variable(this, name, overallCounter++, spec, generatedVar);
+		Variable        variable = new Variable(this, name, overallCounter.getAndIncrement(), spec, generatedVar);
 		Stack<Variable> stack    = new Stack<>();
 		stack.push(variable);
 
@@ -33,10 +33,12 @@ public abstract class Sentence extends AllOfFOPC implements Serializable {
 	}
 
 	public Sentence copyAndRenameVariables() {
-		stringHandler.pushVariableHash();
-		Sentence result = copy2();
-		stringHandler.popVariableHash();
-		return result;
+		synchronized (stringHandler) { // The variable hash is shared, and provers on other threads may also be renaming.
+			stringHandler.pushVariableHash();
+			Sentence result = copy2();
+			stringHandler.popVariableHash();
+			return result;
+		}
 	}
 
 	public abstract Sentence copy(boolean recursiveCopy);
@@ -120,6 +120,81 @@ public class Unifier extends AllOfFOPC implements Serializable {
 		}
 	}
 
+	// The same unification as above, but the bindings go onto a trail instead of into a fresh BindingList.
+	// On failure, everything bound since the call is undone, so the prover can reuse one trail for all candidate clauses.
+	public boolean unify(Literal lit1, Literal lit2, BindingTrail trail) {
+		if (lit1.predicateName == lit2.predicateName && lit1.numberArgs() == lit2.numberArgs()) {
+			int mark = trail.mark();
+			if (unify(lit1.getArguments(), lit2.getArguments(), trail)) { return true; }
+			trail.undo(mark);
+		}
+		return false;
+	}
+
+	private boolean unify(List<Term> args1, List<Term> args2, BindingTrail trail) {
+		if (args1 == null) { return true; }
+		int count = args1.size();
+		for(int index = 0; index < count; index++) {
+			Term term1 = args1.get(index);
+			Term term2 = args2.get(index);
+
+			if (term1 != term2 && term1 instanceof Constant && term2 instanceof Constant) {
+				return false;
+			}
+		}
+
+		for(int index = 0; index < count; index++) {
+			if (!unify(args1.get(index), args2.get(index), trail)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean unify(Term term1, Term term2, BindingTrail trail) {
+		if (term1 instanceof Constant && term2 instanceof Constant) {
+			return term1 == term2;
+		}
+		else if (term1 instanceof Variable) {
+			return unifyVariable((Variable) term1, term2, trail);
+		}
+		else if (term2 instanceof Variable) {
+			return unifyVariable((Variable) term2, term1, trail);
+		}
+		else if (term1 instanceof Function && term2 instanceof Function) {
+			Function f1 = ((Function) term1);
+			Function f2 = ((Function) term2);
+
+			return f1.functionName == f2.functionName && f1.numberArgs() == f2.numberArgs() && unify(f1.getArguments(), f2.getArguments(), trail);
+		}
+		else {
+			return false;
+		}
+	}
+
+	private boolean unifyVariable(Variable var, Term term, BindingTrail trail) {
+		Term lookedupVar  = var;
+		Term lookedupTerm = term;
+		Term temp_lookedupVar = trail.lookup(var);
+
+		if (temp_lookedupVar != null) { lookedupVar = temp_lookedupVar; }
+		if (term instanceof Variable) {
+			Term temp_lookedupTerm = trail.lookup((Variable) term);
+
+			if (temp_lookedupTerm != null) { lookedupTerm =  temp_lookedupTerm; }
+		}
+
+		if ((var != null && !var.equals(lookedupVar)) || (term != null &&!term.equals(lookedupTerm))) {
+			return unify(lookedupVar, lookedupTerm, trail);
+		}
+		else if (var != null && var.equals(term)) {
+			return true;
+		}
+		else {
+			return trail.addBindingFailSoftly(var, term);
+		}
+	}
+
 	public String toPrettyString(String newLineStarter, int precedenceOfCaller, BindingList bindingList) {
 		return toString(precedenceOfCaller, bindingList);
 	}
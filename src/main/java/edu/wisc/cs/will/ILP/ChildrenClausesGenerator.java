@@ -359,7 +359,7 @@ public class ChildrenClausesGenerator extends ChildrenNodeGenerator {
 								SingleClauseNode newNode = new SingleClauseNode(parent, pred);
 
 								// The results will appear here.
-								thisTask.collectedConstantBindings = null;
+								thisTask.clearCollectedConstantBindings();
 								List<Variable> listOfVars4constants = collectVarsPresent(args, typesOfNewConstants);
 
 								// Provide the arguments that are to be bound to constants.
@@ -371,9 +371,9 @@ public class ChildrenClausesGenerator extends ChildrenNodeGenerator {
 								newNodeForConstants.acceptableCoverageOnPosSeeds();
 
 								// If no bindings, then no constants exist so this literal cannot be added.
-								if (thisTask.collectedConstantBindings != null) {
+								if (thisTask.getCollectedConstantBindings() != null) {
 									// Note: we may get MANY sets of constants here.  Elsewhere there is a limit of the first 1000, which hopefully is never reached.
-									List<List<Term>> allConstantsBindings = thisTask.collectedConstantBindings;
+									List<List<Term>> allConstantsBindings = thisTask.getCollectedConstantBindings();
 									if (allConstantsBindings.size() > 100) {
 										allConstantsBindings = Utils.reduceToThisSizeByRandomlyDiscardingItemsInPlace(allConstantsBindings, 100);
 									}
@@ -412,7 +412,7 @@ public class ChildrenClausesGenerator extends ChildrenNodeGenerator {
 										}
 										allArgPossibilities2.add(args3);
 									}
-									thisTask.collectedConstantBindings = null;  // Might as well return these memory cells now.
+									thisTask.clearCollectedConstantBindings();  // Might as well return these memory cells now.
 								}
 							} else {
 								allArgPossibilities2.add(args);
@@ -609,6 +609,7 @@ public class ChildrenClausesGenerator extends ChildrenNodeGenerator {
 			}
 		}
 
+		thisTask.computeCoverageOfChildren(children); // Only does anything if scoring with more than one thread.
 		return children;
 	}
 	
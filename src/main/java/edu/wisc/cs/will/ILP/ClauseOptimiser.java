@@ -1,13 +1,18 @@
 package edu.wisc.cs.will.ILP;
 
+import edu.wisc.cs.will.FOPC.Constant;
 import edu.wisc.cs.will.FOPC.Literal;
+import edu.wisc.cs.will.FOPC.Term;
 import edu.wisc.cs.will.FOPC.Variable;
+import edu.wisc.cs.will.ResThmProver.FactStatistics;
 import edu.wisc.cs.will.Utils.Utils;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /*
  * @author vsc
@@ -30,6 +35,103 @@ public class ClauseOptimiser {
         }
     }
 
+    /**
+     * Reorders a body so that the literals expected to match the fewest facts are proven first, which keeps down the
+     * resolutions needed to prove it.  At each step, the literal with the fewest expected matches given the variables bound
+     * so far is taken (a greedy join order).  A literal only goes once the variables that were bound when it was added to the
+     * clause are bound, i.e., its mode's input arguments.  Literals that are not only defined by facts (e.g., procedurally
+     * defined ones), or that have functions as arguments, stay where they are, and no literal is moved past them.
+     * Ties keep the original order.
+     */
+    List<Literal> reorderLiterals(Literal head, List<Literal> body, FactStatistics statistics) {
+        if (body == null || body.size() < 2) {
+            return body;
+        }
+        Set<Variable> bound = Collections.newSetFromMap(new IdentityHashMap<>());
+        addVariables(head, bound);
+
+        List<Literal> result = new ArrayList<>(body.size());
+        int start = 0;
+        while (start < body.size()) {
+            int end = start;
+            while (end < body.size() && canBeReordered(body.get(end), statistics)) {
+                end++;
+            }
+            reorderSegment(body.subList(start, end), bound, statistics, result);
+            if (end < body.size()) {
+                result.add(body.get(end));
+                addVariables(body.get(end), bound);
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+
+    private void reorderSegment(List<Literal> segment, Set<Variable> bound, FactStatistics statistics, List<Literal> result) {
+        // The variables of each literal that are bound before it in the original order.
+        List<Set<Variable>> inputs = new ArrayList<>(segment.size());
+        Set<Variable> boundInOriginalOrder = Collections.newSetFromMap(new IdentityHashMap<>());
+        boundInOriginalOrder.addAll(bound);
+        for (Literal lit : segment) {
+            Set<Variable> input = Collections.newSetFromMap(new IdentityHashMap<>());
+            Collection<Variable> litvars = lit.collectAllVariables();
+            if (litvars != null) {
+                for (Variable v : litvars) {
+                    if (boundInOriginalOrder.contains(v)) {
+                        input.add(v);
+                    }
+                }
+            }
+            inputs.add(input);
+            addVariables(lit, boundInOriginalOrder);
+        }
+
+        boolean[] placed = new boolean[segment.size()];
+        for (int count = 0; count < segment.size(); count++) {
+            int    best        = -1;
+            double bestMatches = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < segment.size(); i++) {
+                if (placed[i] || !bound.containsAll(inputs.get(i))) {
+                    continue;
+                }
+                double matches = statistics.estimateMatches(segment.get(i), getBoundArguments(segment.get(i), bound));
+                if (best < 0 || matches < bestMatches) {
+                    best        = i;
+                    bestMatches = matches;
+                }
+            }
+            placed[best] = true; // The first literal not yet placed can always go, since all those before it have.
+            result.add(segment.get(best));
+            addVariables(segment.get(best), bound);
+        }
+    }
+
+    private boolean canBeReordered(Literal lit, FactStatistics statistics) {
+        for (int i = 0; i < lit.numberArgs(); i++) {
+            Term arg = lit.getArgument(i);
+            if (!(arg instanceof Variable) && !(arg instanceof Constant)) {
+                return false;
+            }
+        }
+        return !Double.isNaN(statistics.estimateMatches(lit, new boolean[lit.numberArgs()]));
+    }
+
+    private boolean[] getBoundArguments(Literal lit, Set<Variable> bound) {
+        boolean[] result = new boolean[lit.numberArgs()];
+        for (int i = 0; i < result.length; i++) {
+            Term arg = lit.getArgument(i);
+            result[i] = (arg instanceof Constant || bound.contains(arg));
+        }
+        return result;
+    }
+
+    private void addVariables(Literal lit, Set<Variable> variables) {
+        Collection<Variable> litvars = lit.collectAllVariables();
+        if (litvars != null) {
+            variables.addAll(litvars);
+        }
+    }
+
     /**
      * Constructs a new optimised clause.
      */
@@ -0,0 +1,113 @@
+package edu.wisc.cs.will.ILP;
+
+import edu.wisc.cs.will.FOPC.Literal;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Remembers which examples a clause was proven to cover, so that later searches (e.g., for the later trees when boosting,
+ * where only the regression values of the examples change) do not prove them again.
+ *
+ * Clauses are keyed on their literals in order (see VisitedClauses.createOrderedClauseKey) and examples on the dense ids
+ * from LearnOneClause.getExampleId.  All entries are discarded once the facts change (see HornClausebase.getFactsVersion).
+ */
+class CoverageCache {
+	private final VisitedClauses encoder; // Holds the ids of the symbols in the keys.
+	private final Map<VisitedClauses.ClauseKey,Entry> entries; // In least-recently-used order, so the oldest can be evicted once this is full.
+	private long factsVersion = -1;
+
+	CoverageCache(VisitedClauses encoder, final int maxSize) {
+		this.encoder = encoder;
+		this.entries = new LinkedHashMap<VisitedClauses.ClauseKey,Entry>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<VisitedClauses.ClauseKey,Entry> eldest) {
+				return maxSize > 0 && size() > maxSize;
+			}
+		};
+	}
+
+	VisitedClauses.ClauseKey createKey(Literal head, List<Literal> body) {
+		return encoder.createOrderedClauseKey(head, body);
+	}
+
+	// Returns null if nothing is known about this clause under the current facts.
+	synchronized Entry lookup(VisitedClauses.ClauseKey key, long currentFactsVersion) {
+		if (currentFactsVersion != factsVersion) {
+			entries.clear();
+			factsVersion = currentFactsVersion;
+		}
+		return entries.get(key);
+	}
+
+	// Outcomes proven under other facts than the current ones are dropped.
+	synchronized void store(VisitedClauses.ClauseKey key, Outcomes outcomes) {
+		if (outcomes.factsVersion != factsVersion || outcomes.proven.isEmpty()) { return; }
+		Entry old = entries.get(key);
+		entries.put(key, (old == null ? new Entry(outcomes.proven, outcomes.provable, outcomes.maxNodesCreated) : old.merge(outcomes)));
+	}
+
+	public synchronized String toString() {
+		return "%     The coverage cache holds " + entries.size() + " clauses.\n";
+	}
+
+	/*
+	 * What is known about one clause.  Never changed once stored, so the workers scoring clauses in parallel can read it without locking.
+	 */
+	static final class Entry {
+		private final BitSet proven;          // The examples that have been proven or disproven.
+		private final BitSet provable;        // The subset of those that the clause covers.
+		private final int    maxNodesCreated; // The most nodes the prover created for any one of them.
+
+		private Entry(BitSet proven, BitSet provable, int maxNodesCreated) {
+			this.proven          = proven;
+			this.provable        = provable;
+			this.maxNodesCreated = maxNodesCreated;
+		}
+
+		private Entry merge(Outcomes outcomes) {
+			BitSet newProven   = (BitSet) proven.clone();
+			BitSet newProvable = (BitSet) provable.clone();
+			newProven.or(  outcomes.proven);
+			newProvable.or(outcomes.provable);
+			return new Entry(newProven, newProvable, Math.max(maxNodesCreated, outcomes.maxNodesCreated));
+		}
+
+		boolean isKnown(int exampleId) {
+			return proven.get(exampleId);
+		}
+
+		boolean isProvable(int exampleId) {
+			return provable.get(exampleId);
+		}
+
+		// True if proving this many examples again could not have created more than maxResolutions nodes.
+		boolean withinResolutionLimit(int numberOfExamples, long maxResolutions) {
+			return (long) numberOfExamples * maxNodesCreated <= maxResolutions;
+		}
+	}
+
+	/*
+	 * The examples proven while computing the coverage of one clause, to be stored once the computation is done.
+	 */
+	static final class Outcomes {
+		private final long   factsVersion;
+		private final BitSet proven   = new BitSet();
+		private final BitSet provable = new BitSet();
+		private int          maxNodesCreated = 0;
+
+		Outcomes(long factsVersion) {
+			this.factsVersion = factsVersion;
+		}
+
+		void record(int exampleId, boolean isProvable, long nodesCreated) {
+			proven.set(exampleId);
+			if (isProvable) { provable.set(exampleId); }
+			maxNodesCreated = (int) Math.max(maxNodesCreated, Math.min(Integer.MAX_VALUE, nodesCreated));
+		}
+	}
+}
@@ -50,6 +50,10 @@ public class Gleaner extends SearchMonitor implements Serializable {
 		bestScoreRegardless   = Double.NEGATIVE_INFINITY;
 		bestNodeRegardless    = null;
 	}
+
+	double getBestScore() {
+		return bestScore;
+	}
 		
 	// The general-purpose search code calls this when each node is scored.
 	// Return FALSE if this node should NOT be added to OPEN, otherwise return true.
@@ -22,15 +22,21 @@ import edu.wisc.cs.will.DataSetUtils.Example;
 import edu.wisc.cs.will.DataSetUtils.RegressionExample;
 import edu.wisc.cs.will.FOPC.*;
 import edu.wisc.cs.will.ResThmProver.HornClauseContext;
+import edu.wisc.cs.will.ResThmProver.HornClausebase;
 import edu.wisc.cs.will.Utils.*;
 import edu.wisc.cs.will.Utils.condor.CondorFile;
 import edu.wisc.cs.will.Utils.condor.CondorFileReader;
+import edu.wisc.cs.will.stdAIsearch.BestFirstSearch;
 import edu.wisc.cs.will.stdAIsearch.SearchInterrupted;
 import edu.wisc.cs.will.stdAIsearch.SearchMonitor;
 import edu.wisc.cs.will.stdAIsearch.SearchStrategy;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /*
@@ -103,6 +109,7 @@ public class ILPouterLoop {
     private int            maxTreeDepthInLiterals              = 25; // This is the sum of literals at all the nodes in a path from root to leaf, not just the number of interior nodes.
     private int			   maxTreeDepthInInteriorNodes         =  5; // Maximum height/depth of the tree in terms of interior nodes in the tree. NOTE: One node in the tree may have multiple literals.
     private boolean		   learnMLNTheory					   = false;
+    private int            numberOfParallelTreeNodes           =  1; // If more than one, up to this many queued tree nodes are learned at once.  See setNumberOfParallelTreeNodes().
     ///////////////////////////////////////////////////////////////////
 
     // All of the fields below are now in the ILPouterLoopState object.
@@ -319,37 +326,20 @@ public class ILPouterLoop {
 
             // TODO(@hayesall): `minFractionOfPosCoveredToStop` is always `0.9`, this might be an interesting parameter to tune, particularly with more boosted trees.
             double minFractionOfPosCoveredToStop = 0.90;
-            while (!stoppedBecauseNoMoreSeedsToTry && !stoppedBecauseTreeStructuredQueueEmpty &&
-                    getNumberOfLearnedClauses() < maxNumberOfClauses &&
-                    getNumberOfCycles() < maxNumberOfCycles &&
-                    getFractionOfPosCovered() < minFractionOfPosCoveredToStop &&
-                    getTotal_nodesConsidered() < max_total_nodesExpanded &&
-                    getTotal_nodesCreated() < max_total_nodesCreated &&
-                    getClockTimeUsedInMillisec() < getMaximumClockTimeInMillisec()
-                   ) {
+            while (!stoppedBecauseNoMoreSeedsToTry && !stoppedBecauseTreeStructuredQueueEmpty && canContinueOuterLoop(minFractionOfPosCoveredToStop)) {
 
                 start = System.currentTimeMillis();
                 if (learningTreeStructuredTheory) {
-                    innerLoopTask.resetAllForReal(); // Clear OPEN and CLOSED (and other things).
-                    outerLoopState.setCurrentTreeLearningTask(outerLoopState.popQueueOfTreeStructuredLearningTasks()); // Set in outerloopState class instead of here?
-                    savedBestNode = outerLoopState.getCurrentTreeLearningTask().getCreatingNode();
-                    clearSeedPosExamplesUsed();
-                    clearSeedNegExamplesUsed();
-                    innerLoopTask.setPosExamples(   outerLoopState.getCurrentTreeLearningTask().getPosExamples()); // Need to do these AFTER the setMinPosCoverage since that might be a fraction.
-                    innerLoopTask.setNegExamples(   outerLoopState.getCurrentTreeLearningTask().getNegExamples());
-                    innerLoopTask.setMinPosCoverage(outerLoopState.getOverallMinPosWeight()); // Even when we have fewer examples, we want the minPosWeight to be that from the first call.
-                    
-                    if (savedBestNode != null) { // Have to recompute this because the examples have changed.
-                        Utils.println("\n% Working on expanding this node: '" + savedBestNode + "'");
-                        ((LearnOneClause)savedBestNode.task).currentStartingNode = savedBestNode.getStartingNodeForReset(); // Only setting this while resetting the score for savedBestNode.
-                        savedBestNode.resetAssumingAllExamplesCovered();
-                        savedBestNode.setDontAddMeToOPEN(false);
-                        innerLoopTask.scorer.scoreThisNode(savedBestNode);
-                        setMaxBodyLength(Math.min(maxTreeDepthInLiterals, savedBestNode.bodyLength() + maxNumberOfLiteralsAtAnInteriorNode));
-                    } else {
-                        setMaxBodyLength(Math.min(maxTreeDepthInLiterals, maxNumberOfLiteralsAtAnInteriorNode));
+                    List<TreeStructuredLearningTask> tasksToLearnAtOnce = collectTreeNodesToLearnAtOnce();
+                    if (tasksToLearnAtOnce.size() > 1) {
+                        Stopwatch stopwatch = new Stopwatch();
+                        stoppedBecauseNoMoreSeedsToTry = learnTreeNodesAtOnce(tasksToLearnAtOnce, minFractionOfPosCoveredToStop, start);
+                        setClockTimeUsedInMillisec(getClockTimeUsedInMillisec() + stopwatch.getTotalTimeInMilliseconds());
+                        stoppedBecauseTreeStructuredQueueEmpty = outerLoopState.queueOfTreeStructuredLearningTasksIsEmpty();
+                        continue;
                     }
-					innerLoopTask.currentStartingNode = savedBestNode;
+                    outerLoopState.setCurrentTreeLearningTask(outerLoopState.popQueueOfTreeStructuredLearningTasks()); // Set in outerloopState class instead of here?
+                    savedBestNode = setUpTreeNodeSearch(outerLoopState.getCurrentTreeLearningTask());
                 }
 
                 setNumberOfCycles( getNumberOfCycles() + 1 );
@@ -357,314 +347,20 @@ public class ILPouterLoop {
                 Stopwatch stopwatch = new Stopwatch();
 
                 // WE NEED TO PICK A NEW SET OF SEEDS EACH TIME SINCE SEEDS CHOSEN AT THE ROOT WILL FOLLOW VARIOUS PATHS THROUGH THE TREE.  if (!foundUncoveredPosSeed || !learningTreeStructuredTheory) { // If tree-structured task, we want to use the same seeds for the full tree (otherwise maybe no [new] seeds reach the current interior node).
-				// Specify the specific seeds to use if requested.
-				foundUncoveredPosSeed = false;
-				if (numberPosSeedsToUse > 1 || numberNegSeedsToUse > 0) { foundUncoveredPosSeed = collectMultipleSeeds(); }
-
-                // Otherwise randomly select one positive seed be used.
-				int tries = 0;
-				while (!foundUncoveredPosSeed && tries++ < 1000) { // 1000 might be low if a very large number of pos ex's, but if hard to find, grabbing seeds in numerical order (next step) should be fine.
-					int index = Utils.random0toNminus1(getNumberOfPosExamples());
-					foundUncoveredPosSeed = isaGoodPosSeed(index);
-				}
-				// If still no luck, walk through in order until an uncovered seed is found. Should always be able to find an uncovered seed because we know fraction covered less than 1.0 ...
-				if (!foundUncoveredPosSeed) {
-					int randomOffset = Utils.random0toNminus1(getNumberOfPosExamples());  // Start at a random location in the array, and do a "wrap around" walk through the values.
-					for (int index = 0; index < getNumberOfPosExamples(); index++) {
-						int indexToUse = (randomOffset + index)	% getNumberOfPosExamples();
-						foundUncoveredPosSeed = isaGoodPosSeed(indexToUse);
-                        if (foundUncoveredPosSeed) { break; }
-					}
-				}
+				foundUncoveredPosSeed = selectSeeds();
 
 				if (!foundUncoveredPosSeed) { // Since there is a minimum coverage on the best clause, some seeds won't be covered and we might run out of seeds before meeting some other termination criterion.
                     stoppedBecauseNoMoreSeedsToTry = true;
                 } else {
                     // Do the ILP inner loop.
                     //    First clear Gleaner and set up a new Gleaner set (i.e., will keep best rules PER CYCLE).
-                    Gleaner theGleaner = (Gleaner) innerLoopTask.searchMonitor;
-                    theGleaner.clearBestNode();
-
-                    innerLoopTask.callerName = "outerLoop #" + getNumberOfCycles() + getFoldInfoString();
-                    theGleaner.setCurrentMarker(innerLoopTask.callerName);
-                    if (!learningTreeStructuredTheory) { innerLoopTask.stringHandler.resetVarCounters(); } // When learning a tree-structured theory, we need a consistent set of variables.
-                    innerLoopTask.checkIfAcceptableClausePossible();
-
-                    if (getMaximumClockTimeInMillisec() < Long.MAX_VALUE) {
-                        double denominator = 1.0; // If there is a time limit, leave some for later cycles, but allow at least 25% of the time for this one.
-                        if (maxNumberOfCycles > 1 && getMaximumClockTimeInMillisec() != Long.MAX_VALUE) {
-                            denominator = Math.max(1.0, Math.min(4.0, maxNumberOfCycles / (1 + getNumberOfCycles())));
-                        }
-                        long innerLoopTimeLimit = (long) (getTimeAvailableInMillisec() / denominator);
-                        innerLoopTask.setMaximumClockTimePerIterationInMillisec(innerLoopTimeLimit);
-                    } else {
-                        innerLoopTask.setMaximumClockTimePerIterationInMillisec(getMaximumClockTimeInMillisec());
-                    }
-
-                    ((ChildrenClausesGenerator) innerLoopTask.childrenGenerator).countOfPruningDueToVariantChildren = 0;
+                    ((Gleaner) innerLoopTask.searchMonitor).clearBestNode();
+                    setUpInnerLoopSearch(getNumberOfCycles());
 
                     // If we are learning a tree-structured theory, then we continue where we left off.
                     innerLoopTask.performSearch(learningTreeStructuredTheory ? savedBestNode : null);
 
-                    // Want limits on (and statistics about) the full ILP search as well.
-                    setTotal_nodesConsidered(getTotal_nodesConsidered() + innerLoopTask.getNodesConsidered());
-                    setTotal_nodesCreated(   getTotal_nodesCreated()    + innerLoopTask.getNodesCreated());
-                    setTotal_nodesNotAddedToOPENsinceMaxScoreTooLow(    getTotal_nodesNotAddedToOPENsinceMaxScoreTooLow()     + innerLoopTask.nodesNotAddedToOPENsinceMaxScoreTooLow);
-                    setTotal_nodesRemovedFromOPENsinceMaxScoreNowTooLow(getTotal_nodesRemovedFromOPENsinceMaxScoreNowTooLow() + innerLoopTask.nodesRemovedFromOPENsinceMaxScoreNowTooLow);
-                    setTotal_countOfPruningDueToVariantChildren(getTotal_countOfPruningDueToVariantChildren() + ((ChildrenClausesGenerator) innerLoopTask.childrenGenerator).countOfPruningDueToVariantChildren);
-                    // Report what happened (TODO have an output 'results' file).
-
-                    // TODO(@hayesall): `SingleClauseNode bestNode = theGleaner.bestNode;`
-                    SingleClauseNode bestNode = theGleaner.bestNode;
-                    
-                    Utils.println("\n% The best node found: " + bestNode); // TEMP
-                    
-                    if (bestNode != null && bestNode != savedBestNode) { // Also need to check to make sure we didn't simply return the previous root when doing tree-structured learning.
-                        Utils.println("\n% The best node found: " + bestNode);
-                        List<Example> coveredPosExamplesThisCycle = innerLoopTask.collectPosExamplesCovered(bestNode);
-                        List<Example> coveredNegExamplesThisCycle = innerLoopTask.collectNegExamplesCovered(bestNode);
-                        int newlyCoveredPosExamples = 0;
-                        int newlyCoveredNegExamples = 0;
-                        int coveredPosExamplesCount = Utils.getSizeSafely(coveredPosExamplesThisCycle);
-                        int coveredNegExamplesCount = Utils.getSizeSafely(coveredNegExamplesThisCycle);
-
-                        if (coveredPosExamplesCount > 0) {
-                            for (Example ex : coveredPosExamplesThisCycle) {
-                                // Utils.println("   covered pos: " + ex);
-                                if (!getCoveredPosExamples().contains(ex)) {
-                                    if (!learningTreeStructuredTheory) { // When learning trees we don't need to count coverings by possibly overlapping rules.
-                                        getCoveredPosExamples().add(ex);
-                                        setNumberOfPosExamplesCovered(getNumberOfPosExamplesCovered() + 1); // An awkward way to increment ...
-                                    }
-                                    newlyCoveredPosExamples++;
-                                }
-                            }
-                        }
-                        if (coveredNegExamplesCount > 0) {
-                            for (Example ex : coveredNegExamplesThisCycle) {
-                                // Utils.println(" covered neg: " + ex);
-                                if (!getCoveredNegExamples().contains(ex)) {
-                                    if (!learningTreeStructuredTheory) {  // See comment above.
-                                        getCoveredNegExamples().add(ex);
-                                        setNumberOfNegExamplesCovered(getNumberOfNegExamplesCovered() + 1); // An awkward way to increment ...
-                                    }
-                                    newlyCoveredNegExamples++;
-                                }
-                            }
-                        }
-
-                        // The following line of code allowed covered examples to be reweighted on the fly during theory search.
-                        //
-                        // While an interesting idea, there are all sorts of problems the way you implemented it
-                        // (even in the old map-based weight implementation), the biggest being that you never retain
-                        // their original weights, so post-learning scoring would have been wacky.  Covered examples
-                        // would have been down weighted in the final coverage scores...this could happen on both
-                        // negative and positive examples, so it would be hard to say exactly what the effect would
-                        // be, but it wouldn't have been the expected final score.
-                        //
-                        // I am commenting it out for now, but we can re-implement later if desired.
-                        // -Trevor
-
-                        if (coveredPosExamplesCount < 1) {
-                            Utils.warning("Have a bestNode that covers no positive examples.  That shouldn't happen.  Best node = " + bestNode);
-                        }
-                        setNumberOfLearnedClauses(getNumberOfLearnedClauses() + 1);
-                        Clause newClause = new LearnedClause(innerLoopTask, bestNode, getNumberOfCycles(),
-                                                             getNumberOfPosExamplesCovered(), coveredPosExamplesCount, newlyCoveredPosExamples,
-                                                             getNumberOfPosExamples(), getNumberOfNegExamplesCovered(),  coveredNegExamplesCount,
-                                                             newlyCoveredNegExamples, getNumberOfNegExamples());
-
-                        if (learningTreeStructuredTheory) {
-
-                            TreeStructuredLearningTask       currentTask  = outerLoopState.getCurrentTreeLearningTask();
-                            TreeStructuredTheoryInteriorNode interiorNode = currentTask.getNode();
-                            interiorNode.setSearchNodeThatLearnedTheClause(bestNode); // Be sure to set this before the next call.
-                            interiorNode.setNodeTestFromFullNodeTest(newClause);
-                            // Set the task used to learn this node.
-                            bestNode.setStartingNodeForReset(innerLoopTask.currentStartingNode);
-							Utils.println("\n% Expanding node at Level " + interiorNode.getLevel() + " with score = " + Utils.truncate(currentTask.getScore(), 3) + ".\n% Will extend: " + interiorNode.getSearchNodeThatLearnedTheClause());
-
-							boolean atMaxDepth = (interiorNode.getLevel() >= maxTreeDepthInInteriorNodes);
-                            
-                            TreeStructuredTheoryNode trueBranch;
-                            TreeStructuredTheoryNode falseBranch;
-                            boolean goodEnoughFitTrueBranch  = atMaxDepth || bestNode.acceptableScoreTrueBranch( outerLoopState.maxAcceptableNodeScoreToStop);
-                            boolean goodEnoughFitFalseBranch = atMaxDepth || bestNode.acceptableScoreFalseBranch(outerLoopState.maxAcceptableNodeScoreToStop);
-
-                            List<Example> trueBranchPosExamples  = null;
-                            List<Example> falseBranchPosExamples = null;
-                            List<Example> trueBranchNegExamples  = null;
-                            List<Example> falseBranchNegExamples = null;
-
-                            double wgtedCountTrueBranchPos  = 0.0;
-                            double wgtedCountTrueBranchNeg  = 0.0;
-                            double wgtedCountFalseBranchPos = 0.0;
-                            double wgtedCountFalseBranchNeg = 0.0;
-
-                            List<Example> posEx = currentTask.getPosExamples();
-                            List<Example> negEx = currentTask.getNegExamples();
-
-                            // Since we are collecting 'extra labels' for leaf nodes, we need always to collect examples.
-                            if (posEx != null) {
-                                trueBranchPosExamples  = new ArrayList<>(8);
-                                falseBranchPosExamples = new ArrayList<>(8);
-                                for (Example ex : posEx) {
-                                    if (bestNode.matchesThisExample(ex, true)) {
-										trueBranchPosExamples.add(ex);
-										wgtedCountTrueBranchPos += ex.getWeightOnExample();
-                                    } else {
-										falseBranchPosExamples.add(ex);
-										wgtedCountFalseBranchPos += ex.getWeightOnExample();
-                                    }
-                                }
-                            }
-                            // Since we are collecting 'extra labels' for leaf nodes, we need always to collect examples.
-                            if (negEx != null) {
-                                trueBranchNegExamples  = new ArrayList<>(8);
-                                falseBranchNegExamples = new ArrayList<>(8);
-                                for (Example ex : negEx) {
-                                    if (bestNode.matchesThisExample(ex, false)) {
-										trueBranchNegExamples.add(ex);
-										wgtedCountTrueBranchNeg += ex.getWeightOnExample();
-                                    } else {
-										falseBranchNegExamples.add(ex);
-										wgtedCountFalseBranchNeg += ex.getWeightOnExample();
-                                    }
-                                }
-                            }
-
-							double meanTrue;
-
-                            if (learnMLNTheory) {
-                            	meanTrue = bestNode.mlnRegressionForTrue();
-                            } else {
-                                meanTrue = bestNode.meanIfTrue();
-                            }
-
-                            // We use 2.1 * getMinPosCoverage() here since we assume each branch needs to have getMinPosCoverage() (could get by with 2, but then would need a perfect split).
-                            // Since getLength() includes the head, we see if current length EXCEEDS the maxTreeDepthInLiterals.
-                            // Since 'maxTreeDepthInLiterals' includes bridgers, count them as well.
-                            if (atMaxDepth) { Utils.println("%   Creating a TRUE-branch and FALSE-branch leaves because level = "  + interiorNode.getLevel() + " >= " + maxTreeDepthInInteriorNodes); }
-							// If false, then sort by TOTAL score of the examples reaching that node.
-                            if (atMaxDepth || goodEnoughFitTrueBranch ||
-                                newClause.getLength()   >  maxTreeDepthInLiterals || // We use '>' here since we don't count the head literal in depth.
-                                wgtedCountTrueBranchPos <  2.1 * innerLoopTask.getMinPosCoverage() ||
-                                wgtedCountTrueBranchPos <  outerLoopState.getOverallMinPosWeight()) {
-                                
-
-                                if (!atMaxDepth) {
-                                    if      (newClause.getLength()   >  maxTreeDepthInLiterals)                  { Utils.println("%   Creating a TRUE-branch leaf because length = " + newClause.getLength()   + " > " + maxTreeDepthInLiterals); }
-                                    else if (wgtedCountTrueBranchPos <  2.1 * innerLoopTask.getMinPosCoverage()) { Utils.println("%   Creating a TRUE-branch leaf because wgtedCountTrueBranchPos = "  + Utils.truncate(wgtedCountTrueBranchPos, 1) + " < 2.1 * minPosCov = " + Utils.truncate(2.1 * innerLoopTask.getMinPosCoverage(), 1)); }
-                                    else if (wgtedCountTrueBranchPos <  outerLoopState.getOverallMinPosWeight()) { Utils.println("%   Creating a TRUE-branch leaf because wgtedCountTrueBranchPos = "  + Utils.truncate(wgtedCountTrueBranchPos, 1) + " < minPosWgt = "       + Utils.truncate(outerLoopState.getOverallMinPosWeight(), 1)); }
-                                    else if (goodEnoughFitTrueBranch) 											 { Utils.println("%   Creating a TRUE-branch leaf because good enough fit since score < " +  outerLoopState.maxAcceptableNodeScoreToStop); }
-                                }
-                                Term leaf;
-                                leaf = createLeafNodeFromCurrentExamples(meanTrue);
-                                trueBranch = new TreeStructuredTheoryLeaf(wgtedCountTrueBranchPos, wgtedCountTrueBranchNeg, bestNode.getVarianceTrueBranch(), leaf, Example.makeLabel(trueBranchPosExamples));
-                            } else {
-                                // Have another learning task.
-                                TreeStructuredTheoryInteriorNode newTreeNode = new TreeStructuredTheoryInteriorNode(wgtedCountTrueBranchPos, wgtedCountTrueBranchNeg, null, null, null);
-                                TreeStructuredLearningTask       newTask     = new TreeStructuredLearningTask(      trueBranchPosExamples,   trueBranchNegExamples, newTreeNode);
-                                trueBranch = newTreeNode;
-                                newTreeNode.setParent(interiorNode); // Need a back pointer in case we later make this interior node a leaf.
-                                newTreeNode.setBoolPath(interiorNode.returnBoolPath()); newTreeNode.addToPath(true);// Set the path taken to this node
-                                newTreeNode.setRegressionValueIfLeaf(meanTrue);
-
-                                // Since elsewhere we negate the score, do so here as well.
-                                Utils.println("%   Creating a TRUE-branch interior node with wgtedCountTrueBranchPos = " + Utils.truncate(wgtedCountTrueBranchPos, 1));
-                                outerLoopState.addToQueueOfTreeStructuredLearningTasks(newTask, newTreeNode, bestNode, -bestNode.getVarianceTrueBranch(true));
-                            }
-                            double meanFalse;
-
-                            if (learnMLNTheory) {
-                            	meanFalse = bestNode.mlnRegressionForFalse();
-                            } else {
-                                meanFalse = bestNode.meanIfFalse();
-                            }
-
-                            // No need to check max clause length (maxTreeDepthInLiterals) since that should have been checked at parent's call (since no literals added for FALSE branch).
-                            if (atMaxDepth || goodEnoughFitFalseBranch ||
-                                wgtedCountFalseBranchPos <  2.1 * innerLoopTask.getMinPosCoverage() ||
-                                wgtedCountFalseBranchPos <  outerLoopState.getOverallMinPosWeight()) {
-          
-                                Term leaf;
-                                leaf = createLeafNodeFromCurrentExamples(meanFalse);
-
-
-                                if (!atMaxDepth) {
-                                    if      (interiorNode.getLevel() >= maxTreeDepthInInteriorNodes) { Utils.println("%   Creating a FALSE-branch leaf because level = "  + interiorNode.getLevel() + " > " + maxTreeDepthInInteriorNodes); }
-                                    else if (wgtedCountFalseBranchPos <  2.1 * innerLoopTask.getMinPosCoverage()) { Utils.println("%   Creating a FALSE-branch leaf because wgtedCountFalseBranchPos = "  + Utils.truncate(wgtedCountFalseBranchPos, 1) + " < 2.1 * minPosCov = " + Utils.truncate(2.1 * innerLoopTask.getMinPosCoverage(), 1)); }
-                                    else if (wgtedCountFalseBranchPos <  outerLoopState.getOverallMinPosWeight()) { Utils.println("%   Creating a FALSE-branch leaf because wgtedCountFalseBranchPos = "  + Utils.truncate(wgtedCountFalseBranchPos, 1) + " < minPosWgt = "       + Utils.truncate(outerLoopState.getOverallMinPosWeight(), 1)); }
-                                    else if (goodEnoughFitFalseBranch) 									   		  { Utils.println("%   Creating a FALSE-branch leaf because good enough fit since score < " +  outerLoopState.maxAcceptableNodeScoreToStop); }
-                                }
-
-                                falseBranch = new TreeStructuredTheoryLeaf(wgtedCountFalseBranchPos, wgtedCountFalseBranchNeg, bestNode.getVarianceFalseBranch(), leaf, Example.makeLabel(falseBranchPosExamples));
-                            } else {
-                                // Have another learning task.
-                                TreeStructuredTheoryInteriorNode newTreeNode = new TreeStructuredTheoryInteriorNode(wgtedCountFalseBranchPos, wgtedCountFalseBranchNeg, null, null, null);
-                                TreeStructuredLearningTask       newTask     = new TreeStructuredLearningTask(      falseBranchPosExamples,   falseBranchNegExamples, newTreeNode);
-                                // On the FALSE branch, we need to use the PARENT's node (since the latest node failed).  There should always be a parent, but play it safe here.
-                                // NOTE: we need to get the parent in the TREE and not in the LearnOneClause search.  I.e., bestNode might have more than 1 literal!  So can't do bestNode.getParentNode().
-                                // Also, need to get the TIME A TRUE BRANCH WAS TAKEN.
-                                TreeStructuredTheoryInteriorNode parentOfCurrentNode = interiorNode.getLastParentOnTrueBranch(interiorNode);
-                                SingleClauseNode parentSearchNode = (parentOfCurrentNode == null ? null : parentOfCurrentNode.getSearchNodeThatLearnedTheClause());
-                                falseBranch = newTreeNode;
-                                newTreeNode.setParent(interiorNode); // Need a back pointer in case we later make this interior node a leaf.
-                                newTreeNode.setBoolPath(interiorNode.returnBoolPath()); newTreeNode.addToPath(false);// Set the path taken to this node
-
-                                newTreeNode.setRegressionValueIfLeaf(meanFalse);
-                                // Since elsewhere we negate the score, do so here as well.
-                                Utils.println("%   Creating a FALSE-branch interior node with wgtedCountFalseBranchPos = " + Utils.truncate(wgtedCountFalseBranchPos, 1));
-                                outerLoopState.addToQueueOfTreeStructuredLearningTasks(newTask, newTreeNode, parentSearchNode, -bestNode.getVarianceFalseBranch(true)); // We want to sort by TOTAL error, not AVERAGE.
-                            }
-                            interiorNode.setTreeForTrue( trueBranch);
-                            interiorNode.setTreeForFalse(falseBranch);
-                        }
-                        else {
-                            getStdILPtheory().addMainClause(newClause, innerLoopTask.getInlineManager()); // The inline manager probably has already been sent, but send it again anyway.
-                            if (learnMLNTheory && !learningTreeStructuredTheory) {
-                            	double reg = bestNode.mlnRegressionForTrue();
-                            	Utils.println("Setting " + reg + " for " + newClause);
-                            	int len = getStdILPtheory().getClauses().size();
-                            	getStdILPtheory().getClauses().get(len-1).setWeightOnSentence(reg);
-                            	// Update gradients
-                            	for (Example eg : coveredPosExamplesThisCycle) {
-									((RegressionRDNExample)eg).setOutputValue(((RegressionRDNExample)eg)
-											.getOutputValue() - reg); 
-								}
-                            }
-                        }
-
-                        long end = System.currentTimeMillis();
-                        if (learningTreeStructuredTheory) {
-                            Utils.println("\n% Time for loop #" + getNumberOfCycles() + ": " + Utils.convertMillisecondsToTimeSpan(end - start, 3) + ".");
-                            Utils.println(  "% Internal node max length = " + getMaxNumberOfLiteralsAtAnInteriorNode());
-                            Utils.println(  "% Max tree depth in lits   = " + getMaxTreeDepthInLiterals());
-                            Utils.println(  "% Max tree depth in nodes  = " + getMaxTreeDepth());
-                            Utils.println(  "% Max number of clauses    = " + maxNumberOfClauses);
-                        }
-
-						setFractionOfPosCovered((double) getNumberOfPosExamplesCovered() / (double) getNumberOfPosExamples());
-						setFractionOfNegCovered((double) getNumberOfNegExamplesCovered() / (double) getNumberOfNegExamples());
-						Utils.println("\n% On cycle #" + getNumberOfCycles()+ ", the best clause found is:");
-						Utils.println("%      " + bestNode);
-						Utils.println("% This clause covers " + coveredPosExamplesCount + " positive examples, of which " + newlyCoveredPosExamples + " are newly covered.");
-						Utils.println("% It also covers "	  + coveredNegExamplesCount + " negative examples, of which " + newlyCoveredNegExamples + " are newly covered.");
-						if (!learningTreeStructuredTheory) {
-							Utils.println("% The current set of " + Utils.getSizeSafely(getStdILPtheory().getClauses()) + " best clauses covers "
-										  + Utils.truncate(100 * getFractionOfPosCovered(), 1) + "% of the positive examples and "
-										  + Utils.truncate(100 * getFractionOfNegCovered(), 1) + "% of the negatives." + "}");
-						}
-					} else {
-						Utils.println(MessageType.ILP_INNERLOOP, "\n% No acceptable clause was learned on this cycle of the ILP inner loop (LearnOneClause).");
-						Utils.println(MessageType.ILP_INNERLOOP,   "% The closest-to-acceptable node found (score = " + Utils.truncate(theGleaner.bestScoreRegardless, 4) + "):\n%  " + theGleaner.bestNodeRegardless);
-						//     Utils.waitHere();
-
-						if (learningTreeStructuredTheory) { // Need to make the current node a leaf.
-                            TreeStructuredLearningTask currentTask = outerLoopState.getCurrentTreeLearningTask();
-                            createTreeStructuredLearningTaskLeaf(currentTask);
-                        }
-                    }
+                    addResultsOfInnerLoop(innerLoopTask, savedBestNode, start);
                 }
 
                 // Increment clock time used.
@@ -731,6 +427,514 @@ public class ILPouterLoop {
 	}
 
 
+	// The limits on the outer loop, other than running out of seeds or (when learning a tree) of queued tree nodes.
+	private boolean canContinueOuterLoop(double minFractionOfPosCoveredToStop) {
+		return getNumberOfLearnedClauses() < maxNumberOfClauses &&
+		       getNumberOfCycles() < maxNumberOfCycles &&
+		       getFractionOfPosCovered() < minFractionOfPosCoveredToStop &&
+		       getTotal_nodesConsidered() < max_total_nodesExpanded &&
+		       getTotal_nodesCreated() < max_total_nodesCreated &&
+		       getClockTimeUsedInMillisec() < getMaximumClockTimeInMillisec();
+	}
+
+	// Sets up the inner loop to expand the tree node of this task, and returns the search node to continue from (null at the root of the tree).
+	private SingleClauseNode setUpTreeNodeSearch(TreeStructuredLearningTask task) throws SearchInterrupted {
+		innerLoopTask.resetAllForReal(); // Clear OPEN and CLOSED (and other things).
+		SingleClauseNode savedBestNode = task.getCreatingNode();
+		clearSeedPosExamplesUsed();
+		clearSeedNegExamplesUsed();
+		innerLoopTask.setPosExamples(   task.getPosExamples()); // Need to do these AFTER the setMinPosCoverage since that might be a fraction.
+		innerLoopTask.setNegExamples(   task.getNegExamples());
+		innerLoopTask.setMinPosCoverage(outerLoopState.getOverallMinPosWeight()); // Even when we have fewer examples, we want the minPosWeight to be that from the first call.
+
+		if (savedBestNode != null) { // Have to recompute this because the examples have changed.
+			Utils.println("\n% Working on expanding this node: '" + savedBestNode + "'");
+			innerLoopTask.currentStartingNode = savedBestNode.getStartingNodeForReset(); // Only setting this while resetting the score for savedBestNode.
+			savedBestNode.resetAssumingAllExamplesCovered();
+			savedBestNode.setDontAddMeToOPEN(false);
+			innerLoopTask.scorer.scoreThisNode(savedBestNode);
+			setMaxBodyLength(Math.min(maxTreeDepthInLiterals, savedBestNode.bodyLength() + maxNumberOfLiteralsAtAnInteriorNode));
+		} else {
+			setMaxBodyLength(Math.min(maxTreeDepthInLiterals, maxNumberOfLiteralsAtAnInteriorNode));
+		}
+		innerLoopTask.currentStartingNode = savedBestNode;
+		return savedBestNode;
+	}
+
+	// Chooses the seeds of the next cycle.  Returns false if no uncovered positive seed could be found.
+	private boolean selectSeeds() {
+		// Specify the specific seeds to use if requested.
+		boolean foundUncoveredPosSeed = false;
+		if (numberPosSeedsToUse > 1 || numberNegSeedsToUse > 0) { foundUncoveredPosSeed = collectMultipleSeeds(); }
+
+        // Otherwise randomly select one positive seed be used.
+		int tries = 0;
+		while (!foundUncoveredPosSeed && tries++ < 1000) { // 1000 might be low if a very large number of pos ex's, but if hard to find, grabbing seeds in numerical order (next step) should be fine.
+			int index = Utils.random0toNminus1(getNumberOfPosExamples());
+			foundUncoveredPosSeed = isaGoodPosSeed(index);
+		}
+		// If still no luck, walk through in order until an uncovered seed is found. Should always be able to find an uncovered seed because we know fraction covered less than 1.0 ...
+		if (!foundUncoveredPosSeed) {
+			int randomOffset = Utils.random0toNminus1(getNumberOfPosExamples());  // Start at a random location in the array, and do a "wrap around" walk through the values.
+			for (int index = 0; index < getNumberOfPosExamples(); index++) {
+				int indexToUse = (randomOffset + index)	% getNumberOfPosExamples();
+				foundUncoveredPosSeed = isaGoodPosSeed(indexToUse);
+                if (foundUncoveredPosSeed) { break; }
+			}
+		}
+		return foundUncoveredPosSeed;
+	}
+
+	// Sets up the inner loop for the search of this cycle, once its seeds have been chosen.
+	private void setUpInnerLoopSearch(int cycle) {
+		innerLoopTask.callerName = "outerLoop #" + cycle + getFoldInfoString();
+		((Gleaner) innerLoopTask.searchMonitor).setCurrentMarker(innerLoopTask.callerName);
+		if (!learningTreeStructuredTheory) { innerLoopTask.stringHandler.resetVarCounters(); } // When learning a tree-structured theory, we need a consistent set of variables.
+		innerLoopTask.checkIfAcceptableClausePossible();
+
+		if (getMaximumClockTimeInMillisec() < Long.MAX_VALUE) {
+			double denominator = 1.0; // If there is a time limit, leave some for later cycles, but allow at least 25% of the time for this one.
+			if (maxNumberOfCycles > 1 && getMaximumClockTimeInMillisec() != Long.MAX_VALUE) {
+				denominator = Math.max(1.0, Math.min(4.0, maxNumberOfCycles / (1 + cycle)));
+			}
+			long innerLoopTimeLimit = (long) (getTimeAvailableInMillisec() / denominator);
+			innerLoopTask.setMaximumClockTimePerIterationInMillisec(innerLoopTimeLimit);
+		} else {
+			innerLoopTask.setMaximumClockTimePerIterationInMillisec(getMaximumClockTimeInMillisec());
+		}
+
+		((ChildrenClausesGenerator) innerLoopTask.childrenGenerator).countOfPruningDueToVariantChildren = 0;
+	}
+
+	// Adds what the search of this cycle found (by learner, which is innerLoopTask or a copy of it) to the theory, or, when learning a tree, to the tree and its queue.
+	private void addResultsOfInnerLoop(LearnOneClause learner, SingleClauseNode savedBestNode, long start) throws SearchInterrupted {
+        // Want limits on (and statistics about) the full ILP search as well.
+        setTotal_nodesConsidered(getTotal_nodesConsidered() + learner.getNodesConsidered());
+        setTotal_nodesCreated(   getTotal_nodesCreated()    + learner.getNodesCreated());
+        setTotal_nodesNotAddedToOPENsinceMaxScoreTooLow(    getTotal_nodesNotAddedToOPENsinceMaxScoreTooLow()     + learner.nodesNotAddedToOPENsinceMaxScoreTooLow);
+        setTotal_nodesRemovedFromOPENsinceMaxScoreNowTooLow(getTotal_nodesRemovedFromOPENsinceMaxScoreNowTooLow() + learner.nodesRemovedFromOPENsinceMaxScoreNowTooLow);
+        setTotal_countOfPruningDueToVariantChildren(getTotal_countOfPruningDueToVariantChildren() + ((ChildrenClausesGenerator) learner.childrenGenerator).countOfPruningDueToVariantChildren);
+        // Report what happened (TODO have an output 'results' file).
+
+        // TODO(@hayesall): `SingleClauseNode bestNode = theGleaner.bestNode;`
+        Gleaner          theGleaner = (Gleaner) learner.searchMonitor;
+        SingleClauseNode bestNode = theGleaner.bestNode;
+
+        Utils.println("\n% The best node found: " + bestNode); // TEMP
+
+        if (bestNode != null && bestNode != savedBestNode) { // Also need to check to make sure we didn't simply return the previous root when doing tree-structured learning.
+            Utils.println("\n% The best node found: " + bestNode);
+            List<Example> coveredPosExamplesThisCycle = learner.collectPosExamplesCovered(bestNode);
+            List<Example> coveredNegExamplesThisCycle = learner.collectNegExamplesCovered(bestNode);
+            int newlyCoveredPosExamples = 0;
+            int newlyCoveredNegExamples = 0;
+            int coveredPosExamplesCount = Utils.getSizeSafely(coveredPosExamplesThisCycle);
+            int coveredNegExamplesCount = Utils.getSizeSafely(coveredNegExamplesThisCycle);
+
+            if (coveredPosExamplesCount > 0) {
+                for (Example ex : coveredPosExamplesThisCycle) {
+                    // Utils.println("   covered pos: " + ex);
+                    if (!getCoveredPosExamples().contains(ex)) {
+                        if (!learningTreeStructuredTheory) { // When learning trees we don't need to count coverings by possibly overlapping rules.
+                            getCoveredPosExamples().add(ex);
+                            setNumberOfPosExamplesCovered(getNumberOfPosExamplesCovered() + 1); // An awkward way to increment ...
+                        }
+                        newlyCoveredPosExamples++;
+                    }
+                }
+            }
+            if (coveredNegExamplesCount > 0) {
+                for (Example ex : coveredNegExamplesThisCycle) {
+                    // Utils.println(" covered neg: " + ex);
+                    if (!getCoveredNegExamples().contains(ex)) {
+                        if (!learningTreeStructuredTheory) {  // See comment above.
+                            getCoveredNegExamples().add(ex);
+                            setNumberOfNegExamplesCovered(getNumberOfNegExamplesCovered() + 1); // An awkward way to increment ...
+                        }
+                        newlyCoveredNegExamples++;
+                    }
+                }
+            }
+
+            // The following line of code allowed covered examples to be reweighted on the fly during theory search.
+            //
+            // While an interesting idea, there are all sorts of problems the way you implemented it
+            // (even in the old map-based weight implementation), the biggest being that you never retain
+            // their original weights, so post-learning scoring would have been wacky.  Covered examples
+            // would have been down weighted in the final coverage scores...this could happen on both
+            // negative and positive examples, so it would be hard to say exactly what the effect would
+            // be, but it wouldn't have been the expected final score.
+            //
+            // I am commenting it out for now, but we can re-implement later if desired.
+            // -Trevor
+
+            if (coveredPosExamplesCount < 1) {
+                Utils.warning("Have a bestNode that covers no positive examples.  That shouldn't happen.  Best node = " + bestNode);
+            }
+            setNumberOfLearnedClauses(getNumberOfLearnedClauses() + 1);
+            Clause newClause = new LearnedClause(innerLoopTask, bestNode, getNumberOfCycles(),
+                                                 getNumberOfPosExamplesCovered(), coveredPosExamplesCount, newlyCoveredPosExamples,
+                                                 learner.getNumberOfPosExamples(), getNumberOfNegExamplesCovered(),  coveredNegExamplesCount,
+                                                 newlyCoveredNegExamples, learner.getNumberOfNegExamples());
+
+            if (learningTreeStructuredTheory) {
+
+                TreeStructuredLearningTask       currentTask  = outerLoopState.getCurrentTreeLearningTask();
+                TreeStructuredTheoryInteriorNode interiorNode = currentTask.getNode();
+                interiorNode.setSearchNodeThatLearnedTheClause(bestNode); // Be sure to set this before the next call.
+                interiorNode.setNodeTestFromFullNodeTest(newClause);
+                // Set the task used to learn this node.
+                bestNode.setStartingNodeForReset(learner.currentStartingNode);
+				Utils.println("\n% Expanding node at Level " + interiorNode.getLevel() + " with score = " + Utils.truncate(currentTask.getScore(), 3) + ".\n% Will extend: " + interiorNode.getSearchNodeThatLearnedTheClause());
+
+				boolean atMaxDepth = (interiorNode.getLevel() >= maxTreeDepthInInteriorNodes);
+
+                TreeStructuredTheoryNode trueBranch;
+                TreeStructuredTheoryNode falseBranch;
+                boolean goodEnoughFitTrueBranch  = atMaxDepth || bestNode.acceptableScoreTrueBranch( outerLoopState.maxAcceptableNodeScoreToStop);
+                boolean goodEnoughFitFalseBranch = atMaxDepth || bestNode.acceptableScoreFalseBranch(outerLoopState.maxAcceptableNodeScoreToStop);
+
+                List<Example> trueBranchPosExamples  = null;
+                List<Example> falseBranchPosExamples = null;
+                List<Example> trueBranchNegExamples  = null;
+                List<Example> falseBranchNegExamples = null;
+
+                double wgtedCountTrueBranchPos  = 0.0;
+                double wgtedCountTrueBranchNeg  = 0.0;
+                double wgtedCountFalseBranchPos = 0.0;
+                double wgtedCountFalseBranchNeg = 0.0;
+
+                List<Example> posEx = currentTask.getPosExamples();
+                List<Example> negEx = currentTask.getNegExamples();
+
+                // Since we are collecting 'extra labels' for leaf nodes, we need always to collect examples.
+                if (posEx != null) {
+                    trueBranchPosExamples  = new ArrayList<>(8);
+                    falseBranchPosExamples = new ArrayList<>(8);
+                    for (Example ex : posEx) {
+                        if (bestNode.matchesThisExample(ex, true)) {
+							trueBranchPosExamples.add(ex);
+							wgtedCountTrueBranchPos += ex.getWeightOnExample();
+                        } else {
+							falseBranchPosExamples.add(ex);
+							wgtedCountFalseBranchPos += ex.getWeightOnExample();
+                        }
+                    }
+                }
+                // Since we are collecting 'extra labels' for leaf nodes, we need always to collect examples.
+                if (negEx != null) {
+                    trueBranchNegExamples  = new ArrayList<>(8);
+                    falseBranchNegExamples = new ArrayList<>(8);
+                    for (Example ex : negEx) {
+                        if (bestNode.matchesThisExample(ex, false)) {
+							trueBranchNegExamples.add(ex);
+							wgtedCountTrueBranchNeg += ex.getWeightOnExample();
+                        } else {
+							falseBranchNegExamples.add(ex);
+							wgtedCountFalseBranchNeg += ex.getWeightOnExample();
+                        }
+                    }
+                }
+
+				double meanTrue;
+
+                if (learnMLNTheory) {
+                	meanTrue = bestNode.mlnRegressionForTrue();
+                } else {
+                    meanTrue = bestNode.meanIfTrue();
+                }
+
+                // We use 2.1 * getMinPosCoverage() here since we assume each branch needs to have getMinPosCoverage() (could get by with 2, but then would need a perfect split).
+                // Since getLength() includes the head, we see if current length EXCEEDS the maxTreeDepthInLiterals.
+                // Since 'maxTreeDepthInLiterals' includes bridgers, count them as well.
+                if (atMaxDepth) { Utils.println("%   Creating a TRUE-branch and FALSE-branch leaves because level = "  + interiorNode.getLevel() + " >= " + maxTreeDepthInInteriorNodes); }
+				// If false, then sort by TOTAL score of the examples reaching that node.
+                if (atMaxDepth || goodEnoughFitTrueBranch ||
+                    newClause.getLength()   >  maxTreeDepthInLiterals || // We use '>' here since we don't count the head literal in depth.
+                    wgtedCountTrueBranchPos <  2.1 * learner.getMinPosCoverage() ||
+                    wgtedCountTrueBranchPos <  outerLoopState.getOverallMinPosWeight()) {
+
+
+                    if (!atMaxDepth) {
+                        if      (newClause.getLength()   >  maxTreeDepthInLiterals)                  { Utils.println("%   Creating a TRUE-branch leaf because length = " + newClause.getLength()   + " > " + maxTreeDepthInLiterals); }
+                        else if (wgtedCountTrueBranchPos <  2.1 * learner.getMinPosCoverage()) { Utils.println("%   Creating a TRUE-branch leaf because wgtedCountTrueBranchPos = "  + Utils.truncate(wgtedCountTrueBranchPos, 1) + " < 2.1 * minPosCov = " + Utils.truncate(2.1 * learner.getMinPosCoverage(), 1)); }
+                        else if (wgtedCountTrueBranchPos <  outerLoopState.getOverallMinPosWeight()) { Utils.println("%   Creating a TRUE-branch leaf because wgtedCountTrueBranchPos = "  + Utils.truncate(wgtedCountTrueBranchPos, 1) + " < minPosWgt = "       + Utils.truncate(outerLoopState.getOverallMinPosWeight(), 1)); }
+                        else if (goodEnoughFitTrueBranch) 											 { Utils.println("%   Creating a TRUE-branch leaf because good enough fit since score < " +  outerLoopState.maxAcceptableNodeScoreToStop); }
+                    }
+                    Term leaf;
+                    leaf = createLeafNodeFromCurrentExamples(meanTrue);
+                    trueBranch = new TreeStructuredTheoryLeaf(wgtedCountTrueBranchPos, wgtedCountTrueBranchNeg, bestNode.getVarianceTrueBranch(), leaf, Example.makeLabel(trueBranchPosExamples));
+                } else {
+                    // Have another learning task.
+                    TreeStructuredTheoryInteriorNode newTreeNode = new TreeStructuredTheoryInteriorNode(wgtedCountTrueBranchPos, wgtedCountTrueBranchNeg, null, null, null);
+                    TreeStructuredLearningTask       newTask     = new TreeStructuredLearningTask(      trueBranchPosExamples,   trueBranchNegExamples, newTreeNode);
+                    trueBranch = newTreeNode;
+                    newTreeNode.setParent(interiorNode); // Need a back pointer in case we later make this interior node a leaf.
+                    newTreeNode.setBoolPath(interiorNode.returnBoolPath()); newTreeNode.addToPath(true);// Set the path taken to this node
+                    newTreeNode.setRegressionValueIfLeaf(meanTrue);
+
+                    // Since elsewhere we negate the score, do so here as well.
+                    Utils.println("%   Creating a TRUE-branch interior node with wgtedCountTrueBranchPos = " + Utils.truncate(wgtedCountTrueBranchPos, 1));
+                    outerLoopState.addToQueueOfTreeStructuredLearningTasks(newTask, newTreeNode, bestNode, -bestNode.getVarianceTrueBranch(true));
+                }
+                double meanFalse;
+
+                if (learnMLNTheory) {
+                	meanFalse = bestNode.mlnRegressionForFalse();
+                } else {
+                    meanFalse = bestNode.meanIfFalse();
+                }
+
+                // No need to check max clause length (maxTreeDepthInLiterals) since that should have been checked at parent's call (since no literals added for FALSE branch).
+                if (atMaxDepth || goodEnoughFitFalseBranch ||
+                    wgtedCountFalseBranchPos <  2.1 * learner.getMinPosCoverage() ||
+                    wgtedCountFalseBranchPos <  outerLoopState.getOverallMinPosWeight()) {
+
+                    Term leaf;
+                    leaf = createLeafNodeFromCurrentExamples(meanFalse);
+
+
+                    if (!atMaxDepth) {
+                        if      (interiorNode.getLevel() >= maxTreeDepthInInteriorNodes) { Utils.println("%   Creating a FALSE-branch leaf because level = "  + interiorNode.getLevel() + " > " + maxTreeDepthInInteriorNodes); }
+                        else if (wgtedCountFalseBranchPos <  2.1 * learner.getMinPosCoverage()) { Utils.println("%   Creating a FALSE-branch leaf because wgtedCountFalseBranchPos = "  + Utils.truncate(wgtedCountFalseBranchPos, 1) + " < 2.1 * minPosCov = " + Utils.truncate(2.1 * learner.getMinPosCoverage(), 1)); }
+                        else if (wgtedCountFalseBranchPos <  outerLoopState.getOverallMinPosWeight()) { Utils.println("%   Creating a FALSE-branch leaf because wgtedCountFalseBranchPos = "  + Utils.truncate(wgtedCountFalseBranchPos, 1) + " < minPosWgt = "       + Utils.truncate(outerLoopState.getOverallMinPosWeight(), 1)); }
+                        else if (goodEnoughFitFalseBranch) 									   		  { Utils.println("%   Creating a FALSE-branch leaf because good enough fit since score < " +  outerLoopState.maxAcceptableNodeScoreToStop); }
+                    }
+
+                    falseBranch = new TreeStructuredTheoryLeaf(wgtedCountFalseBranchPos, wgtedCountFalseBranchNeg, bestNode.getVarianceFalseBranch(), leaf, Example.makeLabel(falseBranchPosExamples));
+                } else {
+                    // Have another learning task.
+                    TreeStructuredTheoryInteriorNode newTreeNode = new TreeStructuredTheoryInteriorNode(wgtedCountFalseBranchPos, wgtedCountFalseBranchNeg, null, null, null);
+                    TreeStructuredLearningTask       newTask     = new TreeStructuredLearningTask(      falseBranchPosExamples,   falseBranchNegExamples, newTreeNode);
+                    // On the FALSE branch, we need to use the PARENT's node (since the latest node failed).  There should always be a parent, but play it safe here.
+                    // NOTE: we need to get the parent in the TREE and not in the LearnOneClause search.  I.e., bestNode might have more than 1 literal!  So can't do bestNode.getParentNode().
+                    // Also, need to get the TIME A TRUE BRANCH WAS TAKEN.
+                    TreeStructuredTheoryInteriorNode parentOfCurrentNode = interiorNode.getLastParentOnTrueBranch(interiorNode);
+                    SingleClauseNode parentSearchNode = (parentOfCurrentNode == null ? null : parentOfCurrentNode.getSearchNodeThatLearnedTheClause());
+                    falseBranch = newTreeNode;
+                    newTreeNode.setParent(interiorNode); // Need a back pointer in case we later make this interior node a leaf.
+                    newTreeNode.setBoolPath(interiorNode.returnBoolPath()); newTreeNode.addToPath(false);// Set the path taken to this node
+
+                    newTreeNode.setRegressionValueIfLeaf(meanFalse);
+                    // Since elsewhere we negate the score, do so here as well.
+                    Utils.println("%   Creating a FALSE-branch interior node with wgtedCountFalseBranchPos = " + Utils.truncate(wgtedCountFalseBranchPos, 1));
+                    outerLoopState.addToQueueOfTreeStructuredLearningTasks(newTask, newTreeNode, parentSearchNode, -bestNode.getVarianceFalseBranch(true)); // We want to sort by TOTAL error, not AVERAGE.
+                }
+                interiorNode.setTreeForTrue( trueBranch);
+                interiorNode.setTreeForFalse(falseBranch);
+            }
+            else {
+                getStdILPtheory().addMainClause(newClause, innerLoopTask.getInlineManager()); // The inline manager probably has already been sent, but send it again anyway.
+                if (learnMLNTheory && !learningTreeStructuredTheory) {
+                	double reg = bestNode.mlnRegressionForTrue();
+                	Utils.println("Setting " + reg + " for " + newClause);
+                	int len = getStdILPtheory().getClauses().size();
+                	getStdILPtheory().getClauses().get(len-1).setWeightOnSentence(reg);
+                	// Update gradients
+                	for (Example eg : coveredPosExamplesThisCycle) {
+						((RegressionRDNExample)eg).setOutputValue(((RegressionRDNExample)eg)
+								.getOutputValue() - reg); 
+					}
+                }
+            }
+
+            long end = System.currentTimeMillis();
+            if (learningTreeStructuredTheory) {
+                Utils.println("\n% Time for loop #" + getNumberOfCycles() + ": " + Utils.convertMillisecondsToTimeSpan(end - start, 3) + ".");
+                Utils.println(  "% Internal node max length = " + getMaxNumberOfLiteralsAtAnInteriorNode());
+                Utils.println(  "% Max tree depth in lits   = " + getMaxTreeDepthInLiterals());
+                Utils.println(  "% Max tree depth in nodes  = " + getMaxTreeDepth());
+                Utils.println(  "% Max number of clauses    = " + maxNumberOfClauses);
+            }
+
+			setFractionOfPosCovered((double) getNumberOfPosExamplesCovered() / (double) learner.getNumberOfPosExamples());
+			setFractionOfNegCovered((double) getNumberOfNegExamplesCovered() / (double) learner.getNumberOfNegExamples());
+			Utils.println("\n% On cycle #" + getNumberOfCycles()+ ", the best clause found is:");
+			Utils.println("%      " + bestNode);
+			Utils.println("% This clause covers " + coveredPosExamplesCount + " positive examples, of which " + newlyCoveredPosExamples + " are newly covered.");
+			Utils.println("% It also covers "	  + coveredNegExamplesCount + " negative examples, of which " + newlyCoveredNegExamples + " are newly covered.");
+			if (!learningTreeStructuredTheory) {
+				Utils.println("% The current set of " + Utils.getSizeSafely(getStdILPtheory().getClauses()) + " best clauses covers "
+							  + Utils.truncate(100 * getFractionOfPosCovered(), 1) + "% of the positive examples and "
+							  + Utils.truncate(100 * getFractionOfNegCovered(), 1) + "% of the negatives." + "}");
+			}
+		} else {
+			Utils.println(MessageType.ILP_INNERLOOP, "\n% No acceptable clause was learned on this cycle of the ILP inner loop (LearnOneClause).");
+			Utils.println(MessageType.ILP_INNERLOOP,   "% The closest-to-acceptable node found (score = " + Utils.truncate(theGleaner.bestScoreRegardless, 4) + "):\n%  " + theGleaner.bestNodeRegardless);
+			//     Utils.waitHere();
+
+			if (learningTreeStructuredTheory) { // Need to make the current node a leaf.
+                TreeStructuredLearningTask currentTask = outerLoopState.getCurrentTreeLearningTask();
+                createTreeStructuredLearningTaskLeaf(currentTask);
+            }
+        }
+	}
+
+	// One of the tree nodes being learned by learnTreeNodesAtOnce(), along with what is needed to put things back if its results are discarded.
+	private static final class TreeNodeSearch {
+		final TreeStructuredLearningTask task;
+		final long                       randomStateBeforeSetUp;
+		final int                        numberPosSeedsToUse;
+		final int                        numberNegSeedsToUse;
+		final Set<Example>               negExamplesUsedAsSeeds;
+		final List<Example>              seedNegExamples;
+		SingleClauseNode                   savedBestNode;
+		SingleClauseNode.StateBeforeSearch stateOfSavedBestNode;   // Null if savedBestNode is.
+		LearnOneClause                     learner;                // The inner loop, or a copy of it.  Null if no seeds were found.
+		long                               randomStateAfterSetUp;  // Where the search starts drawing random numbers.
+		long                               randomStateAfterSearch; // Where the serial loop's random numbers would be once this search is done.
+
+		TreeNodeSearch(TreeStructuredLearningTask task, long randomStateBeforeSetUp, int numberPosSeedsToUse, int numberNegSeedsToUse,
+					   Set<Example> negExamplesUsedAsSeeds, List<Example> seedNegExamples) {
+			this.task                   = task;
+			this.randomStateBeforeSetUp = randomStateBeforeSetUp;
+			this.numberPosSeedsToUse    = numberPosSeedsToUse;
+			this.numberNegSeedsToUse    = numberNegSeedsToUse;
+			this.negExamplesUsedAsSeeds = negExamplesUsedAsSeeds;
+			this.seedNegExamples        = seedNegExamples;
+		}
+	}
+
+	/*
+	 * The queued tree nodes to learn at once, if more than one (see setNumberOfParallelTreeNodes).  These are the first ones in the queue,
+	 * up to and including the first one below the maximum depth.  The ones at the maximum depth only get leaves, so learning them does not
+	 * add to the queue, and the serial loop would learn the next ones in the queue right after them.  The tasks also stop before the first one
+	 * whose search would start at, above or below where an earlier one's does (since a search changes the node it starts at), and at the limits
+	 * on the number of cycles and clauses.
+	 */
+	private List<TreeStructuredLearningTask> collectTreeNodesToLearnAtOnce() {
+		List<TreeStructuredLearningTask> result = new ArrayList<>(numberOfParallelTreeNodes);
+		if (numberOfParallelTreeNodes < 2 || !innerLoopTask.regressionTask || innerLoopTask.mlnRegressionTask || learnMLNTheory || !(innerLoopTask.getStrategy() instanceof BestFirstSearch)) {
+			return result;
+		}
+		int numberOfTasks = Math.min(numberOfParallelTreeNodes, Math.min(maxNumberOfCycles - getNumberOfCycles(), maxNumberOfClauses - getNumberOfLearnedClauses()));
+		for (TreeStructuredLearningTask task : outerLoopState.peekQueueOfTreeStructuredLearningTasks(numberOfTasks)) {
+			for (TreeStructuredLearningTask earlierTask : result) {
+				if (areOnOnePath(task.getCreatingNode(), earlierTask.getCreatingNode())) { return result; }
+			}
+			result.add(task);
+			if (task.getNode().getLevel() < maxTreeDepthInInteriorNodes) { break; } // Its tree node may get children, which can go ahead of the rest of the queue.
+		}
+		return result;
+	}
+
+	// Searches that start at the root of the tree (a null node) do not change any existing node.
+	private static boolean areOnOnePath(SingleClauseNode node1, SingleClauseNode node2) {
+		if (node1 == null || node2 == null) { return false; }
+		for (SingleClauseNode node = node1; node != null; node = node.getParentNode()) if (node == node2) { return true; }
+		for (SingleClauseNode node = node2; node != null; node = node.getParentNode()) if (node == node1) { return true; }
+		return false;
+	}
+
+	/*
+	 * Learns the tree nodes of these tasks (see collectTreeNodesToLearnAtOnce) at once, and returns true if ran out of seeds.
+	 * The searches are set up (and their seeds chosen) here in queue order.  The last one searches with the inner loop, and each of
+	 * the others with its own copy of it, each on its own thread.  Their results are then added to the tree in queue order, just as the
+	 * serial loop would.  Results are only discarded (and their tasks stay in the queue) if an earlier search drew random numbers,
+	 * since the serial loop would then have chosen other seeds, or if the outer loop reached one of its limits.
+	 * So the tree is the same as the serial loop's, unless a search runs out of time (their time limits are based on the time used before any of them started).
+	 */
+	private boolean learnTreeNodesAtOnce(List<TreeStructuredLearningTask> tasks, double minFractionOfPosCoveredToStop, long start) throws SearchInterrupted {
+		List<TreeNodeSearch> searches = new ArrayList<>(tasks.size());
+		try {
+			for (TreeStructuredLearningTask task : tasks) {
+				TreeNodeSearch search = new TreeNodeSearch(task, Utils.getRandomState(), numberPosSeedsToUse, numberNegSeedsToUse,
+														   new HashSet<>(getNegExamplesUsedAsSeeds()), innerLoopTask.seedNegExamples);
+				searches.add(search);
+				search.savedBestNode = setUpTreeNodeSearch(task);
+				if (!selectSeeds()) { // The serial loop would stop after this one.
+					search.randomStateAfterSearch = Utils.getRandomState();
+					break;
+				}
+				((Gleaner) innerLoopTask.searchMonitor).clearBestNode();
+				setUpInnerLoopSearch(getNumberOfCycles() + searches.size());
+				search.randomStateAfterSetUp = Utils.getRandomState();
+				if (search.savedBestNode != null) {
+					search.savedBestNode.computeCoverageOfAncestors(); // The searches only read the coverage above where they start, so make sure it is there before they start.
+					search.stateOfSavedBestNode = search.savedBestNode.saveStateBeforeSearch();
+				}
+				if (searches.size() < tasks.size()) {
+					search.learner = new LearnOneClause(innerLoopTask);
+					if (search.savedBestNode != null) { search.savedBestNode.setTask(search.learner); } // Until its results are added to the tree.
+				} else {
+					search.learner = innerLoopTask;
+				}
+			}
+
+			performTreeNodeSearches(searches);
+
+			long randomState = searches.get(0).randomStateBeforeSetUp; // Where the serial loop's random numbers are.
+			for (int i = 0; i < searches.size(); i++) {
+				TreeNodeSearch search = searches.get(i);
+				if (randomState != search.randomStateBeforeSetUp || !canContinueOuterLoop(minFractionOfPosCoveredToStop)) {
+					discardTreeNodeSearches(searches.subList(i, searches.size()), randomState);
+					return false;
+				}
+				outerLoopState.setCurrentTreeLearningTask(outerLoopState.popQueueOfTreeStructuredLearningTasks()); // This is search.task, since the tree nodes before it did not add to the queue.
+				setNumberOfCycles(getNumberOfCycles() + 1);
+				Utils.setRandomState(search.randomStateAfterSearch);
+				if (search.learner == null) { return true; }
+				addResultsOfInnerLoop(search.learner, search.savedBestNode, start);
+				randomState = search.randomStateAfterSearch;
+			}
+			return false;
+		} finally {
+			for (TreeNodeSearch search : searches) if (search.savedBestNode != null) { search.savedBestNode.setTask(innerLoopTask); }
+		}
+	}
+
+	// Runs the searches of learnTreeNodesAtOnce(), each on its own thread.
+	private void performTreeNodeSearches(List<TreeNodeSearch> searches) throws SearchInterrupted {
+		List<TreeNodeSearch> toPerform = new ArrayList<>(searches.size());
+		for (TreeNodeSearch search : searches) if (search.learner != null) { toPerform.add(search); }
+		if (toPerform.isEmpty()) { return; }
+
+		HornClausebase clausebase = innerLoopTask.getContext().getClausebase();
+		boolean wasFrozen = clausebase.isFrozen();
+		clausebase.setFrozen(true);
+		ExecutorService pool = Executors.newFixedThreadPool(toPerform.size());
+		try {
+			List<Future<?>> workers = new ArrayList<>(toPerform.size());
+			for (TreeNodeSearch search : toPerform) {
+				workers.add(pool.submit(() -> {
+					Utils.setRandomStateOfThisThread(search.randomStateAfterSetUp);
+					try {
+						search.learner.performSearch(search.savedBestNode);
+						search.randomStateAfterSearch = Utils.getRandomState();
+					} finally {
+						Utils.clearRandomStateOfThisThread();
+					}
+					return null;
+				}));
+			}
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			Utils.error("Interrupted while learning " + Utils.comma(toPerform) + " tree nodes.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SearchInterrupted) { throw (SearchInterrupted) e.getCause(); }
+			Utils.reportStackTrace(e.getCause());
+			Utils.error("Problem learning tree nodes: " + e.getCause());
+		} finally {
+			pool.shutdownNow();
+			clausebase.setFrozen(wasFrozen);
+		}
+	}
+
+	// Puts things back to where the serial loop would be before setting up the first of these searches, whose tasks stay in the queue.
+	private void discardTreeNodeSearches(List<TreeNodeSearch> searches, long randomState) {
+		TreeNodeSearch first = searches.get(0);
+		Utils.setRandomState(randomState);
+		numberPosSeedsToUse = first.numberPosSeedsToUse;
+		numberNegSeedsToUse = first.numberNegSeedsToUse;
+		getNegExamplesUsedAsSeeds().clear();
+		getNegExamplesUsedAsSeeds().addAll(first.negExamplesUsedAsSeeds);
+		innerLoopTask.restoreSeedNegExamples(first.seedNegExamples);
+		for (TreeNodeSearch search : searches) if (search.stateOfSavedBestNode != null) { search.stateOfSavedBestNode.restore(); }
+	}
+
 	private void createTreeStructuredLearningTaskLeaf(TreeStructuredLearningTask currentTask) {
 		Term val = null;
 			if (currentTask.getNode() != null) {
@@ -1022,6 +1226,11 @@ public class ILPouterLoop {
         return innerLoopTask.proveExample(clause, ex);
     }
 
+    /* Same as proveExample(Clause, Example), for callers that keep the head and body of a clause apart. */
+    public boolean proveExample(Literal head, List<Literal> clauseBody, Example ex) {
+        return innerLoopTask.proveExample(head, clauseBody, ex);
+    }
+
     private void setTotal_nodesRemovedFromOPENsinceMaxScoreNowTooLow(int total_nodesRemovedFromOPENsinceMaxScoreNowTooLow) {
         outerLoopState.setTotal_nodesRemovedFromOPENsinceMaxScoreNowTooLow(total_nodesRemovedFromOPENsinceMaxScoreNowTooLow);
     }
@@ -1257,4 +1466,16 @@ public class ILPouterLoop {
 		this.maxTreeDepthInInteriorNodes = Math.max(1, maxTreeDepth);
 	}
 
+	public int getNumberOfParallelTreeNodes() {
+		return numberOfParallelTreeNodes;
+	}
+
+	/*
+	 * When learning a (regression) tree, search for up to this many of the queued tree nodes at once, each on its own thread,
+	 * rather than one at a time.  The tree learned is the same as when learning one node at a time (see learnTreeNodesAtOnce).
+	 */
+	public void setNumberOfParallelTreeNodes(int numberOfParallelTreeNodes) {
+		this.numberOfParallelTreeNodes = Math.max(1, numberOfParallelTreeNodes);
+	}
+
 }
@@ -224,6 +224,17 @@ public class ILPouterLoopState implements Serializable, Cloneable {
 		return queueOfTreeStructuredLearningTasks.remove(0);
 	}	
 	
+	// The first (at most) n tasks in the queue.  They stay in the queue.
+	List<TreeStructuredLearningTask> peekQueueOfTreeStructuredLearningTasks(int n) {
+		List<TreeStructuredLearningTask> result = new ArrayList<>(n);
+		if (queueOfTreeStructuredLearningTasks == null) { return result; }
+		for (TreeStructuredLearningTask task : queueOfTreeStructuredLearningTasks) {
+			if (result.size() >= n) { break; }
+			result.add(task);
+		}
+		return result;
+	}
+	
 	// This method assumes LOWER scores are better.
     void addToQueueOfTreeStructuredLearningTasks(TreeStructuredLearningTask task, TreeStructuredTheoryInteriorNode treeNode, SingleClauseNode creatingSearchNode, double score) {
         Utils.println("%      addToQueueOfTreeStructuredLearningTasks (level=" + Utils.comma(treeNode == null ? -1 : treeNode.getLevel())
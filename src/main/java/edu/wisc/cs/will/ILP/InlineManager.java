@@ -41,7 +41,7 @@ public class InlineManager {
 		for (Clause c2 : results) {
 			Clause newClause = (Clause) getStringHandler().renameAllVariables(c2);
 			newResults.add(newClause);
-			clausesVisited.addClauseToClosed(getStringHandler(),newClause); // OK to add the 'main clause' here, since it would be odd to have the same clause as a main and supporting clause.
+			clausesVisited.addClauseToClosed(newClause); // OK to add the 'main clause' here, since it would be odd to have the same clause as a main and supporting clause.
 		}
 		return newResults;
 	}
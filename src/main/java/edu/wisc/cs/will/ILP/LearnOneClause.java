@@ -9,14 +9,25 @@ import edu.wisc.cs.will.FOPC_MLN_ILP_Parser.FileParser;
 import edu.wisc.cs.will.ILP.Regression.RegressionInfoHolder;
 import edu.wisc.cs.will.ILP.Regression.RegressionInfoHolderForMLN;
 import edu.wisc.cs.will.ILP.Regression.RegressionInfoHolderForRDN;
+import edu.wisc.cs.will.ResThmProver.FactSnapshot;
+import edu.wisc.cs.will.ResThmProver.FactStatistics;
 import edu.wisc.cs.will.ResThmProver.HornClauseContext;
 import edu.wisc.cs.will.ResThmProver.HornClauseProver;
+import edu.wisc.cs.will.ResThmProver.HornClausebase;
+import edu.wisc.cs.will.ResThmProver.JoinPlanEvaluator;
+import edu.wisc.cs.will.ResThmProver.StreamingFactLoader;
+import edu.wisc.cs.will.Utils.NamedReader;
 import edu.wisc.cs.will.Utils.Utils;
 import edu.wisc.cs.will.stdAIsearch.*;
 
 import javax.swing.event.EventListenerList;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
  
 /*
  * @author shavlik
@@ -133,7 +144,7 @@ public class LearnOneClause extends StateBasedSearchTask {
 	PredicateName       procDefinedEnoughDiffMatches   = null;  // This is a built-in predicate that tests if a new literal being added to a clause being grown can be matched in a unique way on some POS seeds.
 	PredicateName       procDefinedForConstants        = null;  // This is used to see which constants in the positive seeds can fill some arguments in a new literal.
 	PredicateName       procDefinedNeedForNewVariables = null;  // See if these new variables ever bind in the positive seeds to some thing new in the clause (otherwise they aren't needed).  Only used if dontAddNewVarsUnlessDiffBindingsPossibleOnPosSeeds=true.
-	List<List<Term>>    collectedConstantBindings;    // This is used as a temporary variable by a method below.
+	private final ThreadLocal<List<List<Term>>> collectedConstantBindings; // This is used as a temporary variable by a method below.  Per thread and shared with copies of this task, since the predicate that collects them calls back this task (see LearnOneClause(LearnOneClause)).
 	final BindingList         bindings = new BindingList(); // Only recreate theta if needed, in order to save on creating new lists.
 
     private   List<PredicateNameAndArity>  examplePredicates          = null; // These store the positive example predicates that are eventually turned into targets.
@@ -148,6 +159,14 @@ public class LearnOneClause extends StateBasedSearchTask {
 	HandleFOPCstrings    stringHandler;
 	final Unifier              unifier; // Make instances out of some things that could be 'statics' so the code is safer.
 	private   HornClauseProver     prover; // This is initialized by getProver() so please don't use this variable directly.
+	private final ThreadLocal<HornClauseProver> workerProver; // Set only on parallel workers.  See useWorkerProver().  Shared with copies of this task, which use the same scoring workers.
+	private final ThreadLocal<BindingList>   workerBindings; // Ditto, for the scratch bindings used when proving examples.
+	private   int                  numberOfScoringThreads = 1; // If more than one, the children of a node have their coverage computed in parallel.  See computeCoverageOfChildren().
+	private   ExecutorService      scoringWorkers         = null; // The pool that computeCoverageOfChildren() uses, each thread with its own prover.  See setNumberOfScoringThreads().
+	private   CoverageCache        coverageCache          = null; // If set, remembers which examples each clause covers across searches.  See setUseCoverageCache().
+	private   boolean              adaptiveCoverage       = false; // If set, clauses prove the examples their siblings failed on first, and stop once they cannot score well enough.  See setUseAdaptiveCoverage().
+	private   boolean              batchCoverage          = false; // If set, clauses whose bodies can be run as joins over the facts prove all their examples at once.  See setUseBatchCoverage().
+	private   FactStatistics       factStatistics         = null; // If set, the literals of clause bodies are reordered before proving them.  See setUseLiteralReordering().
 
     private   InlineManager        inlineHandler; // Handle the in-lining of literal bodies (should only be applied to literals that are only defined by ONE clause).
 	private final TypeManagement       typeManager;
@@ -164,10 +183,16 @@ public class LearnOneClause extends StateBasedSearchTask {
 	private   double               mEstimatePos = 0.1; // When computing coverage of a rule use these "m estimates."  NOTE these are also used when examples are weighted, so if total weight is small, might want to change these.
 	private   double               mEstimateNeg = 0.1; // Note: these are used in recall as well as precision.
 
-	private final EventListenerList searchListenerList = new EventListenerList();
+	private final EventListenerList searchListenerList;
 
     private List<Sentence> facts = null; // This temporarily stores the facts between construction and initialization.  After initialization it will be null.
 
+	private final Map<Example,Integer> exampleIds; // Dense ids for the coverage bitsets of SingleClauseNode.  Equal examples share an id.  Shared with copies of this task.
+	private volatile int[] posExampleIds = null; // The ids of posExamples and negExamples, in order.  Cleared when the examples are set.
+	private volatile int[] negExampleIds = null;
+	private volatile int[] seedPosExampleIds = null; // The ids of seedPosExamples and seedNegExamples, in order.  Cleared when the seeds are selected.
+	private volatile int[] seedNegExampleIds = null;
+
     private boolean initialized = false;
 
 
@@ -182,6 +207,11 @@ public class LearnOneClause extends StateBasedSearchTask {
 						  HornClauseContext context, boolean deferLoadingExamples) {
 
         taskName = "LearnOneClause";
+        this.collectedConstantBindings = new ThreadLocal<>();
+        this.workerProver              = new ThreadLocal<>();
+        this.workerBindings            = new ThreadLocal<>();
+        this.searchListenerList        = new EventListenerList();
+        this.exampleIds                = new HashMap<>();
         this.stringHandler = (context == null ? null : context.getStringHandler());
         if ( stringHandler == null ) stringHandler = new HandleFOPCstrings();
         if ( strategy == null ) strategy = new BestFirstSearch();
@@ -215,7 +245,15 @@ public class LearnOneClause extends StateBasedSearchTask {
 
 		Utils.println("\n%  Read the facts.");
 
-		if (factsReader != null) {
+		if (factsReader instanceof NamedReader && stringHandler.useFactsSnapshot) {
+			facts = new FactSnapshot(context, factsReader.toString()).loadFacts(factsReader, workingDir); // Asserts the facts as they are read.
+			Utils.println("%  Have read " + Utils.comma(facts) + " facts.");
+		}
+		else if (factsReader != null && stringHandler.streamFacts) {
+			facts = new StreamingFactLoader(context).load(factsReader, workingDir); // Asserts the facts as they are read.
+			Utils.println("%  Have read " + Utils.comma(facts) + " facts.");
+		}
+		else if (factsReader != null) {
         	facts = readFacts(factsReader, workingDir);
         	context.assertSentences(facts);
 			Utils.println("%  Have read " + Utils.comma(facts) + " facts.");
@@ -238,6 +276,98 @@ public class LearnOneClause extends StateBasedSearchTask {
 		Utils.println("\n%  LearnOneClause initialized.");
 	}
 
+	/*
+	 * Constructs a copy of this (initialized) task, as currently set up for a search (examples, seeds, starting node and limits),
+	 * to search for another tree node at the same time as the original (see ILPouterLoop.setNumberOfParallelTreeNodes).
+	 * The settings, the background knowledge, the targets and modes, and the example ids and caches are shared with the original.
+	 * The state of a search is the copy's own: OPEN, CLOSED, the children generator, the Gleaner, the prover and the counters.
+	 * Reading examples and changing the targets are left to the original.
+	 */
+	LearnOneClause(LearnOneClause original) {
+		// Shared with the original.
+		taskName                       = original.taskName;
+		parser                         = original.parser;
+		context                        = original.context;
+		stringHandler                  = original.stringHandler;
+		unifier                        = original.unifier;
+		typeManager                    = original.typeManager;
+		inlineHandler                  = original.inlineHandler;
+		posExamplesReader              = null;
+		negExamplesReader              = null;
+		searchListenerList             = original.searchListenerList;
+		exampleIds                     = original.exampleIds;
+		collectedConstantBindings      = original.collectedConstantBindings;
+		workerProver                   = original.workerProver;
+		workerBindings                 = original.workerBindings;
+		isaTreeStructuredTask          = original.isaTreeStructuredTask;
+		regressionTask                 = original.regressionTask;
+		mlnRegressionTask              = original.mlnRegressionTask;
+		maxBodyLength                  = original.maxBodyLength;
+		maxFreeBridgersInBody          = original.maxFreeBridgersInBody;
+		maxNumberOfNewVars             = original.maxNumberOfNewVars;
+		maxDepthOfNewVars              = original.maxDepthOfNewVars;
+		minPosCoverage                 = original.minPosCoverage;
+		maxNegCoverage                 = original.maxNegCoverage;
+		minPrecision                   = original.minPrecision;
+		maxRecall                      = original.maxRecall;
+		stopIfPerfectClauseFound       = original.stopIfPerfectClauseFound;
+		clausesMustCoverFractPosSeeds  = original.clausesMustCoverFractPosSeeds;
+		stopWhenUnacceptableCoverage   = original.stopWhenUnacceptableCoverage;
+		minNumberOfNegExamples         = original.minNumberOfNegExamples;
+		mEstimatePos                   = original.mEstimatePos;
+		mEstimateNeg                   = original.mEstimateNeg;
+		targetModes                    = original.targetModes;
+		bodyModes                      = original.bodyModes;
+		examplePredicates              = original.examplePredicates;
+		examplePredicateSignatures     = original.examplePredicateSignatures;
+		targets                        = original.targets;
+		targetArgSpecs                 = original.targetArgSpecs;
+		variablesInTargets             = original.variablesInTargets;
+		procDefinedEnoughDiffMatches   = original.procDefinedEnoughDiffMatches;
+		procDefinedForConstants        = original.procDefinedForConstants;
+		procDefinedNeedForNewVariables = original.procDefinedNeedForNewVariables;
+		numberOfScoringThreads         = original.numberOfScoringThreads;
+		scoringWorkers                 = original.scoringWorkers;
+		coverageCache                  = original.coverageCache;
+		adaptiveCoverage               = original.adaptiveCoverage;
+		batchCoverage                  = original.batchCoverage;
+		factStatistics                 = original.factStatistics;
+		initialized                    = original.initialized;
+		countOfSearchesPerformedWithCurrentModes = original.countOfSearchesPerformedWithCurrentModes;
+
+		// What the original is set up to search with.  These lists are replaced, rather than changed, when the original is set up again.
+		callerName                     = original.callerName;
+		currentStartingNode            = original.currentStartingNode;
+		posExamples                    = original.posExamples;
+		negExamples                    = original.negExamples;
+		posExampleIds                  = original.posExampleIds;
+		negExampleIds                  = original.negExampleIds;
+		totalPosWeight                 = original.totalPosWeight;
+		totalNegWeight                 = original.totalNegWeight;
+		seedPosExamples                = original.seedPosExamples;
+		seedNegExamples                = original.seedNegExamples;
+		seedPosExampleIds              = original.seedPosExampleIds;
+		seedNegExampleIds              = original.seedNegExampleIds;
+		totalWeightOnPosSeeds          = original.totalWeightOnPosSeeds;
+		totalWeightOnNegSeeds          = original.totalWeightOnNegSeeds;
+		verbosity                      = original.verbosity;
+		maxSearchDepth                 = original.maxSearchDepth;
+		beamWidth                      = original.beamWidth;
+		setMaxNodesToConsider(original.getMaxNodesToConsider());
+		setMaxNodesToCreate(  original.getMaxNodesToCreate());
+		setMaximumClockTimePerIterationInMillisec(original.getMaximumClockTimePerIterationInMillisec());
+
+		// The copy's own.
+		prover = createProverLike(original.getProver());
+		ChildrenClausesGenerator nodeGen = new ChildrenClausesGenerator();
+		Gleaner                  monitor = new Gleaner();
+		initalizeStateBasedSearchTask(new InitializeILPsearchSpace(), original.terminator, monitor, ((BestFirstSearch) original.getStrategy()).copy(),
+		                              original.scorer, nodeGen, new VisitedClauses((VisitedClauses) original.closed));
+		nodeGen.initialize();
+		setGleaner(monitor);
+		monitor.setCurrentMarker(callerName);
+	}
+
     private void readExamples(Reader positiveReader, Reader negativeReader) {
 		// TODO(@hayesall): `skewMaxNegToPosUse` is always -1, dropping the code related to this.
         if (posExamples == null) {
@@ -292,16 +422,246 @@ public class LearnOneClause extends StateBasedSearchTask {
 	       return negExamples;
 	}
 
+	int getExampleId(Example example) {
+		synchronized (exampleIds) { // The ids are shared with copies of this task.
+			Integer id = exampleIds.get(example);
+			if (id == null) {
+				id = exampleIds.size();
+				exampleIds.put(example, id);
+			}
+			return id;
+		}
+	}
+
+	public int[] getPosExampleIds() {
+		int[] ids = posExampleIds;
+		if (ids == null || ids.length != getNumberOfPosExamples()) {
+			ids = posExampleIds = getExampleIds(posExamples);
+		}
+		return ids;
+	}
+
+	int[] getNegExampleIds() {
+		int[] ids = negExampleIds;
+		if (ids == null || ids.length != getNumberOfNegExamples()) {
+			ids = negExampleIds = getExampleIds(negExamples);
+		}
+		return ids;
+	}
+
+	int[] getSeedPosExampleIds() {
+		int[] ids = seedPosExampleIds;
+		if (ids == null || ids.length != Utils.getSizeSafely(seedPosExamples)) {
+			ids = seedPosExampleIds = getExampleIds(seedPosExamples);
+		}
+		return ids;
+	}
+
+	int[] getSeedNegExampleIds() {
+		int[] ids = seedNegExampleIds;
+		if (ids == null || ids.length != Utils.getSizeSafely(seedNegExamples)) {
+			ids = seedNegExampleIds = getExampleIds(seedNegExamples);
+		}
+		return ids;
+	}
+
+	private int[] getExampleIds(List<Example> examples) {
+		int[] ids = new int[Utils.getSizeSafely(examples)];
+		int   i   = 0;
+		if (examples != null) for (Example example : examples) { ids[i++] = getExampleId(example); }
+		return ids;
+	}
+
     public HandleFOPCstrings getStringHandler() {
 		return stringHandler;
 	}
 	public final HornClauseProver getProver() {
+        HornClauseProver proverOfThisThread = workerProver.get();
+        if ( proverOfThisThread != null ) {
+            return proverOfThisThread;
+        }
         if ( prover == null ) {
             prover = new HornClauseProver( context );
         }
 		return prover;
 	}
 
+	/*
+	 * Gives the calling thread its own prover (with the limits of the shared one) over the shared clausebase,
+	 * so that parallel workers (inference, or scoring clauses) do not share search state or binding lists.
+	 * Call with false when the worker is done.
+	 */
+	public void useWorkerProver(boolean useOwnProver) {
+		workerProver.remove();
+		workerBindings.remove();
+		if (!useOwnProver) { return; }
+		workerProver.set(createProverLike(getProver()));
+		workerBindings.set(new BindingList());
+	}
+
+	// A new prover over the shared clausebase, with the limits of the given one.
+	private HornClauseProver createProverLike(HornClauseProver sharedProver) {
+		HornClauseProver ownProver = new HornClauseProver(context);
+		ownProver.maxSearchDepth = sharedProver.maxSearchDepth;
+		ownProver.setMaxNodesToConsider(sharedProver.getMaxNodesToConsider());
+		ownProver.setMaxNodesToCreate(sharedProver.getMaxNodesToCreate());
+		ownProver.setMaximumClockTimePerIterationInMillisec(sharedProver.getMaximumClockTimePerIterationInMillisec());
+		return ownProver;
+	}
+
+	// The bindings to (re)use when proving examples on the calling thread.
+	BindingList getBindings() {
+		BindingList bindingsOfThisThread = workerBindings.get();
+		return (bindingsOfThisThread != null ? bindingsOfThisThread : bindings);
+	}
+
+	public int getNumberOfScoringThreads() {
+		return numberOfScoringThreads;
+	}
+
+	/*
+	 * Also (re)creates the pool of workers used by computeCoverageOfChildren().  Each worker gets its own prover when its thread starts,
+	 * which is on the first search that uses it, so the prover gets the limits that the shared prover has by then.
+	 * Call shutDownScoringThreads() when done learning.
+	 */
+	public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+		this.numberOfScoringThreads = Math.max(1, numberOfScoringThreads);
+		shutDownScoringThreads();
+		if (this.numberOfScoringThreads < 2) { return; }
+		scoringWorkers = Executors.newFixedThreadPool(this.numberOfScoringThreads, task -> {
+			Thread worker = new Thread(() -> {
+				useWorkerProver(true);
+				task.run();
+			}, taskName + " scoring worker");
+			worker.setDaemon(true);
+			return worker;
+		});
+	}
+
+	public void shutDownScoringThreads() {
+		if (scoringWorkers == null) { return; }
+		scoringWorkers.shutdownNow();
+		scoringWorkers = null;
+	}
+
+	CoverageCache getCoverageCache() {
+		return coverageCache;
+	}
+
+	// Keeps the coverage of clauses across searches (e.g., across boosting iterations), as long as the facts do not change.
+	public void setUseCoverageCache(boolean useCoverageCache) {
+		if (!useCoverageCache) { coverageCache = null; return; }
+		if (coverageCache == null) {
+			int maxSizeOfCoverageCache = 10000; // Each entry holds two bitsets over the examples.
+			coverageCache = new CoverageCache((VisitedClauses) closed, maxSizeOfCoverageCache);
+		}
+	}
+
+	/*
+	 * When computing the coverage of a clause, prove first the examples that its siblings failed on, and abandon the clause
+	 * as soon as its best possible score could neither get it expanded nor make it the best clause (see getScoreNeededToMatter).
+	 * Abandoned clauses are treated as if they timed out, and are put in OPEN with that best possible score, so the search is otherwise unchanged.
+	 *
+	 * Only used for (non-MLN) regression, where the score can be bounded as the examples are proven (see SingleClauseNode.proveInAdaptiveOrder).
+	 */
+	public void setUseAdaptiveCoverage(boolean adaptiveCoverage) {
+		this.adaptiveCoverage = adaptiveCoverage;
+	}
+
+	/*
+	 * When computing the coverage of a clause, run its body once as a join over the facts, with the examples that reach it as
+	 * the input, instead of proving each example on its own (see JoinPlanEvaluator).  Clauses that cannot be run that way,
+	 * or whose join gets too big, are proven an example at a time as usual.
+	 */
+	public void setUseBatchCoverage(boolean batchCoverage) {
+		this.batchCoverage = batchCoverage;
+	}
+
+	boolean useBatchCoverage() {
+		return batchCoverage;
+	}
+
+	// A new one for each clause, since it uses the prover of the thread computing the coverage.
+	JoinPlanEvaluator createJoinPlanEvaluator() {
+		int maxRowsPerJoin = 1000000; // Each row holds an array of the clause's variables.
+		return new JoinPlanEvaluator(getProver(), maxRowsPerJoin, maxResolutionsPerClauseEval);
+	}
+
+	boolean useAdaptiveCoverage() {
+		return adaptiveCoverage && regressionTask && !mlnRegressionTask && !stopWhenUnacceptableCoverage && !stopIfPerfectClauseFound
+				&& scorer instanceof ScoreRegressionNode && getStrategy() instanceof BestFirstSearch && searchMonitor instanceof Gleaner;
+	}
+
+	// The score a clause needs to matter to the search, i.e., to become the best clause or, if it is to be added to OPEN, to be among the
+	// nodes that the beam keeps and that can still be expanded before maxNodesToConsider is reached.
+	// This is read by the workers in computeCoverageOfChildren(), while neither OPEN nor the Gleaner changes.
+	double getScoreNeededToMatter(SingleClauseNode node) throws SearchInterrupted {
+		double needed = ((Gleaner) searchMonitor).getBestScore();
+		if (!node.dontActuallyAddToOpen()) {
+			int nodesThatMatter = Integer.MAX_VALUE;
+			if (beamWidth > 0)                { nodesThatMatter = beamWidth; }
+			if (getMaxNodesToConsider() > 0) { nodesThatMatter = Math.min(nodesThatMatter, getMaxNodesToConsider() - nodesConsidered); }
+			needed = Math.min(needed, open.getTotalScoreNeededToBeAmongFirst(nodesThatMatter) - scorer.computeBonusScoreForThisNode(node));
+		}
+		return needed - 1e-6 * (1.0 + Math.abs(needed)); // Leave room for rounding, since bounds are not summed in the same order as scores.
+	}
+
+	/*
+	 * Computes the coverage of these children of one node (and, for regression, the statistics of both branches)
+	 * across the pool of workers, each proving with its own prover over the frozen clausebase.  The children are
+	 * still scored and inserted into OPEN one at a time afterwards, which then only reads what was computed here,
+	 * so OPEN ends up the same as in the serial search.
+	 *
+	 * Children already in CLOSED are left alone, since they will not be scored.  MLN regression is always done
+	 * serially, since counting groundings caches the bindings of the parent node.
+	 */
+	void computeCoverageOfChildren(List<SearchNode> children) throws SearchInterrupted {
+		if (scoringWorkers == null || mlnRegressionTask || Utils.getSizeSafely(children) < 2) { return; }
+
+		final List<SingleClauseNode> toCompute = new ArrayList<>(children.size());
+		for (SearchNode child : children) {
+			if (closed != null && closed.alreadyInClosedList(child)) { continue; }
+			toCompute.add((SingleClauseNode) child);
+		}
+		if (toCompute.size() < 2) { return; }
+
+		// The children only read the coverage of their ancestors, so make sure it is there before the workers start.
+		SingleClauseNode parent = toCompute.get(0).getParentNode();
+		if (parent != null) { parent.computeCoverageOfAncestors(); }
+
+		int numberOfThreads = Math.min(numberOfScoringThreads, toCompute.size());
+		final AtomicInteger nextChild = new AtomicInteger(0);
+		HornClausebase clausebase = context.getClausebase();
+		boolean wasFrozen = clausebase.isFrozen();
+		clausebase.setFrozen(true);
+		List<Future<?>> workers = new ArrayList<>(numberOfThreads);
+		try {
+			for (int i = 0; i < numberOfThreads; i++) {
+				workers.add(scoringWorkers.submit(() -> {
+					for (int index = nextChild.getAndIncrement(); index < toCompute.size() && !Thread.currentThread().isInterrupted(); index = nextChild.getAndIncrement()) {
+						toCompute.get(index).computeCoverageAndStatistics();
+					}
+					return null;
+				}));
+			}
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			Utils.error("Interrupted while computing the coverage of " + Utils.comma(toCompute) + " clauses.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof SearchInterrupted) { throw (SearchInterrupted) e.getCause(); }
+			Utils.reportStackTrace(e.getCause());
+			Utils.error("Problem computing the coverage of clauses: " + e.getCause());
+		} finally {
+			for (Future<?> worker : workers) {
+				worker.cancel(true);
+			}
+			clausebase.setFrozen(wasFrozen);
+		}
+	}
+
 	private void initialize() {
 		initialize(false);
 	}
@@ -677,10 +1037,12 @@ public class LearnOneClause extends StateBasedSearchTask {
      * @return True if the example is true, false otherwise.
      */
 	boolean proveExample(Clause clause, Example ex) {
+		return proveExample(clause.posLiterals.get(0), clause.negLiterals, ex);
+	}
+
+	boolean proveExample(Literal head, List<Literal> clauseBody, Example ex) {
 
         try {
-            Literal head = clause.posLiterals.get(0);
-            List<Literal> clauseBody = clause.negLiterals;
             BindingList bindingList = unifier.unify(head, ex);
 
             if (bindingList == null) {
@@ -730,7 +1092,8 @@ public class LearnOneClause extends StateBasedSearchTask {
        }
 
         if (posSeedIndices != null && posSeedIndices.length > 0) {
-			seedPosExamples = new ArrayList<>(posSeedIndices.length);
+			seedPosExamples   = new ArrayList<>(posSeedIndices.length);
+			seedPosExampleIds = null;
 			for (int index : posSeedIndices) {
 				if (index < 0 || index >= numberOfPosEx) { Utils.error("Pos seed index " + index + " must be in [0," + (numberOfPosEx - 1) + "]"); }
 				Example chosenExample = getPosExamples().get(index);
@@ -745,7 +1108,8 @@ public class LearnOneClause extends StateBasedSearchTask {
 			}
 		}
 		if (negSeedIndices != null && negSeedIndices.length > 0) {
-			seedNegExamples = new ArrayList<>(negSeedIndices.length);
+			seedNegExamples   = new ArrayList<>(negSeedIndices.length);
+			seedNegExampleIds = null;
 			for (int index : negSeedIndices) {
 				if (index < 0 || index >= numberOfNegEx) { Utils.error("Neg seed index " + index + " must be in [0," + (numberOfNegEx - 1) + "]"); }
 				Example chosenExample = getNegExamples().get(index);
@@ -761,6 +1125,13 @@ public class LearnOneClause extends StateBasedSearchTask {
 	}
 
 
+	// Puts back negative seeds that were replaced (see ILPouterLoop.learnTreeNodesAtOnce).
+	void restoreSeedNegExamples(List<Example> seedNegExamples) {
+		this.seedNegExamples = seedNegExamples;
+		seedNegExampleIds    = null;
+		setSeedWgtedCounts();
+	}
+
 	private void setSeedWgtedCounts() {
 		totalWeightOnPosSeeds = Example.getWeightOfExamples(seedPosExamples);
 		totalWeightOnNegSeeds = Example.getWeightOfExamples(seedNegExamples);
@@ -1159,10 +1530,11 @@ public class LearnOneClause extends StateBasedSearchTask {
 
 	// This method helps select constants to fill arguments of type # during ILP search.
 	void collectConstantBindings(List<Term> args) {
-		if (collectedConstantBindings == null) { collectedConstantBindings = new ArrayList<>(8); }
-		if (Utils.getSizeSafely(collectedConstantBindings) >= 1000) { return; } // In case there are a huge number of constants, limit to 1000.  Ideally would collect a random set, but that doesn't seem worth the effort.
+		List<List<Term>> collected = collectedConstantBindings.get();
+		if (collected == null) { collected = new ArrayList<>(8); collectedConstantBindings.set(collected); }
+		if (Utils.getSizeSafely(collected) >= 1000) { return; } // In case there are a huge number of constants, limit to 1000.  Ideally would collect a random set, but that doesn't seem worth the effort.
 		int len1 = Utils.getSizeSafely(args);
-		for (List<Term> entry : collectedConstantBindings) {
+		for (List<Term> entry : collected) {
 			if (len1 != Utils.getSizeSafely(entry)) { continue; } // Should be the same size, but check anyway.
 			boolean foundDifference = false;
 			for (ListIterator<Term> terms1 = args.listIterator(), terms2 = entry.listIterator(); terms1.hasNext(); ) {
@@ -1174,7 +1546,7 @@ public class LearnOneClause extends StateBasedSearchTask {
 			if (!foundDifference) { return; } // Have found a matching list, so this is a duplicate and can be ignored.
 
 		}
-		collectedConstantBindings.add(args); // Should check for duplicates!
+		collected.add(args); // Should check for duplicates!
 	}
 
 	private void setDirectoryName(String dir) {
@@ -1193,6 +1565,7 @@ public class LearnOneClause extends StateBasedSearchTask {
 
     void setPosExamples(List<Example> posExamples) {
         this.posExamples = posExamples;
+        posExampleIds    = null;
         
         if (this.posExamples == null) { this.posExamples = new ArrayList<>(0); } // Use an empty list (rather than null) so we know this has been called.
 
@@ -1202,6 +1575,7 @@ public class LearnOneClause extends StateBasedSearchTask {
 
     void setNegExamples(List<Example> negExamples) {
         this.negExamples = negExamples;
+        negExampleIds    = null;
 
         // We should probably count the weights and stuff here...
         totalNegWeight = Example.getWeightOfExamples(negExamples);
@@ -1224,7 +1598,27 @@ public class LearnOneClause extends StateBasedSearchTask {
 	}
 
 	List<List<Literal>> getOptimizedClauseBodies(Literal target, List<Literal> clauseBody) {
-		return stringHandler.getClauseOptimizer().bodyToBodies(target, clauseBody);
+		List<List<Literal>> bodies = stringHandler.getClauseOptimizer().bodyToBodies(target, clauseBody);
+		if (factStatistics == null || bodies == null) { return bodies; }
+		List<List<Literal>> reorderedBodies = new ArrayList<>(bodies.size());
+		for (List<Literal> body : bodies) {
+			reorderedBodies.add(stringHandler.getClauseOptimizer().reorderLiterals(target, body, factStatistics));
+		}
+		return reorderedBodies;
+	}
+
+	// The literals of a clause body in the order to prove them.
+	List<Literal> getLiteralsInProvingOrder(Literal target, List<Literal> clauseBody) {
+		if (factStatistics == null) { return clauseBody; }
+		return stringHandler.getClauseOptimizer().reorderLiterals(target, clauseBody, factStatistics);
+	}
+
+	/*
+	 * Before proving the body of a clause, reorder its literals so that those expected to match the fewest facts go first
+	 * (see ClauseOptimiser.reorderLiterals).  The counts of facts come from the clausebase (see FactStatistics).
+	 */
+	public void setUseLiteralReordering(boolean reorderLiterals) {
+		factStatistics = (reorderLiterals ? new FactStatistics(context.getClausebase()) : null);
 	}
 
     public HornClauseContext getContext() {
@@ -1323,7 +1717,16 @@ public class LearnOneClause extends StateBasedSearchTask {
 		resetAllForReal();
 		if (seedPosExamples != null) { seedPosExamples.clear(); }
 		if (seedNegExamples != null) { seedNegExamples.clear(); }
-		if (collectedConstantBindings != null) { collectedConstantBindings.clear(); }
+		clearCollectedConstantBindings();
+	}
+
+	// The constants collected on the calling thread by collectConstantBindings(), or null if none.
+	List<List<Term>> getCollectedConstantBindings() {
+		return collectedConstantBindings.get();
+	}
+
+	void clearCollectedConstantBindings() {
+		collectedConstantBindings.remove();
 	}
 
     public FileParser getParser() {
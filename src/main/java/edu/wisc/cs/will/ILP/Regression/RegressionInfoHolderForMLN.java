@@ -9,6 +9,8 @@ import edu.wisc.cs.will.Utils.ProbDistribution;
 import edu.wisc.cs.will.Utils.Utils;
 import edu.wisc.cs.will.stdAIsearch.SearchInterrupted;
 
+import java.util.BitSet;
+
 /*
  * @author tkhot
  */
@@ -22,14 +24,18 @@ public class RegressionInfoHolderForMLN extends RegressionInfoHolderForRDN {
 	public void populateExamples(LearnOneClause task, SingleClauseNode caller) throws SearchInterrupted {
 		if (!task.regressionTask) { Utils.error("Should call this when NOT doing regression."); }
 		if (caller.getPosCoverage() < 0.0) { caller.computeCoverage(); }
+		int[]  posIds   = task.getPosExampleIds();
+		BitSet excluded = caller.getPosExamplesExcluded(); // Look these up once, rather than walking up the ancestors for each example.
+		int    posIndex = 0;
 		for (Example posEx : task.getPosExamples()) {
+			boolean reachesHere = !excluded.get(posIds[posIndex++]);
 			double weight = posEx.getWeightOnExample();
 			double output = ((RegressionExample) posEx).getOutputValue();
 			ProbDistribution prob   = ((RegressionRDNExample)posEx).getProbOfExample();
 			if (prob.isHasDistribution()) {
 				Utils.error("Expected single probability value but contains distribution");
 			}
-			if (!caller.posExampleAlreadyExcluded(posEx)) {
+			if (reachesHere) {
 				long num = 1;
 				if (caller != caller.getRootNode()) {
 					num  = caller.getNumberOfGroundingsForRegressionEx(posEx);
@@ -1,6 +1,7 @@
 package edu.wisc.cs.will.ILP;
 
 import edu.wisc.cs.will.Utils.Utils;
+import edu.wisc.cs.will.stdAIsearch.SearchInterrupted;
 import edu.wisc.cs.will.stdAIsearch.SearchNode;
 
 public class ScoreRegressionNode extends ScoreSingleClauseByAccuracy {
@@ -22,9 +23,13 @@ public class ScoreRegressionNode extends ScoreSingleClauseByAccuracy {
 		return -scalingPenalties * getPenalties(node, false);
 	}
 	
-	public double scoreThisNode(SearchNode nodeRaw) {
+	public double scoreThisNode(SearchNode nodeRaw) throws SearchInterrupted {
 		SingleClauseNode node  = (SingleClauseNode)nodeRaw;
 		if (!Double.isNaN(node.score)) { return node.score; }
+		if (node.wasAbandoned()) { // See LearnOneClause.setUseAdaptiveCoverage().
+			node.score = node.getMaxScoreWhenAbandoned();
+			return node.score;
+		}
 		double fit     = (forMLNs ? node.regressionFitForMLNs() : node.regressionFit());
 		double penalty = scalingPenalties * (getPenalties(node, true));
 
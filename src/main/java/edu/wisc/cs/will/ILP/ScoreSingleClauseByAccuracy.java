@@ -20,7 +20,7 @@ public class ScoreSingleClauseByAccuracy extends ScoreSingleClause {
 	ScoreSingleClauseByAccuracy() {
 	}
 	
-	double getPenalties(SingleClauseNode node, boolean includeSingletonCount) {
+	synchronized double getPenalties(SingleClauseNode node, boolean includeSingletonCount) { // Synchronized since pNamesSeen is shared, and SingleClauseNode.computeCoverage() can call this while scoring in parallel.
 		List<Variable> allVariables = node.collectAllVariables();
 		List<Constant> allConstants = node.collectAllConstants();
 		pNamesSeen.clear();
@@ -8,6 +8,7 @@ import edu.wisc.cs.will.FOPC.*;
 import edu.wisc.cs.will.ILP.Regression.BranchStats;
 import edu.wisc.cs.will.ILP.Regression.RegressionInfoHolder;
 import edu.wisc.cs.will.ResThmProver.HornClauseProver;
+import edu.wisc.cs.will.ResThmProver.JoinPlanEvaluator;
 import edu.wisc.cs.will.Utils.Utils;
 import edu.wisc.cs.will.stdAIsearch.SearchInterrupted;
 import edu.wisc.cs.will.stdAIsearch.SearchNode;
@@ -22,6 +23,8 @@ import java.util.*;
 
 public class SingleClauseNode extends SearchNode implements Serializable{
 	private final static boolean renameAllVariablesWheneverPrinting = true;
+
+	private static final BitSet NO_EXAMPLES = new BitSet(); // What the parent of the root excludes.  Never changed.
 	
 	Literal literalAdded    = null;
 	double  score           = Double.NaN; // Cache these to save recomputing (recomputing fast except for regression?).
@@ -32,14 +35,19 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 	private List<AnnotatedLiteral>   dontReconsider = null; // If something is discarded at some point, don't reconsider it further down the search tree.  DON'T COPY (in buildNewAncestor) THIS WHEN REMOVING AN INTERMEDIATE LITERAL SINCE THAT INTERMEDIATE LITERAL MIGHT BE THE REASON FOR AN ENTRY (SO NEED TO RECREATE THE ONES THAT SHOULD HAVE BEEN KEPT).
 	int                predicateOccurrences = 0;    // Count of how often this literal's predicate has occurred (this is a CUMULATIVE count from this node, assuming this predicate was added here, to the root).
 	int    predicateOccurrencesPerFixedVars = 0;    // Count of how often this literal's predicate has occurred FOR THESE + and # variables (also a CUMULATIVE count).  This is how Aleph limits counts.
-	List<Literal>            canonicalForm  = null; // Once put into a canonical form, cache it.
-	private Set<Example>  posExamplesThatFailedHere = null; // Record where each example fails to be satisfied.
-	private Set<Example>  negExamplesThatFailedHere = null; // Save space by not creating these until some examples fail at a node.
+	VisitedClauses.ClauseKey canonicalForm  = null; // Once put into a canonical form (for CLOSED), cache it.
+	private BitSet        posExamplesThatFailedHere = null; // Record where each example fails to be satisfied (by the ids from LearnOneClause.getExampleId).
+	private BitSet        negExamplesThatFailedHere = null; // Save space by not creating these until some examples fail at a node.
+	private volatile BitSet posExamplesExcluded     = null; // The union of the failures here and at the ancestors, kept once the coverage here is computed.  Callers must not change it.
+	private volatile BitSet negExamplesExcluded     = null;
+	private boolean       computingCoverage         = false; // The failures here are not final while this is set.
 	Map<Type,List<Term>>           typesMap = null; // AlsogetConstrainsArgumentTypes store this piece-by-piece at nodes (i.e., need to climb to root to collect/check all of them).
 	private   Map<Term,Type>          typesOfNewTerms = null; // Record the types of new terms, if any, added here.  Used in at least the case where when evaluated on the full dataset a node has insufficient positive coverage to be kept.  This prevents it from being considered again.
 	Map<Term,Integer>           depthOfArgs = null; // For each 'leaf term' (i.e., recur into functions) in this clause's literal, record its distance from the head.  An input var's depth is the depth of its parent.  An output var's depth is 1 + the max depth of all the input args in the literal.
 	final boolean                         pruneMe = false;// Can do some pruning here that the normal pruners don't handle.
 	boolean                        timedOut = false;
+	private double  maxScoreWhenAbandoned = Double.NaN; // Set if computeCoverage() gave up since this clause could not score well enough to matter (see LearnOneClause.setUseAdaptiveCoverage).
+	private int[]   failuresAmongChildren = null;       // How many of this node's children failed on each positive example (by id).  Only kept when using adaptive coverage.
 	private   String                      extraString = null; // Used to augment the comment in the toString() with info about the examples that reach this node.
 	
 	private SingleClauseNode 	 startingNodeForReset = null; // Everytime we select new examples, we reset the scores but we lose the starting node information.(this is not a parent node when number of literals per node >1)
@@ -240,27 +248,33 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 		return ((SingleClauseRootNode) this).target;
 	}
 	
-	private double wgtedCountOfPosExamplesCovered(List<Example> posExamples) throws SearchInterrupted {
+	private double wgtedCountOfPosExamplesCovered(List<Example> posExamples, int[] posIds) throws SearchInterrupted {
 		LearnOneClause   theILPtask = (LearnOneClause) task;
 		SingleClauseNode parent     = getParentNode();
 		Literal          target     = getTarget();
 		List<Literal>    clauseBody = getClauseBody();  // To save space in OPEN, compute this when needed.
 		double           total      = 0.0;
 
-		for (Example posEx : posExamples) if (parent == null || !parent.posExampleAlreadyExcluded(posEx)) { 
+		BitSet           excluded   = (parent == null ? NO_EXAMPLES : parent.getPosExamplesExcluded());
+		int              posIndex   = 0;
+
+		for (Example posEx : posExamples) if (!excluded.get(posIds[posIndex++])) { 
 			if (proveExample(theILPtask, target, clauseBody, posEx, theILPtask.bindings)) { total += posEx.getWeightOnExample(); }
 		}
 		return total;
 	}
 	
-	private double wgtedCountOfNegExamplesCovered(List<Example> negExamples) throws SearchInterrupted {
+	private double wgtedCountOfNegExamplesCovered(List<Example> negExamples, int[] negIds) throws SearchInterrupted {
 		LearnOneClause   theILPtask = (LearnOneClause) task;
 		SingleClauseNode parent     = getParentNode();
 		Literal          target     = getTarget();
 		List<Literal>    clauseBody = getClauseBody();  // To save space in OPEN, compute this when needed.
 		double           total      = 0.0;
 		
-		for (Example negEx : negExamples) if (parent == null || !parent.negExampleAlreadyExcluded(negEx)) { 
+		BitSet           excluded   = (parent == null ? NO_EXAMPLES : parent.getNegExamplesExcluded());
+		int              negIndex   = 0;
+
+		for (Example negEx : negExamples) if (!excluded.get(negIds[negIndex++])) { 
 			if (proveExample(theILPtask, target, clauseBody, negEx, theILPtask.bindings)) { total += negEx.getWeightOnExample(); }
 		}
 		return total;
@@ -378,7 +392,7 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 		double posSeedWgtedCount;
 	
 		if (theILPtask.totalWeightOnPosSeeds > 0.0 && theILPtask.seedPosExamples != null) {
-			posSeedWgtedCount = wgtedCountOfPosExamplesCovered(theILPtask.seedPosExamples);
+			posSeedWgtedCount = wgtedCountOfPosExamplesCovered(theILPtask.seedPosExamples, theILPtask.getSeedPosExampleIds());
 			return !(posSeedWgtedCount < theILPtask.clausesMustCoverFractPosSeeds * theILPtask.totalWeightOnPosSeeds);
 		} else { // Comment this out if we really want this case.
 			Utils.waitHere("Why totalWeightOnPosSeeds = " + theILPtask.totalWeightOnPosSeeds + " and |theILPtask.seedPosExamples| = " + Utils.comma(theILPtask.seedPosExamples));
@@ -391,7 +405,7 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 		double negSeedWgtedCount;
 
 		if (theILPtask.totalWeightOnNegSeeds > 0 && theILPtask.seedNegExamples != null) {
-			negSeedWgtedCount = wgtedCountOfNegExamplesCovered(theILPtask.seedNegExamples);
+			negSeedWgtedCount = wgtedCountOfNegExamplesCovered(theILPtask.seedNegExamples, theILPtask.getSeedNegExampleIds());
 
 			return !(negSeedWgtedCount >= 0.501 * theILPtask.totalWeightOnNegSeeds);
 		}
@@ -407,7 +421,10 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 
 		int    counter              = 0;
 		double minCount             = theILPtask.getMinPosCoverage();
-		for (Example posEx : theILPtask.getPosExamples()) if (parent == null || !parent.posExampleAlreadyExcluded(posEx)) { // Don't check HERE (i.e., start at parent) since we don't want to call computCoverage).
+		int[]  posIds               = theILPtask.getPosExampleIds();
+		BitSet excluded             = (parent == null ? NO_EXAMPLES : parent.getPosExamplesExcluded()); // Don't check HERE (i.e., start at parent) since we don't want to call computCoverage).
+		int    posIndex             = 0;
+		for (Example posEx : theILPtask.getPosExamples()) if (!excluded.get(posIds[posIndex++])) {
 			if (proveExample(theILPtask, target, clauseBody, posEx, theILPtask.bindings)) { 
 				counter += posEx.getWeightOnExample();
 			}
@@ -471,6 +488,15 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 	
 	// Only prove those examples covered by the parent node (but don't want to use too much space).
 	public void computeCoverage() throws SearchInterrupted {
+		computingCoverage = true;
+		try {
+			help_computeCoverage();
+		} finally {
+			computingCoverage = false;
+		}
+	}
+
+	private void help_computeCoverage() throws SearchInterrupted {
 		LearnOneClause   theILPtask = (LearnOneClause) task;
 		HornClauseProver prover     = theILPtask.getProver();
 		Literal          target     = getTarget();
@@ -483,29 +509,79 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 
 		List<List<Literal>> optimizedClauseBodies = null;
 
+		// See if the examples were already proven for this clause in an earlier search.  If not, remember what is proven here for later searches.
+		CoverageCache            coverageCache = theILPtask.getCoverageCache();
+		VisitedClauses.ClauseKey coverageKey   = null;
+		CoverageCache.Entry      cached        = null;
+		CoverageCache.Outcomes   outcomes      = null;
+		if (coverageCache != null) {
+			coverageKey = coverageCache.createKey(target, clauseBody);
+			if (coverageKey != null) {
+				long factsVersion = theILPtask.context.getClausebase().getFactsVersion();
+				cached = coverageCache.lookup(coverageKey, factsVersion);
+				if (cached != null && !cachedCoverageIsComplete(theILPtask, cached)) { cached = null; }
+				if (cached == null) { outcomes = new CoverageCache.Outcomes(factsVersion); }
+			}
+		}
+
+		// See if all the examples that reach this clause can be proven at once.  If so, they are still counted below in order.
+		BitSet provableByJoin = null;
+		if (cached == null && theILPtask.useBatchCoverage() && Utils.getSizeSafely(clauseBody) > 0) {
+			provableByJoin = proveByJoin(theILPtask, target, clauseBody, outcomes);
+		}
+
 		// To save time, if posCoverage is not going to reach theILPtask.minPosCoverage stop.
 		if (getPosCoverage() < 0.0) {
 			extraString = null; // Reset this whenever the coverage changes.
+			int[]  posIds                 = theILPtask.getPosExampleIds();
+			BitSet excludedByParent       = (parent == null ? NO_EXAMPLES : parent.getPosExamplesExcluded()); // Don't look at THIS node or we'll have an infinite loop.
 			double maxPossiblePosCoverage = 0.0;
-			if (stopWhenUnacceptable) for (Example posEx : theILPtask.getPosExamples()) if (parent == null || !parent.posExampleAlreadyExcluded(posEx)) { // Don't look at THIS node or we'll have an infinite loop.
+			int    posIndex               = 0;
+			if (stopWhenUnacceptable) for (Example posEx : theILPtask.getPosExamples()) if (!excludedByParent.get(posIds[posIndex++])) {
 				maxPossiblePosCoverage += posEx.getWeightOnExample(); // See how much is possible
 			}
 			setPosCoverage(0.0);
 			firstTime = true;
 
+			// If proven out of order, the examples are still counted below in order, so the statistics sum exactly as otherwise.
+			BitSet provableInAdaptiveOrder = null;
+			if (cached == null && provableByJoin == null && theILPtask.useAdaptiveCoverage() && theILPtask.getPosExamples() != null) {
+				if (optimizedClauseBodies == null) { optimizedClauseBodies = getOptimizedClauseBodies(theILPtask, target, clauseBody); }
+				provableInAdaptiveOrder = new BitSet();
+				totalResolutions        = proveInAdaptiveOrder(theILPtask, optimizedClauseBodies, excludedByParent, outcomes, provableInAdaptiveOrder);
+				if (!Double.isNaN(maxScoreWhenAbandoned)) {
+					setPosCoverage(0.0); // As when timing out, since the coverage is only partially known.
+					negCoverage = 0.0;
+					timedOut    = true;
+					extraString = "Coverage only partially computed - could not score above " + Utils.truncate(maxScoreWhenAbandoned, 6) + ".";
+					if (outcomes != null) { coverageCache.store(coverageKey, outcomes); }
+					return;
+				}
+			}
+
 			if (theILPtask.getPosExamples() != null) {
+				posIndex = 0;
 				for (Example posEx : theILPtask.getPosExamples()) {
-					if (parent == null || !parent.posExampleAlreadyExcluded(posEx)) { // Don't look at THIS node or we'll have an infinite loop.
-						if (optimizedClauseBodies == null) { optimizedClauseBodies = getOptimizedClauseBodies(theILPtask, target, clauseBody); }
-						prover.setNodesCreated(0); // This counter gets reset when performSearch() is called, but that might not happen (eg, if the body is empty).
-						// proveExample() clears the bindings, so no need to do so here.
-						if (proveExampleBodies(theILPtask, target, optimizedClauseBodies, posEx, theILPtask.bindings)) {
+					int posId = posIds[posIndex++];
+					if (!excludedByParent.get(posId)) {
+						boolean proven;
+						if      (cached                  != null) { proven = cached.isProvable(posId); }
+						else if (provableByJoin          != null) { proven = provableByJoin.get(posId); }
+						else if (provableInAdaptiveOrder != null) { proven = provableInAdaptiveOrder.get(posId); }
+						else {
+							if (optimizedClauseBodies == null) { optimizedClauseBodies = getOptimizedClauseBodies(theILPtask, target, clauseBody); }
+							prover.setNodesCreated(0); // This counter gets reset when performSearch() is called, but that might not happen (eg, if the body is empty).
+							// proveExample() clears the bindings, so no need to do so here.
+							proven = proveExampleBodies(theILPtask, target, optimizedClauseBodies, posEx, theILPtask.getBindings());
+							if (outcomes != null) { outcomes.record(posId, proven, prover.getNodesCreated()); }
+						}
+						if (proven) {
 							setPosCoverage(getPosCoverage() + posEx.getWeightOnExample());
 						}
 						else {
 							maxPossiblePosCoverage -= posEx.getWeightOnExample(); // Lost out on this.
-						if (posExamplesThatFailedHere == null) { posExamplesThatFailedHere = new HashSet<>(); }
-						posExamplesThatFailedHere.add(posEx);
+						if (posExamplesThatFailedHere == null) { posExamplesThatFailedHere = new BitSet(); }
+						posExamplesThatFailedHere.set(posId);
 						if (theILPtask.regressionTask) {
 							if (cachedLocalRegressionInfoHolder == null) {  // Don't create until needed.
 								cachedLocalRegressionInfoHolder = new LocalRegressionInfoHolder();
@@ -520,7 +596,7 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 
 						}
 						} 
-						totalResolutions += prover.getNodesCreated();
+						if (cached == null && provableByJoin == null && provableInAdaptiveOrder == null) { totalResolutions += prover.getNodesCreated(); } // When cached, cachedCoverageIsComplete() made sure the limit below could not have been reached.
 						if (totalResolutions > theILPtask.maxResolutionsPerClauseEval) {
 							tookTooLong = true;
 							extraString = "Coverage only partially computed- took too long to compute.";
@@ -532,6 +608,7 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 							negCoverage = 0.0; 
 							extraString = "Coverage only partially computed. (maxPossiblePosCoverage = " + Utils.truncate(maxPossiblePosCoverage, 3)
 									+ " and MinPosCoverage = " + Utils.truncate(theILPtask.getMinPosCoverage(), 3) + ")";
+							if (outcomes != null) { coverageCache.store(coverageKey, outcomes); }
 							return; // No need continuing.
 						}				
 					}
@@ -539,7 +616,12 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 				if (theILPtask.regressionTask &&
 						theILPtask.mlnRegressionTask &&
 						posExamplesThatFailedHere != null) {
-					for (Example posEx : posExamplesThatFailedHere) {
+					BitSet counted = new BitSet();
+					posIndex = 0;
+					for (Example posEx : theILPtask.getPosExamples()) {
+						int posId = posIds[posIndex++];
+						if (!posExamplesThatFailedHere.get(posId) || counted.get(posId)) { continue; } // Count equal examples once.
+						counted.set(posId);
 						long num = 1;
 						if (parent != null && parent != getRootNode()) {
 							num = parent.getNumberOfGroundingsForRegressionEx(posEx);
@@ -560,17 +642,29 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 			negCoverage = 0.0;
 			firstTime = true;
 			prover.setNodesCreated(0); // This counter gets reset when performSearch() is called, but that might not happen (e.g., if the body is empty).
-			if (theILPtask.getNegExamples() != null) for (Example negEx : theILPtask.getNegExamples()) if (parent == null || !parent.negExampleAlreadyExcluded(negEx))  {
-				if (optimizedClauseBodies == null) { optimizedClauseBodies = getOptimizedClauseBodies(theILPtask, target, clauseBody); }
-				// proveExample() clears the bindings, so no need to do so here.
-				if (proveExampleBodies(theILPtask, target, optimizedClauseBodies, negEx, theILPtask.bindings)) {
+			int[]  negIds           = theILPtask.getNegExampleIds();
+			BitSet excludedByParent = (parent == null ? NO_EXAMPLES : parent.getNegExamplesExcluded());
+			int    negIndex         = 0;
+			if (theILPtask.getNegExamples() != null) for (Example negEx : theILPtask.getNegExamples()) {
+				int negId = negIds[negIndex++];
+				if (excludedByParent.get(negId)) { continue; }
+				boolean proven;
+				if      (cached         != null) { proven = cached.isProvable(negId); }
+				else if (provableByJoin != null) { proven = provableByJoin.get(negId); }
+				else {
+					if (optimizedClauseBodies == null) { optimizedClauseBodies = getOptimizedClauseBodies(theILPtask, target, clauseBody); }
+					// proveExample() clears the bindings, so no need to do so here.
+					proven = proveExampleBodies(theILPtask, target, optimizedClauseBodies, negEx, theILPtask.getBindings());
+					if (outcomes != null) { outcomes.record(negId, proven, prover.getNodesCreated()); }
+				}
+				if (proven) {
 					negCoverage += negEx.getWeightOnExample();
 				}
 				else { 
-					if (negExamplesThatFailedHere == null) { negExamplesThatFailedHere = new HashSet<>(); }
-					negExamplesThatFailedHere.add(negEx);
+					if (negExamplesThatFailedHere == null) { negExamplesThatFailedHere = new BitSet(); }
+					negExamplesThatFailedHere.set(negId);
 				}
-				totalResolutions += prover.getNodesCreated();
+				if (cached == null && provableByJoin == null) { totalResolutions += prover.getNodesCreated(); }
 				if (totalResolutions > theILPtask.maxResolutionsPerClauseEval) {
 					tookTooLong = true;
 					extraString = "Coverage only partially computed - took too long to compute.";
@@ -578,6 +672,7 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 				}
 			}
 		}
+		if (outcomes != null) { coverageCache.store(coverageKey, outcomes); }
 
 		if (tookTooLong) { // Would be nice to report more info regarding when the time-out occurred, but don't bother with extra counters.
 			setPosCoverage(0.0); // When we abandon, we simply assume a clause is never true and never keep in the Gleaner.
@@ -595,20 +690,210 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 			theILPtask.continueTheSearch = false;
 		}
 	}
+	// True if the cached coverage covers every example computeCoverage() would prove, and proving them all could not have taken too many resolutions.
+	private boolean cachedCoverageIsComplete(LearnOneClause theILPtask, CoverageCache.Entry cached) throws SearchInterrupted {
+		SingleClauseNode parent           = getParentNode();
+		int              numberOfExamples = 0;
+		if (getPosCoverage() < 0.0 && theILPtask.getPosExamples() != null) {
+			BitSet excludedByParent = (parent == null ? NO_EXAMPLES : parent.getPosExamplesExcluded());
+			for (int posId : theILPtask.getPosExampleIds()) if (!excludedByParent.get(posId)) {
+				if (!cached.isKnown(posId)) { return false; }
+				numberOfExamples++;
+			}
+		}
+		if (negCoverage < 0.0 && theILPtask.getNegExamples() != null) {
+			BitSet excludedByParent = (parent == null ? NO_EXAMPLES : parent.getNegExamplesExcluded());
+			for (int negId : theILPtask.getNegExampleIds()) if (!excludedByParent.get(negId)) {
+				if (!cached.isKnown(negId)) { return false; }
+				numberOfExamples++;
+			}
+		}
+		return cached.withinResolutionLimit(numberOfExamples, theILPtask.maxResolutionsPerClauseEval);
+	}
+
+	/*
+	 * Runs the body of this clause as a join over the facts (see JoinPlanEvaluator), for the examples that reach this node and whose
+	 * coverage has not yet been computed.  Returns the ids of the covered examples, or null if the body cannot be run this way or the
+	 * join took more than maxResolutionsPerClauseEval, in which case the examples are proven one at a time.
+	 */
+	private BitSet proveByJoin(LearnOneClause theILPtask, Literal target, List<Literal> clauseBody, CoverageCache.Outcomes outcomes) throws SearchInterrupted {
+		SingleClauseNode parent   = getParentNode();
+		List<Example>    examples = new ArrayList<>();
+		List<Integer>    ids      = new ArrayList<>();
+		if (getPosCoverage() < 0.0 && theILPtask.getPosExamples() != null) {
+			BitSet excludedByParent = (parent == null ? NO_EXAMPLES : parent.getPosExamplesExcluded());
+			int[]  posIds           = theILPtask.getPosExampleIds();
+			int    posIndex         = 0;
+			for (Example posEx : theILPtask.getPosExamples()) {
+				int posId = posIds[posIndex++];
+				if (!excludedByParent.get(posId)) { examples.add(posEx); ids.add(posId); }
+			}
+		}
+		if (negCoverage < 0.0 && theILPtask.getNegExamples() != null) {
+			BitSet excludedByParent = (parent == null ? NO_EXAMPLES : parent.getNegExamplesExcluded());
+			int[]  negIds           = theILPtask.getNegExampleIds();
+			int    negIndex         = 0;
+			for (Example negEx : theILPtask.getNegExamples()) {
+				int negId = negIds[negIndex++];
+				if (!excludedByParent.get(negId)) { examples.add(negEx); ids.add(negId); }
+			}
+		}
+		JoinPlanEvaluator.Result result = theILPtask.createJoinPlanEvaluator().evaluate(target, theILPtask.getLiteralsInProvingOrder(target, clauseBody), examples);
+		if (result == null) { return null; }
+
+		BitSet provable = new BitSet();
+		for (int i = 0; i < ids.size(); i++) {
+			boolean proven = result.isCovered(i);
+			if (proven) { provable.set(ids.get(i)); }
+			if (outcomes != null) { outcomes.record(ids.get(i), proven, 0); } // The whole join was within maxResolutionsPerClauseEval.
+		}
+		return provable;
+	}
+
+	/*
+	 * Proves the positive examples that reach this node, starting with those the most siblings failed on, since they are the
+	 * likeliest to separate this clause from the others.  As they are proven, the score of this clause is bounded by the
+	 * scorer's computeMaxPossibleScore() less the squared error of what has been proven so far (adding examples to a branch never
+	 * lowers its squared error), and this clause is abandoned once that bound is below LearnOneClause.getScoreNeededToMatter().
+	 * Returns the resolutions used.  The ids of the covered examples go in provable, and maxScoreWhenAbandoned is set if abandoned.
+	 */
+	private long proveInAdaptiveOrder(LearnOneClause theILPtask, List<List<Literal>> optimizedClauseBodies, BitSet excludedByParent,
+									  CoverageCache.Outcomes outcomes, BitSet provable) throws SearchInterrupted {
+		HornClauseProver  prover      = theILPtask.getProver();
+		Literal           target      = getTarget();
+		SingleClauseNode  parent      = getParentNode();
+		List<Example>     posExamples = theILPtask.getPosExamples();
+		int[]             posIds      = theILPtask.getPosExampleIds();
+		ScoreSingleClause scorer      = (ScoreSingleClause) theILPtask.scorer;
+		double maxPossibleScore = scorer.computeMaxPossibleScore(this); // I.e., if the examples on each branch all had the same output.
+		double scoreNeeded      = theILPtask.getScoreNeededToMatter(this);
+
+		RegressionInfoHolder coveredStats = theILPtask.getNewRegressionHolderForTask(); // Only its failure statistics are used, to hold the examples covered here.
+		RegressionInfoHolder failedStats  = theILPtask.getNewRegressionHolderForTask().addFailureStats(parent == null ? null : parent.getTotalFalseBranchHolder());
+		BitSet               failedHere   = new BitSet();
+		long                 resolutions  = 0;
+		for (int posIndex : (parent == null ? getExampleOrder(posIds, excludedByParent) : parent.getExampleOrderForChildren(posIds, excludedByParent))) {
+			Example posEx = posExamples.get(posIndex);
+			int     posId = posIds[posIndex];
+			prover.setNodesCreated(0);
+			boolean proven = proveExampleBodies(theILPtask, target, optimizedClauseBodies, posEx, theILPtask.getBindings());
+			if (outcomes != null) { outcomes.record(posId, proven, prover.getNodesCreated()); }
+			resolutions += prover.getNodesCreated();
+			if (proven) {
+				provable.set(posId);
+				coveredStats.addFailureExample(posEx, 1, posEx.getWeightOnExample());
+			} else {
+				failedHere.set(posId);
+				failedStats.addFailureExample(posEx, 1, posEx.getWeightOnExample());
+			}
+			if (resolutions > theILPtask.maxResolutionsPerClauseEval) { break; }
+			double maxScoreSoFar = maxPossibleScore - (coveredStats.weightedVarianceAtFailure() + failedStats.weightedVarianceAtFailure());
+			if (maxScoreSoFar < scoreNeeded) {
+				maxScoreWhenAbandoned = maxScoreSoFar;
+				break;
+			}
+		}
+		if (parent != null) { parent.recordFailuresOfChild(failedHere); }
+		return resolutions;
+	}
+
+	// The indices of the positive examples that reach the children of this node, those that the most of its children failed on first.
+	private synchronized int[] getExampleOrderForChildren(int[] posIds, BitSet excluded) { // Synchronized since the children may be scored in parallel.
+		return getExampleOrder(posIds, excluded);
+	}
+
+	private int[] getExampleOrder(int[] posIds, BitSet excluded) {
+		long[] keys          = new long[posIds.length];
+		int    numberOfKeys  = 0;
+		for (int posIndex = 0; posIndex < posIds.length; posIndex++) if (!excluded.get(posIds[posIndex])) {
+			int failures = (failuresAmongChildren == null || posIds[posIndex] >= failuresAmongChildren.length ? 0 : failuresAmongChildren[posIds[posIndex]]);
+			keys[numberOfKeys++] = ((long) -failures << 32) | posIndex; // Most failures first, then in the order of the examples.
+		}
+		Arrays.sort(keys, 0, numberOfKeys);
+		int[] order = new int[numberOfKeys];
+		for (int i = 0; i < numberOfKeys; i++) { order[i] = (int) keys[i]; }
+		return order;
+	}
+
+	private synchronized void recordFailuresOfChild(BitSet failedInChild) {
+		if (failedInChild.isEmpty()) { return; }
+		if (failuresAmongChildren == null || failuresAmongChildren.length < failedInChild.length()) {
+			failuresAmongChildren = (failuresAmongChildren == null ? new int[failedInChild.length()] : Arrays.copyOf(failuresAmongChildren, failedInChild.length()));
+		}
+		for (int id = failedInChild.nextSetBit(0); id >= 0; id = failedInChild.nextSetBit(id + 1)) {
+			failuresAmongChildren[id]++;
+		}
+	}
+
+	// Abandoned clauses are scored by the bound that was too low, which is below the score of the clauses they could have replaced.
+	boolean wasAbandoned() throws SearchInterrupted {
+		if (getPosCoverage() < 0.0) { computeCoverage(); }
+		return !Double.isNaN(maxScoreWhenAbandoned);
+	}
+
+	double getMaxScoreWhenAbandoned() {
+		return maxScoreWhenAbandoned;
+	}
+
 	public boolean posExampleAlreadyExcluded(Example example) throws SearchInterrupted {
+		return posExampleAlreadyExcluded(((LearnOneClause) task).getExampleId(example));
+	}
+	private boolean posExampleAlreadyExcluded(int exampleId) throws SearchInterrupted {
+		return getPosExamplesExcluded().get(exampleId);
+	}
+
+	private boolean negExampleAlreadyExcluded(Example example) throws SearchInterrupted {
+		return negExampleAlreadyExcluded(((LearnOneClause) task).getExampleId(example));
+	}
+	private boolean negExampleAlreadyExcluded(int exampleId) throws SearchInterrupted {
+		return getNegExamplesExcluded().get(exampleId);
+	}
+
+	// Used when the children of a node are scored in parallel (see LearnOneClause.computeCoverageOfChildren), so that nothing shared is computed by the workers.
+	void computeCoverageOfAncestors() throws SearchInterrupted {
+		getPosExamplesExcluded();
+		getNegExamplesExcluded();
+		if (((LearnOneClause) task).regressionTask) { getTotalFalseBranchHolder(); }
+	}
+
+	// Everything scoring this node needs that involves proving examples.
+	void computeCoverageAndStatistics() throws SearchInterrupted {
+		LearnOneClause theILPtask = (LearnOneClause) task;
+		computeCoverage();
+		if (theILPtask.regressionTask) { getRegressionInfoHolder(); }
+	}
+
+	/*
+	 * The ids of the examples that failed here or at some ancestor, i.e., the union of the failures up to the root.
+	 * This is kept once the coverage here is computed, since the failures of this node and its ancestors do not change
+	 * after that.  The set returned is shared, so callers must not change it.
+	 */
+	public BitSet getPosExamplesExcluded() throws SearchInterrupted {
+		BitSet result = posExamplesExcluded;
+		if (result != null) { return result; }
 		if (getPosCoverage() < 0.0) { computeCoverage(); }
-		if (posExamplesThatFailedHere != null && posExamplesThatFailedHere.contains(example)) { return true; }
 		SingleClauseNode parent = getParentNode();
-		if (parent == null) { return false; }
-		return parent.posExampleAlreadyExcluded(example);
+		result = unionWithParent(parent == null ? NO_EXAMPLES : parent.getPosExamplesExcluded(), posExamplesThatFailedHere);
+		if (!computingCoverage) { posExamplesExcluded = result; }
+		return result;
 	}
 
-	private boolean negExampleAlreadyExcluded(Literal example) throws SearchInterrupted {
+	private BitSet getNegExamplesExcluded() throws SearchInterrupted {
+		BitSet result = negExamplesExcluded;
+		if (result != null) { return result; }
 		if (negCoverage < 0.0) { computeCoverage(); }
-		if (negExamplesThatFailedHere != null && negExamplesThatFailedHere.contains(example)) { return true; }
 		SingleClauseNode parent = getParentNode();
-		if (parent == null) { return false; }
-		return parent.negExampleAlreadyExcluded(example);
+		result = unionWithParent(parent == null ? NO_EXAMPLES : parent.getNegExamplesExcluded(), negExamplesThatFailedHere);
+		if (!computingCoverage) { negExamplesExcluded = result; }
+		return result;
+	}
+
+	// The parent's set is shared when nothing failed here.
+	private static BitSet unionWithParent(BitSet excludedByParent, BitSet failedHere) {
+		if (failedHere == null || failedHere.isEmpty()) { return excludedByParent; }
+		BitSet result = (BitSet) excludedByParent.clone();
+		result.or(failedHere);
+		return result;
 	}
 	
 	public double precision () throws SearchInterrupted {
@@ -723,7 +1008,7 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 		return parent.dontConsiderThisLiteral(discardDuplicateLiterals, candidate, newTermsInLiteral);
 	}
 	
-	void addToDontConsiderThisLiteral(LearnOneClause thisTask, PredicateName predName, List<Term> args, Map<Term, Type> thisTypesOfNewTerms) {
+	synchronized void addToDontConsiderThisLiteral(LearnOneClause thisTask, PredicateName predName, List<Term> args, Map<Term, Type> thisTypesOfNewTerms) {
 		if (dontReconsider == null) { dontReconsider = new ArrayList<>(1); }
 		Map<Term,Type> typesOfNewTermsInTheseArgs = null;
 		if (thisTypesOfNewTerms != null) {
@@ -737,6 +1022,33 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 		dontReconsider.add(new AnnotatedLiteral(thisTask.stringHandler, predName, args, typesOfNewTermsInTheseArgs));
 	}
 
+	// What a search that starts at this node changes here, so the changes can be undone if the results of the search are discarded (see ILPouterLoop.setNumberOfParallelTreeNodes).
+	static final class StateBeforeSearch {
+		private final SingleClauseNode node;
+		private final int              numberNotToReconsider; // Negative if dontReconsider was null.
+		private final int[]            failuresAmongChildren;
+
+		private StateBeforeSearch(SingleClauseNode node, int numberNotToReconsider, int[] failuresAmongChildren) {
+			this.node                  = node;
+			this.numberNotToReconsider = numberNotToReconsider;
+			this.failuresAmongChildren = failuresAmongChildren;
+		}
+
+		void restore() {
+			node.restoreStateBeforeSearch(this);
+		}
+	}
+
+	StateBeforeSearch saveStateBeforeSearch() {
+		return new StateBeforeSearch(this, (dontReconsider == null ? -1 : dontReconsider.size()), (failuresAmongChildren == null ? null : failuresAmongChildren.clone()));
+	}
+
+	private void restoreStateBeforeSearch(StateBeforeSearch saved) {
+		if (saved.numberNotToReconsider < 0) { dontReconsider = null; }
+		else if (dontReconsider != null) { dontReconsider.subList(saved.numberNotToReconsider, dontReconsider.size()).clear(); }
+		failuresAmongChildren = saved.failuresAmongChildren;
+	}
+
 	// The depth of an argument measures its shortest path, in terms of the number of new variables, to the head.
 	Integer getDepthOfArgument(Term item) {
 		if (depthOfArgs == null) { Utils.error("Should not have depthOfArgs=null!"); }
@@ -857,9 +1169,12 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 			return null;
 		} // For this calculation don't want to go past the current root (but for other cases we do - i.e., when looking for eligible variables to reuse).
 		if (getPosCoverage() < 0) { Utils.error("This should not happen."); } // Should only call via regressionFit (or at least after regressionFit is called). 
-		SingleClauseNode parent = getParentNode();
-		if (parent != null) { return cachedLocalRegressionInfoHolder.getFalseStats().addFailureStats(parent.getTotalFalseBranchHolder()); }
-		return cachedLocalRegressionInfoHolder.getFalseStats();
+		if (cachedLocalRegressionInfoHolder.totalFalseStats == null) { // Keep the total, so each child only adds its own failures to it rather than walking up to the current root.
+			SingleClauseNode parent = getParentNode();
+			if (parent != null) { cachedLocalRegressionInfoHolder.totalFalseStats = cachedLocalRegressionInfoHolder.getFalseStats().addFailureStats(parent.getTotalFalseBranchHolder()); }
+			else                { cachedLocalRegressionInfoHolder.totalFalseStats = cachedLocalRegressionInfoHolder.getFalseStats(); }
+		}
+		return cachedLocalRegressionInfoHolder.totalFalseStats;
 	}
 
 	double meanIfTrue() {
@@ -885,6 +1200,11 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 		this.startingNodeForReset = startingNodeForReset;
 	}
 
+	// Used when a copy of the task searches from this node, so that the nodes it creates below here belong to the copy (see LearnOneClause(LearnOneClause)).
+	void setTask(LearnOneClause task) {
+		this.task = task;
+	}
+
 	// If TRUE, then this branch will become a LEAF.
 	boolean acceptableScoreFalseBranch(double minAcceptableScore) throws SearchInterrupted {
 		LearnOneClause theILPtask = (LearnOneClause) task;	
@@ -907,8 +1227,14 @@ public class SingleClauseNode extends SearchNode implements Serializable{
 		if (getPosCoverage() < 0.0) { computeCoverage(); }
 		double posCoverageFailed = 0.0;
 		double negCoverageFailed = 0.0;
-		for (Example posEx : theILPtask.getPosExamples()) if (posExampleAlreadyExcluded(posEx)) { posCoverageFailed += posEx.getWeightOnExample(); }
-		for (Example negEx : theILPtask.getNegExamples()) if (negExampleAlreadyExcluded(negEx)) { negCoverageFailed += negEx.getWeightOnExample(); }
+		int[]  posIds      = theILPtask.getPosExampleIds();
+		int[]  negIds      = theILPtask.getNegExampleIds();
+		BitSet posExcluded = getPosExamplesExcluded();
+		BitSet negExcluded = getNegExamplesExcluded();
+		int    index       = 0;
+		for (Example posEx : theILPtask.getPosExamples()) if (posExcluded.get(posIds[index++])) { posCoverageFailed += posEx.getWeightOnExample(); }
+		index = 0;
+		for (Example negEx : theILPtask.getNegExamples()) if (negExcluded.get(negIds[index++])) { negCoverageFailed += negEx.getWeightOnExample(); }
 
 		return posCoverageFailed / (posCoverageFailed + negCoverageFailed + theILPtask.getMEstimateNeg());
 	}
@@ -1012,6 +1338,8 @@ public class SingleClauseNode extends SearchNode implements Serializable{
         // Keep it separate from the results holder that is used for computing mean/variance
         // Maybe not needed but better to be safe.
 		RegressionInfoHolder cachedFalseStats;
+		// The failures here plus those at the ancestors up to (but not including) the node where the current search started.
+		RegressionInfoHolder totalFalseStats;
         
         LocalRegressionInfoHolder() {
         }
@@ -1021,6 +1349,7 @@ public class SingleClauseNode extends SearchNode implements Serializable{
         }
         void reset() {
         	cachedFalseStats = null;
+        	totalFalseStats  = null;
             
         }
 
@@ -6,254 +6,268 @@ import edu.wisc.cs.will.stdAIsearch.ClosedList;
 import edu.wisc.cs.will.stdAIsearch.SearchNode;
 
 import java.util.*;
-import java.util.Map.Entry;
 
 /*
  * @author shavlik
- * 
+ *
  * TODO pull out the generic part of this and then specialize for SearchNodes
  *
  */
 public class VisitedClauses extends ClosedList {
-	private final LiteralComparator literalComparator; // Only need one of these even if many instances, but for safety give each instance its own since the space needed is trivial (only one comparator per ILP search).
-	private final Map<Integer,Map<PredicateName,List<List<Literal>>>> canonicalClauses; // Index first on total number of args (dont bother to recur into any functions) + 97 * length.  Then hash on the predicate of the last literal.
-	private int    size    =  0; // Count how many items are in this CLOSED.
-	private int    maxSize = -1; // If size gets close to this, then 1-fractionToKeep of the items are randomly deleted.  A non-pos value means "do not prune CLOSED."
-	private final double fractionToKeep = 0.75; // When CLOSED reaches 90% of its maxSize, discard 25% of the items (which means it will be be about 2/3rds full).
-	private final BindingList tempBindings;
+	private final Map<ClauseKey,Boolean> canonicalClauses; // In least-recently-used order, so the oldest can be evicted once this is full.
+	private int    maxSize = -1; // Once CLOSED holds this many clauses, the least recently used one is discarded for each new one.  A non-pos value means "do not prune CLOSED."
+	private final Map<Object,Integer> symbolIds; // Predicate names, function names and constants, which are all compared by identity.
+	private final Map<String,Integer> argNameIds; // Argument names, which are compared ignoring case.
 
 	/*
-	 * 
-	 * Need a way to put visited clauses in a (quasi)canonical form.  It is ok if there are a few 'false negatives' - ie, ok to revisit 
+	 *
+	 * Need a way to put visited clauses in a (quasi)canonical form.  It is ok if there are a few 'false negatives' - ie, ok to revisit
 	 * a clause since that only wastes CPU time.  However, there should not be any 'false positives,' since in that case a good clause
 	 * might have been discarded.
-	 * 
+	 *
 	 * Current Design
-	 * 	sort the literals in the clause (including the head though that might not be necessary)
-	 *  see if variants
+	 * 	sort the literals in the clause (including the head though that might not be necessary) ignoring their variables, keeping
+	 *    the original order of literals that only differ in their variables
+	 *  number the variables in the order they appear in the sorted literals, and write the clause as a sequence of ints
+	 *  two clauses are variants if their sequences are equal, so CLOSED is simply a hash set of sequences
+	 *
+	 * Variants whose 'tied' literals are in different orders get different sequences, which are the allowed false negatives.
 	 */
-	private VisitedClauses() {
-		literalComparator = new LiteralComparator();
-		canonicalClauses  = new HashMap<>(64);
-		tempBindings      = new BindingList();
+	private VisitedClauses(Map<Object,Integer> symbolIds, Map<String,Integer> argNameIds) {
+		this.symbolIds  = symbolIds;
+		this.argNameIds = argNameIds;
+		canonicalClauses = new LinkedHashMap<ClauseKey,Boolean>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ClauseKey,Boolean> eldest) {
+				return maxSize > 0 && size() > maxSize;
+			}
+		};
 	}
 	VisitedClauses(int maxSize) {
-		this();
-		this.maxSize = maxSize;		
+		this(new IdentityHashMap<>(), new HashMap<>());
+		this.maxSize = maxSize;
 	}
-
-	private void reduceSize(double fraction) { // Reduce the size to about this fraction of its current size.
-		if (fraction <= 0.0) { emptyClosedList(); return; } // Negative fractions interpreted as 'clear all.'
-		if (fraction >= 1.0) { return; }
-		
-		int countIter1removes = 0;
-		// Walk through the hash maps and random discard some literals.
-		Set< Entry<Integer,Map<PredicateName,List<List<Literal>>>>> entrySet1 = canonicalClauses.entrySet();
-		for (Entry<Integer,Map<PredicateName,List<List<Literal>>>>  entry1 : entrySet1) {
-			Map<      PredicateName,List<List<Literal>>>   hashObj1   = entry1.getValue(); // TODO(?) delete this comment if no errors for awhile [8/1/08]  canonicalClauses.get(primaryKey);
-			Set<Entry<PredicateName,List<List<Literal>>>>  entrySet2  = hashObj1.entrySet();
-
-			for (Entry<PredicateName, List<List<Literal>>> entry2 : entrySet2) {
-				PredicateName       secondaryKey = entry2.getKey();
-				List<List<Literal>> storedItems  = hashObj1.get(secondaryKey);
-				Iterator<List<Literal>> iter     = storedItems.iterator();
-				while (iter.hasNext()) if ( Utils.random() > fractionToKeep) {
-					iter.next();
-					iter.remove();
-					size--;
-					countIter1removes++;
-				}
-			}
-		}
-		if (countIter1removes > 0) { removeEmptyPortions(); } // Do some garbage collection (ie, remove portions of CLOSED that contain no literal lists.
+	// An empty CLOSED list that numbers symbols as the given one does, so nodes whose keys were cached by either list can be looked up in both.
+	VisitedClauses(VisitedClauses shareSymbolsWith) {
+		this(shareSymbolsWith.symbolIds, shareSymbolsWith.argNameIds);
+		this.maxSize = shareSymbolsWith.maxSize;
 	}
-	
-	private void removeEmptyPortions() {
-		// Walk through the hash maps and discard if nothing underneath.
-		Set<     Entry<Integer,Map<PredicateName,List<List<Literal>>>>> entrySet1 = canonicalClauses.entrySet();
-		Iterator<Entry<Integer,Map<PredicateName,List<List<Literal>>>>> iter1     = entrySet1.iterator();
 
-		while (iter1.hasNext()) {
-			boolean                                            discardIter1 = true; // See if anything found underneath.
-			Set<     Entry<PredicateName,List<List<Literal>>>> entrySet2    = iter1.next().getValue().entrySet();
-			Iterator<Entry<PredicateName,List<List<Literal>>>> iter2        = entrySet2.iterator();
-			
-			while (iter2.hasNext()) {
-				 List<List<Literal>> literals = iter2.next().getValue();
-				 
-				 if (Utils.getSizeSafely(literals) < 1) { iter2.remove();
-				 }
-				 else if (discardIter1) { discardIter1 = false; } // Found something so don't discard iter1.
-			}
-			if (discardIter1) { iter1.remove();
-			}
-		}
-	}
-	
-	private List<Literal> createCanonicalClause(SingleClauseNode clauseNode) {		
+	private ClauseKey createCanonicalClause(SingleClauseNode clauseNode) {
 		if (clauseNode.canonicalForm != null) { return clauseNode.canonicalForm; }
-		
-		HandleFOPCstrings stringHandler = ((LearnOneClause) clauseNode.task).stringHandler;
+
 		List<Literal>     literals      = clauseNode.getClauseBodyReversed();
 		Literal           head          = clauseNode.getClauseHead();
 		literals.add(head);
-		List<Literal>     newLiterals   = createCanonicalClause(stringHandler, literals);
-		clauseNode.canonicalForm = newLiterals;
-		return newLiterals;
+		ClauseKey         key           = createCanonicalClause(literals);
+		clauseNode.canonicalForm = key;
+		return key;
 	}
-	private List<Literal> createCanonicalClause(HandleFOPCstrings stringHandler, Clause clause) {
+	private ClauseKey createCanonicalClause(Clause clause) {
 		List<Literal> literals = new ArrayList<>(1);
 		if (clause.posLiterals != null) { literals.addAll(clause.posLiterals); }
 		if (clause.negLiterals != null) { literals.addAll(clause.negLiterals); }
-		return createCanonicalClause(stringHandler, literals);
+		return createCanonicalClause(literals);
 	}
-	private List<Literal> createCanonicalClause(HandleFOPCstrings stringHandler, List<Literal> literals) {
+	// Returns null if some term cannot be encoded, in which case the clause is never considered to be in CLOSED.
+	private ClauseKey createCanonicalClause(List<Literal> literals) {
 		if (literals == null) { return null; }
-		List<Literal> newLiterals = new ArrayList<>(Utils.getSizeSafely(literals));
-
-		stringHandler.pushVariableHash(); // Want to have all new variables in these.
-		for (Literal lit : literals) { newLiterals.add(lit.copy(true)); }
-		stringHandler.popVariableHash();
-		newLiterals.sort(literalComparator);
-		return newLiterals;
-	}
-	
-	// Create a hashcode by walking through a list of literals.
-	private Integer getPrimaryKey(List<Literal> literals) {
-		int count = 0;
-		
-		if (literals == null) { return 0; }
-		for (Literal lit : literals) { 
-			List<Term> terms = lit.getArguments();
-			
-			if (terms != null) {
-				if (count > Integer.MAX_VALUE / 2) { count -= Integer.MAX_VALUE / 2; } // Play it safe to watch for integer overflow.
-				if (Utils.getSizeSafely(terms) > 0) { 
-					Term term1 = terms.get(0); 
-					count += 91 * terms.size() + (term1 == null ? 0 
-																: (term1 instanceof Variable ? 1 
-																							 : (term1 instanceof Function ? ((Function) term1).functionName.hashCode() / 3 // Don't want to count any variables in here.
-																									 				      : term1.hashCode() / 3))); // Include the first term's hashcode, unless it is a variable (due to renaming of vars).
-				}
-				count += lit.predicateName.hashCode() / 5;  // The 91 (above) is some prime so that the sizes don't "synch with" hashcode's of adjacent predicateNames'.  The "divide by X's" are intended to help protect from int overflow.
-			}
+		synchronized (symbolIds) { // Lists that share the symbol ids may be used by several threads.
+			return createCanonicalClauseWhileLocked(literals);
 		}
-		return count;
 	}
-	
-	private PredicateName getSecondaryKey(List<Literal> literals) {
-		if (literals == null) { return null; } // Or do we need to return some actual PredicateName here?
-		return (literals.get(literals.size()/2).predicateName); // Get the middle literal's predicate name.
+	private ClauseKey createCanonicalClauseWhileLocked(List<Literal> literals) {
+		int              numberOfLiterals = literals.size();
+		int[][]          blindCodes       = new int[numberOfLiterals][];
+		List<Integer>    order            = new ArrayList<>(numberOfLiterals);
+		IntSequence      codes            = new IntSequence(16);
+
+		for (int i = 0; i < numberOfLiterals; i++) {
+			codes.clear();
+			if (!encodeLiteral(literals.get(i), codes, null)) { return null; }
+			blindCodes[i] = codes.toArray();
+			order.add(i);
+		}
+		order.sort((i, j) -> compareCodes(blindCodes[i], blindCodes[j])); // Stable, so literals that only differ in their variables keep their order.
+
+		Map<Variable,Integer> variableNumbers = new IdentityHashMap<>();
+		codes.clear();
+		codes.add(numberOfLiterals);
+		for (int i : order) { encodeLiteral(literals.get(i), codes, variableNumbers); }
+		return new ClauseKey(codes.toArray());
 	}
-	
-	public void addNodeToClosed(SearchNode node)  // Assume that this node's literals are not already in CLOSED (i.e., be sure to check elsewhere).
-	{	SingleClauseNode clauseNode = (SingleClauseNode) node;
-		List<Literal>    literals   = createCanonicalClause(clauseNode);
-		addListOfLiteralsToClosed(literals);
+
+	// Unlike the canonical form, keeps the literals in the order given (head first), so clauses that only differ in the order of their literals get different keys.
+	// Used by the CoverageCache, since the order of the literals changes how much work proving the clause takes.  Returns null if some term cannot be encoded.
+	ClauseKey createOrderedClauseKey(Literal head, List<Literal> body) {
+		synchronized (symbolIds) {
+			return createOrderedClauseKeyWhileLocked(head, body);
+		}
 	}
-	void addClauseToClosed(HandleFOPCstrings stringHandler, Clause clause) {
-		List<Literal>    literals   = createCanonicalClause(stringHandler, clause);
-		addListOfLiteralsToClosed(literals);
+	private ClauseKey createOrderedClauseKeyWhileLocked(Literal head, List<Literal> body) {
+		Map<Variable,Integer> variableNumbers = new IdentityHashMap<>();
+		IntSequence           codes           = new IntSequence(16);
+		codes.add(1 + body.size());
+		if (!encodeLiteral(head, codes, variableNumbers)) { return null; }
+		for (Literal lit : body) {
+			if (!encodeLiteral(lit, codes, variableNumbers)) { return null; }
+		}
+		return new ClauseKey(codes.toArray());
 	}
 
-	private void addListOfLiteralsToClosed(List<Literal> literals) {
-		Integer          primaryKey   = getPrimaryKey(  literals);
-		PredicateName    secondaryKey = getSecondaryKey(literals);
-		Map<PredicateName,List<List<Literal>>> hashObj1 = canonicalClauses.get(primaryKey);		
+	// Variables are all written the same if variableNumbers is null.  Otherwise they are numbered in the order they are seen.
+	private boolean encodeLiteral(Literal lit, IntSequence codes, Map<Variable,Integer> variableNumbers) {
+		codes.add(getSymbolId(lit.predicateName));
+		codes.add(lit.numberArgs());
+		if (lit.numberArgs() > 0) for (Term term : lit.getArguments()) {
+			if (!encodeTerm(term, codes, variableNumbers)) { return false; }
+		}
+		return encodeArgumentNames(lit.getArgumentNames(), codes);
+	}
 
-		size++;
-		if (maxSize > 0 && maxSize - size < maxSize / 10) { reduceSize(fractionToKeep); }  // Reduce if within 10% of full.
-		if (hashObj1 == null) { // No items yet with this primary key.
-			List<List<Literal>> newSecondaryObject = new ArrayList<>(8);  // Create a new entry.
-			newSecondaryObject.add(literals);
-			Map<PredicateName,List<List<Literal>>> newPrimaryObject = new HashMap<>(8);
-			newPrimaryObject.put(secondaryKey, newSecondaryObject);
-			canonicalClauses.put(primaryKey,   newPrimaryObject);
-			return;
+	private boolean encodeTerm(Term term, IntSequence codes, Map<Variable,Integer> variableNumbers) {
+		if (term instanceof Variable) {
+			codes.add(ClauseKey.VARIABLE);
+			if (variableNumbers != null) {
+				Integer number = variableNumbers.get(term);
+				if (number == null) {
+					number = variableNumbers.size();
+					variableNumbers.put((Variable) term, number);
+				}
+				codes.add(number);
+			}
+			return true;
 		}
-		List<List<Literal>> hashObj2 = hashObj1.get(secondaryKey);
-		if (hashObj2 == null) { // No items yet with this secondary key.
-			List<List<Literal>> newObject = new ArrayList<>(8);  // Create a new entry.
-			newObject.add(literals);
-			hashObj1.put(secondaryKey,newObject);
+		if (term instanceof Constant) {
+			codes.add(ClauseKey.CONSTANT);
+			codes.add(getSymbolId(term));
+			return true;
 		}
-		else { // Already have some entries for these two keys, so make a list.
-			hashObj2.add(literals);
+		if (term instanceof Function) {
+			Function function = (Function) term;
+			codes.add(ClauseKey.FUNCTION);
+			codes.add(getSymbolId(function.functionName));
+			codes.add(function.numberArgs());
+			if (function.numberArgs() > 0) for (Term arg : function.getArguments()) {
+				if (!encodeTerm(arg, codes, variableNumbers)) { return false; }
+			}
+			return encodeArgumentNames(function.getArgumentNames(), codes);
 		}
+		return false;
 	}
-	
-	private boolean variantClauses(List<Literal> list1, List<Literal> list2) {
-		int counter = 0; // Should do a double for loop, but this code is more readable and the lengths should be short.
-		tempBindings.theta.clear(); // Reuse this memory and save a 'new.'
-		BindingList bindings = tempBindings;
-		int size1 = Utils.getSizeSafely(list1);
-		int size2 = Utils.getSizeSafely(list2);
-		if (size1 < 1 && size2  < 1) { return true;  }
-		if (size1     != size2)      { return false; } // The caller already checked for size, but this is an easy way to see if ONE list equals null.
-		for (Literal lit : list1) {
-			bindings = lit.variants(list2.get(counter++), bindings);
-			if (bindings == null) { return false; }
+
+	private boolean encodeArgumentNames(List<String> argumentNames, IntSequence codes) {
+		if (argumentNames == null) { codes.add(0); return true; }
+		codes.add(1);
+		for (String name : argumentNames) {
+			if (name == null) { return false; }
+			codes.add(argNameIds.computeIfAbsent(name.toLowerCase(), k -> argNameIds.size()));
 		}
 		return true;
 	}
-	
-	public boolean alreadyInClosedList(SearchNode node)
-	{	SingleClauseNode clauseNode = (SingleClauseNode) node;
-		List<Literal>    literals   = createCanonicalClause(clauseNode);
-		List<Literal>    oldLits    = alreadyInClosedList(literals);
-		return oldLits != null;
+
+	private int getSymbolId(Object symbol) {
+		return symbolIds.computeIfAbsent(symbol, k -> symbolIds.size());
 	}
 
-	private List<Literal> alreadyInClosedList(List<Literal>    literals) {
-		Integer          primaryKey   = getPrimaryKey(  literals);
-		PredicateName    secondaryKey = getSecondaryKey(literals);
-		Map<PredicateName,List<List<Literal>>> hashObj1 = canonicalClauses.get(primaryKey);
-		
-		// Pass in a clauseNode if these need to be turned on
-		
-		if (hashObj1 == null) {
-			return null;
+	private static int compareCodes(int[] codes1, int[] codes2) {
+		int length = Math.min(codes1.length, codes2.length);
+		for (int i = 0; i < length; i++) {
+			if (codes1[i] != codes2[i]) { return Integer.compare(codes1[i], codes2[i]); }
 		}
-		
-		List<List<Literal>> hashObj2 = hashObj1.get(secondaryKey);
+		return Integer.compare(codes1.length, codes2.length);
+	}
 
-		if (hashObj2 == null) {
-			return null;
-		}
-		
-		int count = Utils.getSizeSafely(literals);
-		for (List<Literal> prevLiterals : hashObj2) {
-			if (count != Utils.getSizeSafely(prevLiterals)) {  continue; } // Can't match if not same number of literals.
-			if (variantClauses(literals, prevLiterals)) {
-				return prevLiterals;
-			}
-		}
-		return null;
+	public void addNodeToClosed(SearchNode node)  // Assume that this node's literals are not already in CLOSED (i.e., be sure to check elsewhere).
+	{	SingleClauseNode clauseNode = (SingleClauseNode) node;
+		ClauseKey        key        = createCanonicalClause(clauseNode);
+		addKeyToClosed(key);
+	}
+	void addClauseToClosed(Clause clause) {
+		ClauseKey        key        = createCanonicalClause(clause);
+		addKeyToClosed(key);
+	}
+
+	private void addKeyToClosed(ClauseKey key) {
+		if (key != null) { canonicalClauses.put(key, Boolean.TRUE); }
+	}
+
+	public boolean alreadyInClosedList(SearchNode node)
+	{	SingleClauseNode clauseNode = (SingleClauseNode) node;
+		ClauseKey        key        = createCanonicalClause(clauseNode);
+		return key != null && canonicalClauses.get(key) != null; // A hit counts as a use, for the LRU order.
 	}
 
 	public void emptyClosedList() {
-		size = 0;
-		if (canonicalClauses != null) { canonicalClauses.clear(); }		
+		// Keep the symbol ids, since nodes cache their keys and may be looked up again in a later search.
+		canonicalClauses.clear();
 	}
 
 	public String toString() {
-		StringBuilder result = new StringBuilder();
-		// Walk through the hash maps and random discard some literals.
-		Set< Entry<Integer,Map<PredicateName,List<List<Literal>>>>> entrySet1 = canonicalClauses.entrySet();
-		for (Entry<Integer,Map<PredicateName,List<List<Literal>>>>  entry1 : entrySet1) {
-			Map<               PredicateName,List<List<Literal>>>   hashObj1   = entry1.getValue(); // TODO(?) delete this comment if no errors for awhile [8/1/08]  canonicalClauses.get(primaryKey);
-			Set<Entry<         PredicateName,List<List<Literal>>>>  entrySet2  = hashObj1.entrySet();
-			
-			for (Entry<        PredicateName, List<List<Literal>>> entry2 : entrySet2) {
-				PredicateName       secondaryKey = entry2.getKey();
-				List<List<Literal>> storedItems  = hashObj1.get(secondaryKey);
+		return "%     CLOSED holds " + Utils.comma(canonicalClauses.size()) + " clauses.\n";
+	}
 
-				for (List<Literal> storedItem : storedItems) {
-					result.append("%     ").append(storedItem).append("\n");
-				}
+	/*
+	 * A clause written as a sequence of ints, with a 64-bit hash of the sequence.
+	 */
+	static final class ClauseKey {
+		static final int VARIABLE = 0;
+		static final int CONSTANT = 1;
+		static final int FUNCTION = 2;
+
+		private final int[] codes;
+		private final long  hash;
+
+		ClauseKey(int[] codes) {
+			this.codes = codes;
+			long h = 0xcbf29ce484222325L; // FNV-1a over the ints, then mixed as in MurmurHash3 so that all the bits depend on every int.
+			for (int code : codes) {
+				h = (h ^ code) * 0x100000001b3L;
 			}
+			h ^= (h >>> 33);
+			h *= 0xff51afd7ed558ccdL;
+			h ^= (h >>> 33);
+			h *= 0xc4ceb9fe1a85ec53L;
+			h ^= (h >>> 33);
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (hash ^ (hash >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) { return true; }
+			if (!(other instanceof ClauseKey)) { return false; }
+			ClauseKey that = (ClauseKey) other;
+			return hash == that.hash && Arrays.equals(codes, that.codes);
 		}
-		return result.toString();
 	}
 
+	// A growable int[], to avoid boxing while a clause is encoded.
+	private static final class IntSequence {
+		private int[] items;
+		private int   size = 0;
+
+		IntSequence(int initialCapacity) {
+			items = new int[initialCapacity];
+		}
+
+		void add(int item) {
+			if (size == items.length) { items = Arrays.copyOf(items, size * 2); }
+			items[size++] = item;
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(items, size);
+		}
+	}
 }
@@ -18,12 +18,26 @@ public class DefiniteClauseList extends ArrayList<DefiniteClause> {
         super(1);
     }
 
+    DefiniteClauseList(int initialCapacity) {
+        super(initialCapacity);
+    }
+
     DefiniteClauseList(List<DefiniteClause> list) {
         super(list);
     }
 
     public boolean remove(Object o) {
-        boolean result = super.remove(o);
+        // A clause is usually removed soon after it was added, e.g., an example asserted as a fact while its groundings
+        // are counted, so look for the clause itself from the end of the list before comparing it with each clause.
+        int index = lastIndexOfInstance(o);
+        boolean result;
+        if (index >= 0) {
+            super.remove(index);
+            result = true;
+        }
+        else {
+            result = super.remove(o);
+        }
 
         if (result && !containsOnlyFacts && ((DefiniteClause) o).isDefiniteClauseRule()) {
             updateContainsOnlyFacts();
@@ -41,6 +55,15 @@ public class DefiniteClauseList extends ArrayList<DefiniteClause> {
         return super.add(e);
     }
 
+    private int lastIndexOfInstance(Object o) {
+        for (int i = size() - 1; i >= 0; i--) {
+            if (get(i) == o) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private void updateContainsOnlyFacts() {
         boolean result = true;
         for (DefiniteClause definiteClause : this) {
@@ -0,0 +1,259 @@
+package edu.wisc.cs.will.ResThmProver;
+
+import edu.wisc.cs.will.FOPC.DefiniteClause;
+import edu.wisc.cs.will.FOPC.Literal;
+import edu.wisc.cs.will.FOPC.PredicateNameAndArity;
+import edu.wisc.cs.will.FOPC.Term;
+import edu.wisc.cs.will.Utils.Utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* An index of every argument position of every predicate, built once over the whole clausebase.
+ *
+ * The clauses of a predicate are numbered by their position in the assertion list, and each
+ * ground argument value maps to a sorted int[] of those numbers.  A clause whose argument is not
+ * ground is in every posting of that position, so a lookup with several ground arguments is the
+ * intersection of their postings, and the result is still in assertion order.
+ *
+ * The index never changes after it is built.  Asserting or retracting a clause of a predicate
+ * drops that predicate from the index, and its lookups go back to the lazy indices.
+ */
+class EagerGroundArgumentIndex {
+
+    /* Rough sizes in bytes, assuming compressed oops. */
+    private static final int OBJECT_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES     = 4;
+    private static final int HASH_ENTRY_BYTES    = 32;
+    private static final int HASH_MAP_BYTES      = 48;
+
+    private final HornClausebase clausebase;
+
+    private final Map<PredicateNameAndArity, PredicatePostings> postingsByPredicate = new ConcurrentHashMap<>();
+
+    private int argumentsIndexed = 0;
+
+    private long postingsCreated = 0;
+
+    private long memoryInBytes = 0;
+
+    EagerGroundArgumentIndex(HornClausebase clausebase) {
+        this.clausebase = clausebase;
+    }
+
+    void build() {
+        MapOfDefiniteClauseLists allAssertions = clausebase.getAssertionsMap();
+
+        for (PredicateNameAndArity pnaa : allAssertions.keySet()) {
+            DefiniteClauseList clauses = allAssertions.getValues(pnaa);
+            if (pnaa.getArity() > 0 && clauses != null && !clauses.isEmpty()) {
+                PredicatePostings postings = new PredicatePostings(clauses, pnaa.getArity());
+                postingsByPredicate.put(pnaa, postings);
+                argumentsIndexed += pnaa.getArity();
+                postingsCreated  += postings.countPostings();
+                memoryInBytes    += postings.estimateMemoryInBytes();
+            }
+        }
+
+        Utils.println("% [ EagerGroundArgumentIndex ]  Indexed " + Utils.comma(postingsByPredicate.size()) + " predicates (" + Utils.comma(argumentsIndexed)
+                      + " arguments, " + Utils.comma(postingsCreated) + " postings) in about " + Utils.comma(memoryInBytes) + " bytes.");
+    }
+
+    /* Drops a predicate whose clauses changed.  It is not indexed again. */
+    void removePredicate(PredicateNameAndArity key) {
+        PredicatePostings removed = postingsByPredicate.remove(key);
+        if (removed != null) {
+            memoryInBytes -= removed.estimateMemoryInBytes();
+            Utils.println("% [ EagerGroundArgumentIndex ]  Clauses of " + key + " changed, using the lazy indices for it from now on.");
+        }
+    }
+
+    /* Returns the clauses that might match the literal, or null if its predicate is not indexed. */
+    DefiniteClauseList lookupDefiniteClauses(Literal literalToLookup) {
+        PredicateNameAndArity key = literalToLookup.getPredicateNameAndArity();
+        PredicatePostings postings = postingsByPredicate.get(key);
+
+        if (postings == null) {
+            return null;
+        }
+
+        int[] candidates = null;
+        for (int i = 0; i < postings.arguments.length; i++) {
+            Term argument = literalToLookup.getArgument(i);
+            if (argument.isGrounded()) {
+                int[] ids = postings.arguments[i].lookup(argument);
+                candidates = (candidates == null ? ids : intersect(candidates, ids));
+                if (candidates.length == 0) {
+                    break;
+                }
+            }
+        }
+
+        if (candidates == null || candidates.length == postings.clauses.length) {
+            return clausebase.getAssertionsMap().getValues(key);
+        }
+
+        DefiniteClauseList result = new DefiniteClauseList(candidates.length);
+        for (int id : candidates) {
+            result.add(postings.clauses[id]);
+        }
+        return result;
+    }
+
+    long getMemoryInBytes() {
+        return memoryInBytes;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] swap = a; a = b; b = swap;
+        }
+
+        int[] result = new int[a.length];
+        int size = 0;
+        int j = 0;
+        for (int id : a) {
+            while (j < b.length && b[j] < id) {
+                j++;
+            }
+            if (j == b.length) {
+                break;
+            }
+            if (b[j] == id) {
+                result[size++] = id;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static long arrayBytes(long length, int elementBytes) {
+        long bytes = OBJECT_HEADER_BYTES + length * elementBytes;
+        return (bytes + 7) & ~7L;
+    }
+
+    @Override
+    public String toString() {
+        return "EagerGroundArgumentIndex:\n" +
+                "  predicatesIndexed : " + postingsByPredicate.size() + ".\n" +
+                "  argumentsIndexed  : " + argumentsIndexed + ".\n" +
+                "  postingsCreated   : " + postingsCreated + ".\n" +
+                "  memoryInBytes     : " + memoryInBytes + ".\n";
+    }
+
+    /* The postings of one predicate. */
+    private static class PredicatePostings {
+
+        final DefiniteClause[] clauses;
+
+        final ArgumentPostings[] arguments;
+
+        PredicatePostings(DefiniteClauseList clauseList, int arity) {
+            clauses   = clauseList.toArray(new DefiniteClause[0]);
+            arguments = new ArgumentPostings[arity];
+            for (int i = 0; i < arity; i++) {
+                arguments[i] = new ArgumentPostings(clauses, i);
+            }
+        }
+
+        long countPostings() {
+            long count = 0;
+            for (ArgumentPostings argument : arguments) {
+                count += argument.postings.size();
+            }
+            return count;
+        }
+
+        long estimateMemoryInBytes() {
+            long bytes = OBJECT_HEADER_BYTES + arrayBytes(clauses.length, REFERENCE_BYTES) + arrayBytes(arguments.length, REFERENCE_BYTES);
+            for (ArgumentPostings argument : arguments) {
+                bytes += argument.estimateMemoryInBytes();
+            }
+            return bytes;
+        }
+    }
+
+    /* The postings of one argument position of a predicate. */
+    private static class ArgumentPostings {
+
+        /* Clauses whose argument is the key, plus the clauses whose argument is not ground. */
+        final Map<Term, int[]> postings;
+
+        /* Clauses whose argument is not ground.  These are the candidates for unseen keys. */
+        final int[] unground;
+
+        ArgumentPostings(DefiniteClause[] clauses, int indexedArgument) {
+            Map<Term, IntList> building = new HashMap<>();
+            IntList ungroundIds = new IntList();
+
+            for (int id = 0; id < clauses.length; id++) {
+                Literal head = clauses[id].getDefiniteClauseHead();
+                Term argument = head.getArgument(indexedArgument);
+
+                if (argument.isGrounded()) {
+                    IntList ids = building.get(argument);
+                    if (ids == null) {
+                        ids = new IntList(ungroundIds);
+                        building.put(argument, ids);
+                    }
+                    ids.add(id);
+                }
+                else {
+                    for (IntList ids : building.values()) {
+                        ids.add(id);
+                    }
+                    ungroundIds.add(id);
+                }
+            }
+
+            postings = new HashMap<>((int) (building.size() / 0.75) + 1);
+            for (Map.Entry<Term, IntList> entry : building.entrySet()) {
+                postings.put(entry.getKey(), entry.getValue().toArray());
+            }
+            unground = ungroundIds.toArray();
+        }
+
+        int[] lookup(Term argument) {
+            int[] ids = postings.get(argument);
+            return ids == null ? unground : ids;
+        }
+
+        long estimateMemoryInBytes() {
+            long bytes = OBJECT_HEADER_BYTES + HASH_MAP_BYTES + arrayBytes(unground.length, Integer.BYTES);
+            bytes += arrayBytes(Integer.highestOneBit(Math.max(1, (int) (postings.size() / 0.75)) * 2 - 1), REFERENCE_BYTES);
+            for (int[] ids : postings.values()) {
+                bytes += HASH_ENTRY_BYTES + arrayBytes(ids.length, Integer.BYTES);
+            }
+            return bytes;
+        }
+    }
+
+    /* A growable int array, only used while building. */
+    private static class IntList {
+
+        private int[] ids;
+
+        private int size;
+
+        IntList() {
+            ids = new int[4];
+        }
+
+        IntList(IntList other) {
+            ids  = Arrays.copyOf(other.ids, Math.max(4, other.size + 1));
+            size = other.size;
+        }
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
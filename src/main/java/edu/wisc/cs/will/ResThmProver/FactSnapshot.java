@@ -0,0 +1,262 @@
+package edu.wisc.cs.will.ResThmProver;
+
+import edu.wisc.cs.will.FOPC.HandleFOPCstrings;
+import edu.wisc.cs.will.FOPC.Literal;
+import edu.wisc.cs.will.FOPC.NumericConstant;
+import edu.wisc.cs.will.FOPC.PredicateName;
+import edu.wisc.cs.will.FOPC.PredicateNameAndArity;
+import edu.wisc.cs.will.FOPC.Sentence;
+import edu.wisc.cs.will.FOPC.StringConstant;
+import edu.wisc.cs.will.FOPC.Term;
+import edu.wisc.cs.will.Utils.Utils;
+import edu.wisc.cs.will.Utils.condor.CondorFile;
+import edu.wisc.cs.will.Utils.condor.CondorFileOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* A binary copy of a facts file, so later runs do not need to parse it again.
+ *
+ * The snapshot sits next to the facts file (with '.snapshot' appended to its name) and holds:
+ *
+ *     header:      magic, version, and the length and modification time of the facts file,
+ *     predicates:  name and arity of each predicate,
+ *     constants:   the name of each string constant or the value of each numeric constant,
+ *     facts:       the predicate number of each fact, followed by the constant number of each argument.
+ *
+ * Every distinct predicate and constant is interned once when the snapshot is read, and the facts
+ * are asserted in the order they were in the file.  The snapshot is memory mapped when read.
+ *
+ * A snapshot is only written when every statement of the facts file is a ground fact that
+ * StreamingFactLoader lexes itself, since directives and other statements change the string
+ * handler in ways the snapshot does not record.  It is ignored once the facts file changes.
+ */
+public class FactSnapshot {
+
+    private static final int MAGIC = 0x57494C46; // "WILF"
+
+    private static final int VERSION = 1;
+
+    private static final byte STRING_CONSTANT  = 0;
+    private static final byte NUMERIC_CONSTANT = 1;
+
+    private final HornClauseContext context;
+
+    private final HandleFOPCstrings stringHandler;
+
+    private final File factsFile;
+
+    private final File snapshotFile;
+
+    public FactSnapshot(HornClauseContext context, String factsFileName) {
+        this.context       = context;
+        this.stringHandler = context.getStringHandler();
+        this.factsFile     = new CondorFile(factsFileName);
+        this.snapshotFile  = new CondorFile(factsFileName + ".snapshot");
+    }
+
+    /* Reads the facts from the snapshot if it is up to date.  Otherwise reads them from factsReader
+     * (which should be reading the facts file) and writes a new snapshot if possible.
+     *
+     * Either way the facts are asserted into the clausebase and returned.
+     */
+    public List<Sentence> loadFacts(Reader factsReader, String directoryName) {
+        if (isCurrent()) {
+            return read();
+        }
+
+        StreamingFactLoader loader = new StreamingFactLoader(context);
+        List<Sentence> facts = loader.load(factsReader, directoryName);
+
+        if (!factsFile.exists()) {
+            Utils.println("% [ FactSnapshot ]  Not writing a snapshot since '" + factsFile + "' is not a plain file.");
+        }
+        else if (loader.getStatementsParsed() > 0) {
+            Utils.println("% [ FactSnapshot ]  Not writing a snapshot since '" + factsFile + "' has statements other than plain ground facts.");
+        }
+        else {
+            write(facts);
+        }
+        return facts;
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /* True if there is a snapshot and it was written from the current facts file. */
+    public boolean isCurrent() {
+        if (!snapshotFile.exists() || !factsFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(snapshotFile))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION && in.readLong() == factsFile.length() && in.readLong() == factsFile.lastModified();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private List<Sentence> read() {
+        List<Sentence> facts = null;
+
+        try (FileInputStream in = new FileInputStream(snapshotFile); FileChannel channel = in.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                Utils.error("The snapshot '" + snapshotFile + "' is too large to map: " + Utils.comma(channel.size()) + " bytes.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            buffer.position(Integer.BYTES * 2 + Long.BYTES * 2); // Skip the header, which isCurrent() checked.
+
+            int numberOfPredicates = buffer.getInt();
+            PredicateName[] predicateNames = new PredicateName[numberOfPredicates];
+            int[]           arities        = new int[numberOfPredicates];
+            for (int i = 0; i < numberOfPredicates; i++) {
+                predicateNames[i] = stringHandler.getPredicateName(readString(buffer));
+                arities[i]        = buffer.getInt();
+            }
+
+            int numberOfConstants = buffer.getInt();
+            Term[] constants = new Term[numberOfConstants];
+            for (int i = 0; i < numberOfConstants; i++) {
+                byte kind = buffer.get();
+                if (kind == STRING_CONSTANT) {
+                    constants[i] = stringHandler.getStringConstant(null, readString(buffer), true);
+                }
+                else if (kind == NUMERIC_CONSTANT) {
+                    constants[i] = stringHandler.getNumericConstant(null, buffer.getDouble());
+                }
+                else {
+                    Utils.error("Unknown kind of constant (" + kind + ") in the snapshot '" + snapshotFile + "'.");
+                }
+            }
+
+            int numberOfFacts = buffer.getInt();
+            facts = new ArrayList<>(numberOfFacts);
+            HornClausebase clausebase = context.getClausebase();
+            for (int i = 0; i < numberOfFacts; i++) {
+                int predicate = buffer.getInt();
+                List<Term> arguments = new ArrayList<>(arities[predicate]);
+                for (int arg = 0; arg < arities[predicate]; arg++) {
+                    arguments.add(constants[buffer.getInt()]);
+                }
+                Literal fact = stringHandler.getLiteral(predicateNames[predicate], arguments, null);
+                clausebase.assertFact(fact);
+                facts.add(fact);
+            }
+
+            Utils.println("% [ FactSnapshot ]  Read " + Utils.comma(numberOfFacts) + " facts (" + Utils.comma(numberOfPredicates) + " predicates, "
+                          + Utils.comma(numberOfConstants) + " constants) from '" + snapshotFile + "'.");
+        } catch (IOException e) {
+            Utils.reportStackTrace(e);
+            Utils.error("Unable to read the snapshot '" + snapshotFile + "'.\nError message: " + e.getMessage());
+        }
+        return facts;
+    }
+
+    private void write(List<Sentence> facts) {
+        Map<PredicateNameAndArity, Integer> predicateIds = new HashMap<>();
+        List<PredicateNameAndArity>         predicates   = new ArrayList<>();
+        Map<Term, Integer>                  constantIds  = new IdentityHashMap<>();
+        List<Term>                          constants    = new ArrayList<>();
+
+        for (Sentence sentence : facts) {
+            if (!(sentence instanceof Literal)) {
+                Utils.println("% [ FactSnapshot ]  Not writing a snapshot since '" + sentence + "' is not a fact.");
+                return;
+            }
+            Literal fact = (Literal) sentence;
+            PredicateNameAndArity predicate = fact.getPredicateNameAndArity();
+            if (!predicateIds.containsKey(predicate)) {
+                predicateIds.put(predicate, predicates.size());
+                predicates.add(predicate);
+            }
+            for (int i = 0; i < fact.numberArgs(); i++) {
+                Term argument = fact.getArgument(i);
+                if (!(argument instanceof StringConstant) && !(argument instanceof NumericConstant)) {
+                    Utils.println("% [ FactSnapshot ]  Not writing a snapshot since '" + argument + "' in '" + fact + "' is not a constant.");
+                    return;
+                }
+                if (!constantIds.containsKey(argument)) {
+                    constantIds.put(argument, constants.size());
+                    constants.add(argument);
+                }
+            }
+        }
+
+        // Write to a temporary file first, so other runs never see a partial snapshot.
+        File temporaryFile = new CondorFile(snapshotFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CondorFileOutputStream(temporaryFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(factsFile.length());
+            out.writeLong(factsFile.lastModified());
+
+            out.writeInt(predicates.size());
+            for (PredicateNameAndArity predicate : predicates) {
+                writeString(out, predicate.getPredicateName().name);
+                out.writeInt(predicate.getArity());
+            }
+
+            out.writeInt(constants.size());
+            for (Term constant : constants) {
+                if (constant instanceof StringConstant) {
+                    out.writeByte(STRING_CONSTANT);
+                    writeString(out, ((StringConstant) constant).getBareName());
+                }
+                else {
+                    out.writeByte(NUMERIC_CONSTANT);
+                    out.writeDouble(((NumericConstant) constant).value.doubleValue());
+                }
+            }
+
+            out.writeInt(facts.size());
+            for (Sentence sentence : facts) {
+                Literal fact = (Literal) sentence;
+                out.writeInt(predicateIds.get(fact.getPredicateNameAndArity()));
+                for (int i = 0; i < fact.numberArgs(); i++) {
+                    out.writeInt(constantIds.get(fact.getArgument(i)));
+                }
+            }
+        } catch (IOException e) {
+            Utils.reportStackTrace(e);
+            Utils.error("Unable to write the snapshot '" + temporaryFile + "'.\nError message: " + e.getMessage());
+        }
+
+        try {
+            Files.move(temporaryFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Utils.reportStackTrace(e);
+            Utils.error("Unable to rename '" + temporaryFile + "' to '" + snapshotFile + "'.\nError message: " + e.getMessage());
+        }
+
+        Utils.println("% [ FactSnapshot ]  Wrote " + Utils.comma(facts) + " facts (" + Utils.comma(predicates) + " predicates, "
+                      + Utils.comma(constants) + " constants) to '" + snapshotFile + "'.");
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,81 @@
+package edu.wisc.cs.will.ResThmProver;
+
+import edu.wisc.cs.will.FOPC.DefiniteClause;
+import edu.wisc.cs.will.FOPC.Literal;
+import edu.wisc.cs.will.FOPC.PredicateNameAndArity;
+import edu.wisc.cs.will.FOPC.Term;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* How many facts each predicate has, and how many distinct values each of its arguments takes.
+ *
+ * These are gathered from the clausebase the first time a predicate is asked about, and are
+ * thrown away once the facts change (see HornClausebase.getFactsVersion()).  They may be read
+ * from several threads, e.g., by the workers scoring clauses in parallel.
+ */
+public class FactStatistics {
+
+    private final HornClausebase clausebase;
+
+    private final Map<PredicateNameAndArity, PredicateStatistics> statisticsByPredicate = new ConcurrentHashMap<>();
+
+    private volatile long factsVersion = -1;
+
+    public FactStatistics(HornClausebase clausebase) {
+        this.clausebase = clausebase;
+    }
+
+    /* The expected number of facts that match the literal when the arguments marked in bound are ground.
+     *
+     * Assumes the arguments are independent, i.e., each bound argument keeps 1/(number of values of that
+     * argument) of the facts.  Returns NaN if the predicate is not only defined by facts.
+     */
+    public double estimateMatches(Literal literal, boolean[] bound) {
+        PredicateStatistics statistics = getStatistics(literal.getPredicateNameAndArity());
+        if (statistics == null) {
+            return Double.NaN;
+        }
+        double matches = statistics.numberOfFacts;
+        for (int i = 0; i < bound.length; i++) {
+            if (bound[i]) {
+                matches /= Math.max(1, statistics.numberOfValues[i]);
+            }
+        }
+        return matches;
+    }
+
+    private PredicateStatistics getStatistics(PredicateNameAndArity predicate) {
+        long currentFactsVersion = clausebase.getFactsVersion();
+        if (currentFactsVersion != factsVersion) {
+            statisticsByPredicate.clear();
+            factsVersion = currentFactsVersion;
+        }
+        if (!clausebase.isOnlyInFacts(predicate.getPredicateName(), predicate.getArity())) {
+            return null;
+        }
+        return statisticsByPredicate.computeIfAbsent(predicate, key -> new PredicateStatistics(clausebase.getAssertionsMap().getValues(key), key.getArity()));
+    }
+
+    /* The counts for one predicate. */
+    private static class PredicateStatistics {
+
+        final int numberOfFacts;
+
+        final int[] numberOfValues;
+
+        PredicateStatistics(DefiniteClauseList facts, int arity) {
+            numberOfFacts  = (facts == null ? 0 : facts.size());
+            numberOfValues = new int[arity];
+            for (int i = 0; i < arity; i++) {
+                Set<Term> values = new HashSet<>();
+                if (facts != null) for (DefiniteClause fact : facts) {
+                    values.add(fact.getDefiniteClauseHead().getArgument(i));
+                }
+                numberOfValues[i] = values.size();
+            }
+        }
+    }
+}
@@ -4,7 +4,11 @@ import edu.wisc.cs.will.FOPC.*;
 import edu.wisc.cs.will.Utils.Utils;
 import edu.wisc.cs.will.stdAIsearch.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /*
@@ -76,6 +80,88 @@ public class HornClauseProver extends StateBasedSearchTask<HornSearchNode> {
 		return null;
 	}
 
+	/*
+	 * The number of proofs of the conjunctive query, without collecting the bindings of each proof as
+	 * proveConjunctiveQueryAndReturnBindings does.  Stops counting at maxProofs (use Long.MAX_VALUE for no limit).
+	 *
+	 * Parts of the query that share no variables are counted separately and their counts multiplied,
+	 * unless the query uses a built-in such as cut, which could make the parts depend on each other.
+	 */
+	public long countProofs(List<Literal> negatedConjunctiveQuery, long maxProofs) throws SearchInterrupted {
+		if (Utils.getSizeSafely(negatedConjunctiveQuery) == 0) { return 0; }
+		boolean holdRedoable = redoable;
+		redoable = true; // Keep OPEN after each proof, so that the search can go on to the next one.
+		try {
+			long count = 1;
+			for (List<Literal> part : splitIntoIndependentParts(negatedConjunctiveQuery)) {
+				long partCount = countProofsOfPart(part, maxProofs);
+				if (partCount == 0) { return 0; }
+				count = (count > maxProofs / partCount ? maxProofs : Math.min(maxProofs, count * partCount));
+			}
+			return count;
+		} finally {
+			redoable = holdRedoable;
+			if (open != null) { open.clear(); }
+		}
+	}
+
+	private long countProofsOfPart(List<Literal> part, long maxProofs) throws SearchInterrupted {
+		((InitHornProofSpace) initializer).loadNegatedConjunctiveQuery(part, open);
+		long count = 0;
+		while (count < maxProofs && performSearch().goalFound()) {
+			count++;
+		}
+		return count;
+	}
+
+	// Group the literals that are linked by shared variables, keeping their order within each group.
+	private List<List<Literal>> splitIntoIndependentParts(List<Literal> literals) {
+		List<List<Literal>> parts = new ArrayList<>();
+		if (literals.size() == 1) {
+			parts.add(literals);
+			return parts;
+		}
+		for (Literal lit : literals) {
+			if (predefinedPredicateNamesUsedByChildCollector.contains(lit.predicateName)) {
+				parts.add(literals);
+				return parts;
+			}
+		}
+
+		int[] group = new int[literals.size()]; // Each literal points to an earlier literal in its group, or to itself.
+		Map<Variable, Integer> firstLiteralWithVariable = new HashMap<>();
+		for (int i = 0; i < literals.size(); i++) {
+			group[i] = i;
+			Collection<Variable> variables = literals.get(i).collectAllVariables();
+			if (variables == null) { continue; }
+			for (Variable var : variables) {
+				Integer j = firstLiteralWithVariable.putIfAbsent(var, i);
+				if (j != null) {
+					int a = findGroup(group, i);
+					int b = findGroup(group, j);
+					group[Math.max(a, b)] = Math.min(a, b);
+				}
+			}
+		}
+
+		Map<Integer, List<Literal>> partOfGroup = new HashMap<>();
+		for (int i = 0; i < literals.size(); i++) {
+			List<Literal> part = partOfGroup.get(findGroup(group, i));
+			if (part == null) {
+				part = new ArrayList<>();
+				partOfGroup.put(findGroup(group, i), part);
+				parts.add(part);
+			}
+			part.add(literals.get(i));
+		}
+		return parts;
+	}
+
+	private int findGroup(int[] group, int i) {
+		while (group[i] != i) { i = group[i]; }
+		return i;
+	}
+
 	public HornClausebase getClausebase() {
         return context.getClausebase();
     }
@@ -19,6 +19,8 @@ public class HornClauseProverChildrenGenerator extends ChildrenNodeGenerator<Hor
 
     private final BindingList bindingList; // Use this repeatedly to save some "new'ing."
 
+    private final BindingTrail bindingTrail = new BindingTrail(); // Candidate clauses are unified against this; a BindingList is only made for the ones that unify.
+
     private long maxOpen = 0;
 
     private final Unifier unifier;
@@ -88,8 +90,11 @@ public class HornClauseProverChildrenGenerator extends ChildrenNodeGenerator<Hor
      * Since the children generator can remain around over the course of many proofs,
      * this number can get quite large.  The HornClauseProver could probably reset
      * this number occasionally if this become a problem.
+     * <P>
+     * This is per generator (and hence per prover) so provers on different threads
+     * do not share it.
      */
-    static long proofCounter = 0;
+    long proofCounter = 0;
 
     HornClauseProverChildrenGenerator(HornClauseProver task, HornClauseContext context) {
         super(task);
@@ -205,7 +210,7 @@ public class HornClauseProverChildrenGenerator extends ChildrenNodeGenerator<Hor
         if (matchingFacts != null) {
             for (Literal fact : matchingFacts) {
 
-                BindingList theta = unify(negatedLiteral, fact, new BindingList());
+                BindingList theta = unifyOnTrail(negatedLiteral, fact);
 
                 if (theta != null && fact.containsFreeVariablesAfterSubstitution(theta)) { // If any variables in the fact are unbound, need to rename then rebind.
                     // TAW: I don't think that facts are supposed to have free variables.  However,
@@ -242,7 +247,7 @@ public class HornClauseProverChildrenGenerator extends ChildrenNodeGenerator<Hor
             for (DefiniteClause definiteClause : possibleMatchingAssertions) {  //Utils.println("Consider: " + clause);
                 Literal ruleHead = definiteClause.getDefiniteClauseHead();
 
-                BindingList theta = unify(negatedLiteral, ruleHead, new BindingList());
+                BindingList theta = unifyOnTrail(negatedLiteral, ruleHead);
 
                 if (theta != null && !definiteClause.isDefiniteClauseFact() && definiteClause.containsFreeVariablesAfterSubstitution(theta)) { // If any variables in the clause are unbound (even in the BODY!), need to rename then rebind.
                     definiteClause = (DefiniteClause) definiteClause.getDefiniteClauseAsClause().copyAndRenameVariables();
@@ -292,6 +297,12 @@ public class HornClauseProverChildrenGenerator extends ChildrenNodeGenerator<Hor
         return children;
     }
 
+    /* Unifies on the reusable trail, so a failed match allocates nothing.  Returns null on failure. */
+    private BindingList unifyOnTrail(Literal lit1, Literal lit2) {
+        bindingTrail.clear();
+        return unifier.unify(lit1, lit2, bindingTrail) ? bindingTrail.toBindingList() : null;
+    }
+
     private BindingList unify(Literal lit1, Literal lit2, BindingList bindingList) {
         return unifier.unify(lit1, lit2, bindingList);
     }
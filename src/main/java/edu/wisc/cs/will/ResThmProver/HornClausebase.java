@@ -51,6 +51,34 @@ public interface HornClausebase {
      */
     void retractAllClausesWithUnifyingBody(DefiniteClause definiteClause);
 
+    /* Returns a counter that changes every time a fact or rule is asserted or a clause is retracted.
+     *
+     * Code that caches the outcome of proofs across calls can remember this value and
+     * throw its cache away once it no longer matches.
+     *
+     * @return Current version of the facts in this clausebase.
+     */
+    long getFactsVersion();
+
+    /* Freezes or thaws the clausebase.
+     *
+     * While frozen, asserting and retracting throw an IllegalStateException, and any
+     * number of threads may query the clausebase at once.  While not frozen, it must
+     * only be used from one thread at a time.
+     *
+     * @param frozen True to freeze the clausebase, false to allow changes again.
+     */
+    void setFrozen(boolean frozen);
+
+    boolean isFrozen();
+
+    /* Indexes every argument of every predicate asserted so far, instead of building the indices lazily.
+     *
+     * Worth it when the facts are large and the lazy indices keep getting evicted and rebuilt.
+     * Predicates asserted into or retracted from afterwards fall back to the lazy indices.
+     */
+    void buildEagerIndex();
+
     /* Returns a Collection of definite clauses whose head might match the specified clauseHead.
      *
      * The DefiniteClause returned can be either a Literal or a Clause from either the background
@@ -31,8 +31,9 @@ public class InitHornProofSpace extends Initializer {
 
         HornSearchNode[] nodes;        
         
-        HornClauseProverChildrenGenerator.proofCounter = 0;
-        long proofCount = HornClauseProverChildrenGenerator.proofCounter++;
+        HornClauseProverChildrenGenerator childrenGenerator = (HornClauseProverChildrenGenerator) task.childrenGenerator;
+        childrenGenerator.proofCounter = 0;
+        long proofCount = childrenGenerator.proofCounter++;
 
 
         if ( containsCut(negatedQueryLiterals) ) {
@@ -0,0 +1,501 @@
+package edu.wisc.cs.will.ResThmProver;
+
+import edu.wisc.cs.will.FOPC.BindingList;
+import edu.wisc.cs.will.FOPC.Constant;
+import edu.wisc.cs.will.FOPC.Literal;
+import edu.wisc.cs.will.FOPC.PredicateName;
+import edu.wisc.cs.will.FOPC.ProcedurallyDefinedPredicateHandler;
+import edu.wisc.cs.will.FOPC.Term;
+import edu.wisc.cs.will.FOPC.Unifier;
+import edu.wisc.cs.will.FOPC.Variable;
+import edu.wisc.cs.will.stdAIsearch.SearchInterrupted;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Proves one clause for many examples at once, by running its body as a join over the fact indices.
+ *
+ * The examples are the input relation: each is unified with the head, giving one row of variable
+ * values per example.  The body literals are then joined in order.  A literal whose predicate is
+ * only defined by facts is looked up once per distinct value of its bound variables, however many
+ * examples share that value, which is the work a proof per example repeats.  Any other literal
+ * (procedurally defined, or defined by rules, e.g. recursively) must be ground by the time it
+ * is reached, and is proven by the Horn prover once per distinct value of its variables.
+ *
+ * After each literal, the variables that no later literal uses are dropped and the rows that
+ * become equal are merged, adding up their counts.  So the rows stay few, and at the end each
+ * example's count is the number of ways the facts satisfy the body for it.
+ *
+ * Terms are compared by identity, as the Unifier compares constants.  evaluate() returns null,
+ * and the caller should prove the examples one at a time, whenever the body cannot be run this
+ * way: a built-in such as a cut, a non-ground term in an example or a fact, a function as an
+ * argument, a literal that is not ground when it has to be proven, or more rows or work than allowed.
+ */
+public class JoinPlanEvaluator {
+
+    private final HornClauseProver prover;
+
+    private final Unifier unifier = new Unifier();
+
+    private final int maxRows;
+
+    private final long maxWork;
+
+    private long work = 0;
+
+    /* maxRows bounds the rows after any literal, and maxWork the facts matched plus the nodes the prover creates. */
+    public JoinPlanEvaluator(HornClauseProver prover, int maxRows, long maxWork) {
+        this.prover  = prover;
+        this.maxRows = maxRows;
+        this.maxWork = maxWork;
+    }
+
+    /* Which examples the clause covers, and in how many ways. */
+    public static class Result {
+
+        private final BitSet covered;
+
+        private final long[] groundings;
+
+        private Result(int numberOfExamples) {
+            covered    = new BitSet(numberOfExamples);
+            groundings = new long[numberOfExamples];
+        }
+
+        /* True if the body can be proven for the example at this position in the list given to evaluate(). */
+        public boolean isCovered(int exampleIndex) {
+            return covered.get(exampleIndex);
+        }
+
+        /* The number of ways the facts satisfy the body for the example at this position.  Literals proven by the Horn prover count once. */
+        public long getNumberOfGroundings(int exampleIndex) {
+            return groundings[exampleIndex];
+        }
+    }
+
+    /* The work done by the last call to evaluate(), in facts matched plus prover nodes created. */
+    public long getWork() {
+        return work;
+    }
+
+    public Result evaluate(Literal head, List<Literal> body, List<? extends Literal> examples) throws SearchInterrupted {
+        work = 0;
+        Map<Variable, Integer> variableNumbers = new IdentityHashMap<>();
+        if (!numberVariables(head, variableNumbers)) {
+            return null;
+        }
+        List<LiteralStep> steps = new ArrayList<>(body.size());
+        for (Literal literal : body) {
+            LiteralStep step = createStep(literal, variableNumbers);
+            if (step == null) {
+                return null;
+            }
+            steps.add(step);
+        }
+        int numberOfVariables = variableNumbers.size();
+
+        // Which variables are bound before each literal, and which are still used by it or a later one.
+        boolean[][] bound  = new boolean[steps.size() + 1][numberOfVariables];
+        boolean[][] needed = new boolean[steps.size() + 1][numberOfVariables];
+        for (int v : getVariableNumbers(head, variableNumbers)) {
+            bound[0][v] = true;
+        }
+        for (int i = 0; i < steps.size(); i++) {
+            bound[i + 1] = bound[i].clone();
+            for (int v : steps.get(i).variables) {
+                bound[i + 1][v] = true;
+            }
+        }
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            needed[i] = needed[i + 1].clone();
+            for (int v : steps.get(i).variables) {
+                needed[i][v] = true;
+            }
+        }
+        for (int i = 0; i < steps.size(); i++) {
+            if (!steps.get(i).prepare(bound[i])) {
+                return null;
+            }
+        }
+
+        Map<Row, long[]> rows = new LinkedHashMap<>();
+        for (int e = 0; e < examples.size(); e++) {
+            BindingList theta = unifier.unify(head, examples.get(e), new BindingList());
+            if (theta == null) {
+                continue;
+            }
+            Term[] values = new Term[numberOfVariables];
+            for (Map.Entry<Variable, Integer> entry : variableNumbers.entrySet()) {
+                if (!bound[0][entry.getValue()]) {
+                    continue;
+                }
+                Term value = theta.lookup(entry.getKey());
+                if (!(value instanceof Constant)) {
+                    return null;
+                }
+                if (needed[0][entry.getValue()]) {
+                    values[entry.getValue()] = value;
+                }
+            }
+            addRow(rows, new Row(e, values), 1);
+        }
+
+        for (int i = 0; i < steps.size(); i++) {
+            rows = steps.get(i).join(rows, needed[i + 1]);
+            if (rows == null) {
+                return null;
+            }
+        }
+
+        Result result = new Result(examples.size());
+        for (Map.Entry<Row, long[]> entry : rows.entrySet()) {
+            int e = entry.getKey().example;
+            result.covered.set(e);
+            result.groundings[e] = saturatedAdd(result.groundings[e], entry.getValue()[0]);
+        }
+        return result;
+    }
+
+    private LiteralStep createStep(Literal literal, Map<Variable, Integer> variableNumbers) {
+        PredicateName predicateName = literal.predicateName;
+        int           arity         = literal.numberArgs();
+        HornClausebase clausebase   = prover.getClausebase();
+        ProcedurallyDefinedPredicateHandler handler = clausebase.getUserProcedurallyDefinedPredicateHandler();
+
+        if (prover.predefinedPredicateNamesUsedByChildCollector.contains(predicateName)) {
+            return null; // E.g., a cut, which prunes the solutions of the literals before it.
+        }
+        boolean joinable = (handler == null || !handler.canHandle(predicateName, arity))
+                && clausebase.isOnlyInFacts(predicateName, arity);
+        if (joinable) {
+            for (int a = 0; a < arity; a++) {
+                Term arg = literal.getArgument(a);
+                if (!(arg instanceof Variable) && !(arg instanceof Constant)) {
+                    joinable = false;
+                    break;
+                }
+            }
+        }
+        if (joinable) {
+            if (!numberVariables(literal, variableNumbers)) {
+                return null;
+            }
+            return new FactStep(literal, variableNumbers);
+        }
+        Collection<Variable> variables = literal.collectAllVariables();
+        if (variables != null) {
+            for (Variable variable : variables) {
+                variableNumbers.computeIfAbsent(variable, k -> variableNumbers.size());
+            }
+        }
+        return new ProvenStep(literal, variableNumbers);
+    }
+
+    // Returns false if the literal has an argument this cannot handle.
+    private static boolean numberVariables(Literal literal, Map<Variable, Integer> variableNumbers) {
+        for (int a = 0; a < literal.numberArgs(); a++) {
+            Term arg = literal.getArgument(a);
+            if (arg instanceof Variable) {
+                variableNumbers.computeIfAbsent((Variable) arg, k -> variableNumbers.size());
+            }
+            else if (!(arg instanceof Constant)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Integer> getVariableNumbers(Literal literal, Map<Variable, Integer> variableNumbers) {
+        List<Integer> result = new ArrayList<>(literal.numberArgs());
+        Collection<Variable> variables = literal.collectAllVariables();
+        if (variables != null) {
+            for (Variable variable : variables) {
+                result.add(variableNumbers.get(variable));
+            }
+        }
+        return result;
+    }
+
+    private void addRow(Map<Row, long[]> rows, Row row, long count) {
+        long[] total = rows.get(row);
+        if (total == null) {
+            rows.put(row, new long[]{count});
+        }
+        else {
+            total[0] = saturatedAdd(total[0], count);
+        }
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    // The values of some of a row's variables, with the rest left null.
+    private static Term[] project(Term[] values, boolean[] keep) {
+        Term[] result = new Term[values.length];
+        for (int v = 0; v < values.length; v++) {
+            if (keep[v]) {
+                result[v] = values[v];
+            }
+        }
+        return result;
+    }
+
+    /* One literal of the body, joined with the rows so far. */
+    private abstract class LiteralStep {
+
+        final Literal literal;
+
+        final int[] variables; // Numbers of the distinct variables in the literal.
+
+        int[] boundVariables; // Those bound when the literal is reached.
+
+        LiteralStep(Literal literal, Map<Variable, Integer> variableNumbers) {
+            this.literal   = literal;
+            this.variables = getVariableNumbers(literal, variableNumbers).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        boolean prepare(boolean[] bound) {
+            int count = 0;
+            for (int v : variables) {
+                if (bound[v]) {
+                    count++;
+                }
+            }
+            boundVariables = new int[count];
+            count = 0;
+            for (int v : variables) {
+                if (bound[v]) {
+                    boundVariables[count++] = v;
+                }
+            }
+            return true;
+        }
+
+        Term[] getBoundValues(Term[] values) {
+            Term[] result = new Term[boundVariables.length];
+            for (int i = 0; i < boundVariables.length; i++) {
+                result[i] = values[boundVariables[i]];
+            }
+            return result;
+        }
+
+        // Returns null if there are too many rows or too much work.
+        abstract Map<Row, long[]> join(Map<Row, long[]> rows, boolean[] keep) throws SearchInterrupted;
+
+        boolean overLimits(Map<Row, long[]> rows) {
+            return rows.size() > maxRows || work > maxWork;
+        }
+    }
+
+    /* A literal only defined by facts, which binds the rest of its variables. */
+    private class FactStep extends LiteralStep {
+
+        private final int[] argumentVariables; // The number of the variable at each argument, or -1 for a constant.
+
+        private final Map<Row, List<Term[]>> matchesByBoundValues = new HashMap<>();
+
+        FactStep(Literal literal, Map<Variable, Integer> variableNumbers) {
+            super(literal, variableNumbers);
+            argumentVariables = new int[literal.numberArgs()];
+            for (int a = 0; a < argumentVariables.length; a++) {
+                Term arg = literal.getArgument(a);
+                argumentVariables[a] = (arg instanceof Variable ? variableNumbers.get(arg) : -1);
+            }
+        }
+
+        @Override
+        Map<Row, long[]> join(Map<Row, long[]> rows, boolean[] keep) {
+            Map<Row, long[]> result = new LinkedHashMap<>();
+            for (Map.Entry<Row, long[]> entry : rows.entrySet()) {
+                Term[]       values  = entry.getKey().values;
+                List<Term[]> matches = getMatches(values);
+                if (matches == null) {
+                    return null;
+                }
+                for (Term[] match : matches) {
+                    Term[] extended = values.clone();
+                    for (int a = 0; a < argumentVariables.length; a++) {
+                        if (argumentVariables[a] >= 0) {
+                            extended[argumentVariables[a]] = match[a];
+                        }
+                    }
+                    addRow(result, new Row(entry.getKey().example, project(extended, keep)), entry.getValue()[0]);
+                }
+                if (overLimits(result)) {
+                    return null;
+                }
+            }
+            return result;
+        }
+
+        // The arguments of the facts that match the literal, given the values of its bound variables.  Null if a fact cannot be joined.
+        private List<Term[]> getMatches(Term[] values) {
+            Row key = new Row(-1, getBoundValues(values));
+            if (matchesByBoundValues.containsKey(key)) {
+                return matchesByBoundValues.get(key);
+            }
+            Map<Variable, Term> theta = new HashMap<>(4);
+            for (int a = 0; a < argumentVariables.length; a++) {
+                if (argumentVariables[a] >= 0 && values[argumentVariables[a]] != null) {
+                    theta.put((Variable) literal.getArgument(a), values[argumentVariables[a]]);
+                }
+            }
+            Literal query = literal.applyTheta(theta);
+
+            List<Term[]>      matches = new ArrayList<>();
+            Iterable<Literal> facts   = prover.getClausebase().getPossibleMatchingFacts(query, null);
+            if (facts != null) {
+                for (Literal fact : facts) {
+                    work++;
+                    Term[] match = matchFact(query, fact);
+                    if (match == INVALID_MATCH) {
+                        return null;
+                    }
+                    if (match != null) {
+                        matches.add(match);
+                    }
+                }
+            }
+            matchesByBoundValues.put(key, matches);
+            return matches;
+        }
+
+        // The fact's arguments if it matches the query, null if not, and INVALID_MATCH if it has an argument that is not a constant.
+        private Term[] matchFact(Literal query, Literal fact) {
+            if (fact.numberArgs() != query.numberArgs()) {
+                return null;
+            }
+            Term[] match = new Term[argumentVariables.length];
+            for (int a = 0; a < argumentVariables.length; a++) {
+                Term factArg = fact.getArgument(a);
+                if (!(factArg instanceof Constant)) {
+                    return INVALID_MATCH;
+                }
+                Term queryArg = query.getArgument(a);
+                if (queryArg instanceof Constant) {
+                    if (queryArg != factArg) {
+                        return null;
+                    }
+                }
+                else { // A variable of the literal that is still free, which may appear more than once.
+                    for (int b = 0; b < a; b++) {
+                        if (query.getArgument(b) == queryArg && match[b] != factArg) {
+                            return null;
+                        }
+                    }
+                }
+                match[a] = factArg;
+            }
+            return match;
+        }
+    }
+
+    private static final Term[] INVALID_MATCH = new Term[0];
+
+    /* Any other literal, proven by the Horn prover once its variables are all bound. */
+    private class ProvenStep extends LiteralStep {
+
+        private final Map<Variable, Integer> variableNumbers;
+
+        private final Map<Row, Boolean> provenByValues = new HashMap<>();
+
+        ProvenStep(Literal literal, Map<Variable, Integer> variableNumbers) {
+            super(literal, variableNumbers);
+            this.variableNumbers = variableNumbers;
+        }
+
+        @Override
+        boolean prepare(boolean[] bound) {
+            super.prepare(bound);
+            return boundVariables.length == variables.length; // Otherwise the prover would have to bind them, once per example.
+        }
+
+        @Override
+        Map<Row, long[]> join(Map<Row, long[]> rows, boolean[] keep) throws SearchInterrupted {
+            Map<Row, long[]> result = new LinkedHashMap<>();
+            for (Map.Entry<Row, long[]> entry : rows.entrySet()) {
+                Term[]  values = entry.getKey().values;
+                Row     key    = new Row(-1, getBoundValues(values));
+                Boolean proven = provenByValues.get(key);
+                if (proven == null) {
+                    proven = prove(values);
+                    provenByValues.put(key, proven);
+                    if (work > maxWork) {
+                        return null;
+                    }
+                }
+                if (proven) {
+                    addRow(result, new Row(entry.getKey().example, project(values, keep)), entry.getValue()[0]);
+                }
+            }
+            return result;
+        }
+
+        private boolean prove(Term[] values) throws SearchInterrupted {
+            Map<Variable, Term> theta = new HashMap<>(4);
+            for (Map.Entry<Variable, Integer> entry : variableNumbers.entrySet()) {
+                if (values[entry.getValue()] != null) {
+                    theta.put(entry.getKey(), values[entry.getValue()]);
+                }
+            }
+            prover.setNodesCreated(0);
+            boolean proven = prover.proveConjunctiveQuery(Collections.singletonList(literal.applyTheta(theta)));
+            work += Math.max(1, prover.getNodesCreated());
+            return proven;
+        }
+    }
+
+    /* An example and the values of some variables, compared by identity. */
+    private static final class Row {
+
+        final int example;
+
+        final Term[] values;
+
+        private final int hash;
+
+        Row(int example, Term[] values) {
+            this.example = example;
+            this.values  = values;
+            int h = example;
+            for (Term value : values) {
+                h = 31 * h + System.identityHashCode(value);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Row)) {
+                return false;
+            }
+            Row that = (Row) other;
+            if (example != that.example || hash != that.hash || values.length != that.values.length) {
+                return false;
+            }
+            for (int v = 0; v < values.length; v++) {
+                if (values[v] != that.values[v]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -7,13 +7,19 @@ import edu.wisc.cs.will.FOPC.Term;
 import edu.wisc.cs.will.Utils.Utils;
 
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 // TODO(@hayesall): Lots of duplicated code with `LazyGroundNthArgumentClauseIndex`
 
 /* This is an index of definite clauses (either Clauses or Literal or a mix of both) with ground heads.
+ *
+ * Lookups may come from several threads at once.  The index for a predicate is built once
+ * (ConcurrentHashMap.computeIfAbsent) and the oldest predicates are evicted in insertion order.
+ * Adding and removing clauses is only done while no one is looking up (see HornClausebase.setFrozen).
  *
  * @author twalker
  */
@@ -27,19 +33,14 @@ public class LazyGroundClauseIndex {
 		maximumIndexSizeDefault = maximumIndexSizeToUse;
 	}
 
-	private int indicesConstructed = 0;
+	private final LongAdder indicesConstructed = new LongAdder();
 
-    private int indicesRemoved = 0;
+    private final LongAdder indicesRemoved = new LongAdder();
 
-    private final Map<PredicateNameAndArity, Map<List<Term>, DefiniteClauseList>> definiteClausesAllArgsIndex = new LRUMap();
+    private final Map<PredicateNameAndArity, ArgsIndex> definiteClausesAllArgsIndex = new ConcurrentHashMap<>();
 
-    /* Store clauses in which one or more of the args is not ground.
-     *
-     * This is used to as a starting place for new definiteClause lists indexed by the
-     * all args.  This is necessary to make sure unseen term combinations
-     * start with the unground clauses in their index.
-     */
-    private final Map<PredicateNameAndArity, DefiniteClauseList> definiteClausesWithUngroundArgs = new HashMap<>();
+    /* Predicates in the order their indices were built, oldest first.  Used for eviction. */
+    private final ConcurrentLinkedQueue<PredicateNameAndArity> indexedPredicates = new ConcurrentLinkedQueue<>();
 
     public LazyGroundClauseIndex(HornClausebase clausebase) {
         this.clausebase = clausebase;
@@ -47,93 +48,39 @@ public class LazyGroundClauseIndex {
 
     void indexDefiniteClause(PredicateNameAndArity key, DefiniteClause definiteClause) {
 
-        if (definiteClausesAllArgsIndex.containsKey(key)) {
-            Literal headLiteral = definiteClause.getDefiniteClauseHead();
-
-            Map<List<Term>, DefiniteClauseList> mapForKey = definiteClausesAllArgsIndex.get(key);
-            if (mapForKey == null) {
-                mapForKey = new HashMap<>();
-                definiteClausesAllArgsIndex.put(key, mapForKey);
-
-                Utils.println("% [ LazyGroundClauseIndex ]  Creating ground clause index for " + key + ".");
-            }
-
-            if (headLiteral.isGrounded()) {
-
-                DefiniteClauseList definiteClauseList = mapForKey.get(headLiteral.getArguments());
-
-                if (definiteClauseList == null) {
-                    definiteClauseList = new DefiniteClauseList(getDefiniteClausesSeedList(key));
-                    mapForKey.put(headLiteral.getArguments(), definiteClauseList);
-                }
-
-                definiteClauseList.add(definiteClause);
-            }
-            else {
-
-                // This is an non-ground literal, so we just need to throw into all of the appropriate
-                // places was well as the seed list.
-                for (DefiniteClauseList list : mapForKey.values()) {
-                    list.add(definiteClause);
-                }
-
-                addDefiniteClausesSeedDefiniteClause(key, definiteClause);
-            }
+        ArgsIndex argsIndex = definiteClausesAllArgsIndex.get(key);
+        if (argsIndex != null) {
+            argsIndex.add(definiteClause);
         }
 
     }
 
     void removeDefiniteClause(PredicateNameAndArity key, DefiniteClause definiteClause) {
 
-        if (definiteClausesAllArgsIndex.containsKey(key)) {
-            Literal headLiteral = definiteClause.getDefiniteClauseHead();
-
-            Map<List<Term>, DefiniteClauseList> mapForKey = definiteClausesAllArgsIndex.get(key);
-            if (mapForKey != null) {
-
-                if (headLiteral.isGrounded()) {
-                    DefiniteClauseList definiteClauseList = mapForKey.get(headLiteral.getArguments());
-
-                    if (definiteClauseList != null) {
-                        definiteClauseList.remove(definiteClause);
-                    }
-
-                    assert definiteClauseList != null;
-                    if (definiteClauseList.isEmpty()) {
-                        mapForKey.remove(headLiteral.getArguments());
-                    }
-                }
-                else {
-                    // This is an non-ground literal, so we just need to throw into all of the appropriate
-                    // places was well as the seed list.
-                    for (DefiniteClauseList list : mapForKey.values()) {
-                        list.remove(definiteClause);
-                    }
-
-                    removeDefiniteClausesSeedDefiniteClause(key, definiteClause);
-                }
-            }
+        ArgsIndex argsIndex = definiteClausesAllArgsIndex.get(key);
+        if (argsIndex != null) {
+            argsIndex.remove(definiteClause);
         }
     }
 
     DefiniteClauseList lookupDefiniteClauses(Literal lookupLiteral) {
         if (lookupLiteral != null && lookupLiteral.isGrounded()) {
             PredicateNameAndArity key = lookupLiteral.getPredicateNameAndArity();
-            Map<List<Term>, DefiniteClauseList> mapForKey = definiteClausesAllArgsIndex.get(key);
+            ArgsIndex argsIndex = definiteClausesAllArgsIndex.get(key);
 
 
-            if (mapForKey == null) {
+            if (argsIndex == null) {
                 // We haven't had DefiniteClause build the index for this guy yet...we should probably do that.
-                mapForKey = buildIndexForKey(key);
+                argsIndex = buildIndexForKey(key);
             }
 
-            DefiniteClauseList definiteClauseList = mapForKey.get(lookupLiteral.getArguments());
+            DefiniteClauseList definiteClauseList = argsIndex.listsByArgs.get(lookupLiteral.getArguments());
 
             // If we got this far, than we know that the predicate/arity does have entries.
             // So, if definiteClauseList is null, then there must be no completions and we
             // should return an empty list.
             if (definiteClauseList == null) {
-                return getDefiniteClausesSeedList(key);
+                return argsIndex.ungroundClauses;
             }
             else {
                 return definiteClauseList;
@@ -143,75 +90,78 @@ public class LazyGroundClauseIndex {
         return null;
     }
 
-    private DefiniteClauseList getDefiniteClausesSeedList(PredicateNameAndArity key) {
-
-        DefiniteClauseList definiteClausesForKey = definiteClausesWithUngroundArgs.get(key);
-        if (definiteClausesForKey != null) {
-            return definiteClausesForKey;
-        }
-        else {
-            return new DefiniteClauseList();
-        }
+    @Override
+    public String toString() {
+        return "LazyGroundClauseIndex:\n" +
+                "  maximumIndexSize  : " + maximumIndexSize + ".\n" +
+                "  currentIndexSize  : " + definiteClausesAllArgsIndex.size() + ".\n" +
+                "  indicesConstructed: " + indicesConstructed.sum() + ".\n" +
+                "  indicesRemoved    : " + indicesRemoved.sum() + ".\n";
     }
 
-    private void addDefiniteClausesSeedDefiniteClause(PredicateNameAndArity key, DefiniteClause definiteClause) {
-        DefiniteClauseList definiteClausesForKey = definiteClausesWithUngroundArgs.get(key);
+    private ArgsIndex buildIndexForKey(PredicateNameAndArity key) {
+        ArgsIndex argsIndex = definiteClausesAllArgsIndex.computeIfAbsent(key, this::createIndexForKey);
 
-        if (definiteClausesForKey == null) {
-            definiteClausesForKey = new DefiniteClauseList();
-            definiteClausesWithUngroundArgs.put(key, definiteClausesForKey);
+        // Evict the oldest indices once there are too many.  Callers holding an evicted index can keep using it.
+        while (definiteClausesAllArgsIndex.size() > maximumIndexSize) {
+            PredicateNameAndArity eldest = indexedPredicates.poll();
+            if (eldest == null) {
+                break;
+            }
+            if (definiteClausesAllArgsIndex.remove(eldest) != null) {
+                indicesRemoved.increment();
+            }
         }
 
-        definiteClausesForKey.add(definiteClause);
+        return argsIndex;
     }
 
-    private void removeDefiniteClausesSeedDefiniteClause(PredicateNameAndArity key, DefiniteClause definiteClause) {
-        DefiniteClauseList definiteClausesForKey = definiteClausesWithUngroundArgs.get(key);
+    private ArgsIndex createIndexForKey(PredicateNameAndArity key) {
+        indicesConstructed.increment();
 
-        if (definiteClausesForKey != null) {
-            definiteClausesForKey.remove(definiteClause);
 
-            if (definiteClausesForKey.isEmpty()) {
-                definiteClausesWithUngroundArgs.remove(key);
-            }
-        }
-    }
+        MapOfDefiniteClauseLists assertions = clausebase.getAssertionsMap();
+        DefiniteClauseList clauses = assertions.getValues(key);
 
-    @Override
-    public String toString() {
-        return "LazyGroundClauseIndex:\n" +
-                "  maximumIndexSize  : " + maximumIndexSize + ".\n" +
-                "  currentIndexSize  : " + definiteClausesAllArgsIndex.size() + ".\n" +
-                "  indicesConstructed: " + indicesConstructed + ".\n" +
-                "  indicesRemoved    : " + indicesRemoved + ".\n";
-    }
+        Utils.println("% [ LazyGroundClauseIndex ]  Building full index for " + key + " with " + Utils.comma(clauses) + " assertions.");
 
-    private Map<List<Term>, DefiniteClauseList> buildIndexForKey(PredicateNameAndArity key) {
-        if (definiteClausesAllArgsIndex.containsKey(key)) {
-            throw new IllegalStateException("LazyGroundClauseIndex.buildIndexForKey(): Predicate " + key + " already indexed.");
+        ArgsIndex argsIndex = new ArgsIndex((int) Math.max(16, clauses.size() / 0.75 + 10));
+
+        for (DefiniteClause definiteClause : clauses) {
+            argsIndex.add(definiteClause);
         }
 
-        indicesConstructed++;
+        indexedPredicates.add(key);
 
+        return argsIndex;
+    }
 
-        MapOfDefiniteClauseLists assertions = clausebase.getAssertionsMap();
-        DefiniteClauseList clauses = assertions.getValues(key);
+    /* The index of one predicate.
+     *
+     * Clauses with a ground head are listed under the head's arguments.  Clauses whose
+     * head is not ground can match any arguments, so they are in every list and also
+     * in ungroundClauses, which seeds the lists for new argument combinations.  Keeping
+     * both together means that evicting a predicate is a single removal.
+     */
+    private static class ArgsIndex {
 
-        Map<List<Term>, DefiniteClauseList> mapForKey;
+        final Map<List<Term>, DefiniteClauseList> listsByArgs;
 
-        Utils.println("% [ LazyGroundClauseIndex ]  Building full index for " + key + " with " + Utils.comma(clauses) + " assertions.");
+        final DefiniteClauseList ungroundClauses = new DefiniteClauseList();
 
-        mapForKey = new HashMap<>((int) Math.max(16, clauses.size() / 0.75 + 10));
+        ArgsIndex(int initialCapacity) {
+            listsByArgs = new HashMap<>(initialCapacity);
+        }
 
-        for (DefiniteClause definiteClause : clauses) {
+        void add(DefiniteClause definiteClause) {
             Literal headLiteral = definiteClause.getDefiniteClauseHead();
 
             if (headLiteral.isGrounded()) {
-                DefiniteClauseList definiteClauseList = mapForKey.get(headLiteral.getArguments());
+                DefiniteClauseList definiteClauseList = listsByArgs.get(headLiteral.getArguments());
 
                 if (definiteClauseList == null) {
-                    definiteClauseList = new DefiniteClauseList(getDefiniteClausesSeedList(key));
-                    mapForKey.put(headLiteral.getArguments(), definiteClauseList);
+                    definiteClauseList = new DefiniteClauseList(ungroundClauses);
+                    listsByArgs.put(headLiteral.getArguments(), definiteClauseList);
                 }
 
                 definiteClauseList.add(definiteClause);
@@ -219,31 +169,34 @@ public class LazyGroundClauseIndex {
             else {
                 // This is an non-ground literal, so we just need to throw into all of the appropriate
                 // places was well as the seed list.
-                for (DefiniteClauseList list : mapForKey.values()) {
+                for (DefiniteClauseList list : listsByArgs.values()) {
                     list.add(definiteClause);
                 }
 
-                addDefiniteClausesSeedDefiniteClause(key, definiteClause);
+                ungroundClauses.add(definiteClause);
             }
         }
 
-        definiteClausesAllArgsIndex.put(key, mapForKey);
-
-        return mapForKey;
-    }
+        void remove(DefiniteClause definiteClause) {
+            Literal headLiteral = definiteClause.getDefiniteClauseHead();
 
-    private class LRUMap extends LinkedHashMap<PredicateNameAndArity, Map<List<Term>, DefiniteClauseList>> {
+            if (headLiteral.isGrounded()) {
+                DefiniteClauseList definiteClauseList = listsByArgs.get(headLiteral.getArguments());
 
-    	protected boolean removeEldestEntry(Map.Entry<PredicateNameAndArity, Map<List<Term>, DefiniteClauseList>> eldest) {     	
-        	
-            if (size() > maximumIndexSize) {          	
+                if (definiteClauseList != null) {
+                    definiteClauseList.remove(definiteClause);
 
-                definiteClausesWithUngroundArgs.remove(eldest.getKey());
-                indicesRemoved++;
-                return true;
+                    if (definiteClauseList.isEmpty()) {
+                        listsByArgs.remove(headLiteral.getArguments());
+                    }
+                }
             }
             else {
-                return false;
+                for (DefiniteClauseList list : listsByArgs.values()) {
+                    list.remove(definiteClause);
+                }
+
+                ungroundClauses.remove(definiteClause);
             }
         }
     }
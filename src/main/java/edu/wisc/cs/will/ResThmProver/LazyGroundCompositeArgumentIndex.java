@@ -0,0 +1,275 @@
+package edu.wisc.cs.will.ResThmProver;
+
+import edu.wisc.cs.will.FOPC.DefiniteClause;
+import edu.wisc.cs.will.FOPC.Literal;
+import edu.wisc.cs.will.FOPC.PredicateNameAndArity;
+import edu.wisc.cs.will.FOPC.Term;
+import edu.wisc.cs.will.Utils.Utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/* This is an index of definite clauses on a subset of the head's arguments, for instance the
+ * first and third argument of a 3-ary predicate.
+ *
+ * Which subsets are indexed is decided by the calls: every lookup records the positions that
+ * were ground, and once the same positions of a predicate have been looked up
+ * minimumLookupsToIndex times, they get an index of their own.  Like the other lazy indices,
+ * the oldest indices are evicted once there are more than maximumIndexSize of them, and adding
+ * and removing clauses is only done while no one is looking up (see HornClausebase.setFrozen).
+ *
+ * Only the first 32 arguments can be part of a subset.
+ */
+public class LazyGroundCompositeArgumentIndex {
+
+    private final HornClausebase clausebase;
+
+    private static int maximumIndexSizeDefault = 100;
+    private final int maximumIndexSize         = maximumIndexSizeDefault;
+    public  static void setMaximumIndexSize(int maximumIndexSizeToUse) {
+        maximumIndexSizeDefault = maximumIndexSizeToUse;
+    }
+
+    private static int minimumLookupsToIndexDefault = 20;
+    private final int minimumLookupsToIndex         = minimumLookupsToIndexDefault;
+    public  static void setMinimumLookupsToIndex(int minimumLookupsToIndexToUse) {
+        minimumLookupsToIndexDefault = minimumLookupsToIndexToUse;
+    }
+
+    private final LongAdder indicesConstructed = new LongAdder();
+
+    private final LongAdder indicesRemoved = new LongAdder();
+
+    /* How often each subset of ground arguments has been looked up. */
+    private final Map<CallPattern, LongAdder> lookupsByCallPattern = new ConcurrentHashMap<>();
+
+    private final Map<CallPattern, ArgsIndex> definiteClausesByCallPattern = new ConcurrentHashMap<>();
+
+    /* Call patterns in the order their indices were built, oldest first.  Used for eviction. */
+    private final ConcurrentLinkedQueue<CallPattern> indexedCallPatterns = new ConcurrentLinkedQueue<>();
+
+    public LazyGroundCompositeArgumentIndex(HornClausebase clausebase) {
+        this.clausebase = clausebase;
+    }
+
+    /* Returns the bit mask of the ground arguments of the literal that can be part of a subset. */
+    static int getGroundArgumentMask(Literal literal) {
+        int mask = 0;
+        int arity = Math.min(literal.numberArgs(), Integer.SIZE);
+        for (int i = 0; i < arity; i++) {
+            if (literal.getArgument(i).isGrounded()) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    void indexDefiniteClause(PredicateNameAndArity key, DefiniteClause definiteClause) {
+        for (Map.Entry<CallPattern, ArgsIndex> entry : definiteClausesByCallPattern.entrySet()) {
+            if (entry.getKey().predicateNameAndArity.equals(key)) {
+                entry.getValue().add(definiteClause);
+            }
+        }
+    }
+
+    void removeDefiniteClause(PredicateNameAndArity key, DefiniteClause definiteClause) {
+        for (Map.Entry<CallPattern, ArgsIndex> entry : definiteClausesByCallPattern.entrySet()) {
+            if (entry.getKey().predicateNameAndArity.equals(key)) {
+                entry.getValue().remove(definiteClause);
+            }
+        }
+    }
+
+    /* Records the lookup and returns the matching clauses, or null if these arguments are not indexed (yet).
+     *
+     * @param groundArgumentMask Ground arguments of lookupLiteral, see getGroundArgumentMask().
+     */
+    DefiniteClauseList lookupDefiniteClauses(Literal lookupLiteral, int groundArgumentMask) {
+        CallPattern callPattern = new CallPattern(lookupLiteral.getPredicateNameAndArity(), groundArgumentMask);
+
+        ArgsIndex argsIndex = definiteClausesByCallPattern.get(callPattern);
+
+        if (argsIndex == null) {
+            LongAdder lookups = lookupsByCallPattern.computeIfAbsent(callPattern, k -> new LongAdder());
+            lookups.increment();
+            if (lookups.sum() < minimumLookupsToIndex) {
+                return null;
+            }
+            argsIndex = buildIndexForCallPattern(callPattern);
+        }
+
+        DefiniteClauseList definiteClauseList = argsIndex.listsByArgs.get(argsIndex.getIndexedArguments(lookupLiteral));
+
+        // As in LazyGroundClauseIndex, no list means only the unground clauses can match.
+        return definiteClauseList == null ? argsIndex.ungroundClauses : definiteClauseList;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyGroundCompositeArgumentIndex:\n" +
+                "  maximumIndexSize  : " + maximumIndexSize + ".\n" +
+                "  currentIndexSize  : " + definiteClausesByCallPattern.size() + ".\n" +
+                "  callPatternsSeen  : " + lookupsByCallPattern.size() + ".\n" +
+                "  indicesConstructed: " + indicesConstructed.sum() + ".\n" +
+                "  indicesRemoved    : " + indicesRemoved.sum() + ".\n";
+    }
+
+    private ArgsIndex buildIndexForCallPattern(CallPattern callPattern) {
+        ArgsIndex argsIndex = definiteClausesByCallPattern.computeIfAbsent(callPattern, this::createIndexForCallPattern);
+
+        // Evict the oldest indices once there are too many.  Callers holding an evicted index can keep using it.
+        while (definiteClausesByCallPattern.size() > maximumIndexSize) {
+            CallPattern eldest = indexedCallPatterns.poll();
+            if (eldest == null) {
+                break;
+            }
+            if (definiteClausesByCallPattern.remove(eldest) != null) {
+                lookupsByCallPattern.remove(eldest);
+                indicesRemoved.increment();
+            }
+        }
+
+        return argsIndex;
+    }
+
+    private ArgsIndex createIndexForCallPattern(CallPattern callPattern) {
+        indicesConstructed.increment();
+
+        DefiniteClauseList clauses = clausebase.getAssertionsMap().getValues(callPattern.predicateNameAndArity);
+
+        Utils.println("% [ LazyGroundCompositeArgumentIndex ]  Building index for " + callPattern + " with " + Utils.comma(clauses) + " assertions.");
+
+        ArgsIndex argsIndex = new ArgsIndex(callPattern.groundArgumentMask);
+
+        if (clauses != null) {
+            for (DefiniteClause definiteClause : clauses) {
+                argsIndex.add(definiteClause);
+            }
+        }
+
+        indexedCallPatterns.add(callPattern);
+
+        return argsIndex;
+    }
+
+    /* A predicate together with the positions of its ground arguments. */
+    private static final class CallPattern {
+
+        final PredicateNameAndArity predicateNameAndArity;
+
+        final int groundArgumentMask;
+
+        CallPattern(PredicateNameAndArity predicateNameAndArity, int groundArgumentMask) {
+            this.predicateNameAndArity = predicateNameAndArity;
+            this.groundArgumentMask    = groundArgumentMask;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CallPattern)) return false;
+            CallPattern that = (CallPattern) o;
+            return groundArgumentMask == that.groundArgumentMask && predicateNameAndArity.equals(that.predicateNameAndArity);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * predicateNameAndArity.hashCode() + groundArgumentMask;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(predicateNameAndArity.toString()).append(" on arguments");
+            for (int i = 0; i < Integer.SIZE; i++) {
+                if ((groundArgumentMask & (1 << i)) != 0) {
+                    sb.append(" ").append(i);
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /* The index of one call pattern.
+     *
+     * This is LazyGroundClauseIndex's ArgsIndex restricted to the arguments in the mask: a clause
+     * with any of those arguments unground can match any lookup, so it is in every list and in
+     * ungroundClauses.
+     */
+    private static class ArgsIndex {
+
+        final int groundArgumentMask;
+
+        final Map<List<Term>, DefiniteClauseList> listsByArgs = new HashMap<>();
+
+        final DefiniteClauseList ungroundClauses = new DefiniteClauseList();
+
+        ArgsIndex(int groundArgumentMask) {
+            this.groundArgumentMask = groundArgumentMask;
+        }
+
+        /* Returns the arguments in the mask, or null if one of them is not ground. */
+        List<Term> getIndexedArguments(Literal literal) {
+            List<Term> arguments = new ArrayList<>(Integer.bitCount(groundArgumentMask));
+            for (int i = 0; i < Integer.SIZE; i++) {
+                if ((groundArgumentMask & (1 << i)) != 0) {
+                    Term argument = literal.getArgument(i);
+                    if (!argument.isGrounded()) {
+                        return null;
+                    }
+                    arguments.add(argument);
+                }
+            }
+            return arguments;
+        }
+
+        void add(DefiniteClause definiteClause) {
+            List<Term> arguments = getIndexedArguments(definiteClause.getDefiniteClauseHead());
+
+            if (arguments != null) {
+                DefiniteClauseList definiteClauseList = listsByArgs.get(arguments);
+
+                if (definiteClauseList == null) {
+                    definiteClauseList = new DefiniteClauseList(ungroundClauses);
+                    listsByArgs.put(arguments, definiteClauseList);
+                }
+
+                definiteClauseList.add(definiteClause);
+            }
+            else {
+                for (DefiniteClauseList list : listsByArgs.values()) {
+                    list.add(definiteClause);
+                }
+
+                ungroundClauses.add(definiteClause);
+            }
+        }
+
+        void remove(DefiniteClause definiteClause) {
+            List<Term> arguments = getIndexedArguments(definiteClause.getDefiniteClauseHead());
+
+            if (arguments != null) {
+                DefiniteClauseList definiteClauseList = listsByArgs.get(arguments);
+
+                if (definiteClauseList != null) {
+                    definiteClauseList.remove(definiteClause);
+
+                    if (definiteClauseList.isEmpty()) {
+                        listsByArgs.remove(arguments);
+                    }
+                }
+            }
+            else {
+                for (DefiniteClauseList list : listsByArgs.values()) {
+                    list.remove(definiteClause);
+                }
+
+                ungroundClauses.remove(definiteClause);
+            }
+        }
+    }
+}
@@ -7,10 +7,16 @@ import edu.wisc.cs.will.FOPC.Term;
 import edu.wisc.cs.will.Utils.Utils;
 
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 /* This is an index of definite clauses (either Clauses or Literal or a mix of both) with ground Nth arguments in the head.
+ *
+ * Lookups may come from several threads at once; the index for a predicate is built once
+ * with ConcurrentHashMap.computeIfAbsent, and the oldest predicates are evicted in insertion order.
+ * Adding and removing clauses is only done while no one is looking up (see HornClausebase.setFrozen).
  *
  * @author twalker
  */
@@ -25,8 +31,9 @@ public class LazyGroundNthArgumentClauseIndex {
     	maximumIndexSizeDefault = maximumIndexSizeToUse;
 	}
 
-	private int indicesConstructed = 0;
-    private int indicesRemoved = 0;
+	private final LongAdder indicesConstructed = new LongAdder();
+
+    private final LongAdder indicesRemoved = new LongAdder();
     
     private int indexedArgument;
 
@@ -34,14 +41,17 @@ public class LazyGroundNthArgumentClauseIndex {
 
     /* Index of clauses which might match a constant arg N.
      */
-    private Map<PredicateNameAndArity, Map<Term, DefiniteClauseList>> definiteClausesByArgNIndex = new HashMap<>();
+    private final Map<PredicateNameAndArity, Map<Term, DefiniteClauseList>> definiteClausesByArgNIndex = new ConcurrentHashMap<>();
 
     /* Store clauses in which the Nth arg is not ground.
      *
      * This is used to as a starting place for new definiteClause lists indexed by the
      * Nth args.  This is necessary to make sure unseen
      */
-    private final Map<PredicateNameAndArity, DefiniteClauseList> definiteClausesWithUngroundNthArg = new HashMap<>();
+    private final Map<PredicateNameAndArity, DefiniteClauseList> definiteClausesWithUngroundNthArg = new ConcurrentHashMap<>();
+
+    /* Predicates in the order their indices were built, oldest first.  Used for eviction. */
+    private final ConcurrentLinkedQueue<PredicateNameAndArity> indexedPredicates = new ConcurrentLinkedQueue<>();
 
 
     public LazyGroundNthArgumentClauseIndex(HornClausebase clausebase, int indexedArgument) {
@@ -55,10 +65,6 @@ public class LazyGroundNthArgumentClauseIndex {
             Literal literal = definiteClause.getDefiniteClauseHead();
 
             if (literal.numberArgs() >= minimumClauseLengthToIndex) {
-                if (definiteClausesByArgNIndex == null) {
-                    definiteClausesByArgNIndex = new HashMap<>();
-                }
-
                 Map<Term, DefiniteClauseList> mapForKey = definiteClausesByArgNIndex.get(key);
                 if (mapForKey == null) {
                     mapForKey = new HashMap<>();
@@ -101,32 +107,29 @@ public class LazyGroundNthArgumentClauseIndex {
             Literal literal = definiteClause.getDefiniteClauseHead();
 
             if (literal.numberArgs() >= minimumClauseLengthToIndex) {
-                if (definiteClausesByArgNIndex != null) {
-
-                    Map<Term, DefiniteClauseList> mapForKey = definiteClausesByArgNIndex.get(key);
-                    if (mapForKey != null) {
+                Map<Term, DefiniteClauseList> mapForKey = definiteClausesByArgNIndex.get(key);
+                if (mapForKey != null) {
 
-                        Term key2 = literal.getArgument(indexedArgument);
+                    Term key2 = literal.getArgument(indexedArgument);
 
-                        if (key2.isGrounded()) {
+                    if (key2.isGrounded()) {
 
-                            DefiniteClauseList definiteClauseList = mapForKey.get(key2);
+                        DefiniteClauseList definiteClauseList = mapForKey.get(key2);
 
-                            if (definiteClauseList != null) {
-                                definiteClauseList.remove(definiteClause);
-                            }
+                        if (definiteClauseList != null) {
+                            definiteClauseList.remove(definiteClause);
                         }
-                        else {
-                            // If key2 isn't grounded, we have a problem.  We have to add
-                            // this definiteClause to every single index entry currently existing.
-                            // We also must add it to a list of unground Nth arg clauses
-                            // that will later be used as a seed for unseed ground Nth args.
-                            for (DefiniteClauseList list : mapForKey.values()) {
-                                list.remove(definiteClause);
-                            }
-
-                            removeDefiniteClauseByNthArgSeedSentence(key, definiteClause);
+                    }
+                    else {
+                        // If key2 isn't grounded, we have a problem.  We have to add
+                        // this definiteClause to every single index entry currently existing.
+                        // We also must add it to a list of unground Nth arg clauses
+                        // that will later be used as a seed for unseed ground Nth args.
+                        for (DefiniteClauseList list : mapForKey.values()) {
+                            list.remove(definiteClause);
                         }
+
+                        removeDefiniteClauseByNthArgSeedSentence(key, definiteClause);
                     }
                 }
             }
@@ -175,13 +178,13 @@ public class LazyGroundNthArgumentClauseIndex {
      * for example, if the Nth argument of literalToLookup is unground.
      */
     DefiniteClauseList lookupDefiniteClauses(Literal literalToLookup) {
-        if (definiteClausesByArgNIndex != null && literalToLookup != null && literalToLookup.numberArgs() >= minimumClauseLengthToIndex && literalToLookup.getArgument(indexedArgument).isGrounded()) {
+        if (literalToLookup != null && literalToLookup.numberArgs() >= minimumClauseLengthToIndex && literalToLookup.getArgument(indexedArgument).isGrounded()) {
             PredicateNameAndArity key = new PredicateNameAndArity(literalToLookup.predicateName, literalToLookup.numberArgs());
 
             Map<Term, DefiniteClauseList> mapForKey = definiteClausesByArgNIndex.get(key);
 
             if (mapForKey == null) {
-                mapForKey = buildIndex(key);
+                mapForKey = buildIndexForKey(key);
             }
 
             if (mapForKey != null) {
@@ -208,8 +211,8 @@ public class LazyGroundNthArgumentClauseIndex {
         return "LazyGroundNthArgumentClauseIndex[" + indexedArgument + "]:\n" +
                 "  maximumIndexSize  : " + maximumIndexSize + ".\n" +
                 "  currentIndexSize  : " + definiteClausesByArgNIndex.size() + ".\n" +
-                "  indicesConstructed: " + indicesConstructed + ".\n" +
-                "  indicesRemoved    : " + indicesRemoved + ".\n";
+                "  indicesConstructed: " + indicesConstructed.sum() + ".\n" +
+                "  indicesRemoved    : " + indicesRemoved.sum() + ".\n";
     }
 
     private void setIndexedArgument(int indexedArgument) {
@@ -217,6 +220,27 @@ public class LazyGroundNthArgumentClauseIndex {
         this.minimumClauseLengthToIndex = Math.max(2, indexedArgument + 1);
     }
 
+    private Map<Term, DefiniteClauseList> buildIndexForKey(PredicateNameAndArity key) {
+        Map<Term, DefiniteClauseList> mapForKey = definiteClausesByArgNIndex.computeIfAbsent(key, this::buildIndex);
+
+        // Evict the oldest indices once there are too many.  Callers holding an evicted index can keep using it.
+        while (definiteClausesByArgNIndex.size() > maximumIndexSize) {
+            PredicateNameAndArity eldest = indexedPredicates.poll();
+            if (eldest == null) {
+                break;
+            }
+            if (definiteClausesByArgNIndex.remove(eldest) != null) {
+                indicesRemoved.increment();
+            }
+        }
+
+        return mapForKey;
+    }
+
+    /* Builds the index for a predicate.  Called by computeIfAbsent, which stores the result (unless it is null).
+     *
+     * The seed list of unground clauses is built afresh and replaces any left from an evicted index of the predicate.
+     */
     private Map<Term, DefiniteClauseList> buildIndex(PredicateNameAndArity predicateNameAndArity) {
 
         Map<Term, DefiniteClauseList> mapForKey = null;
@@ -231,12 +255,10 @@ public class LazyGroundNthArgumentClauseIndex {
             	 // Changed by JWS.
                 Utils.println("% [ LazyGroundNthArgumentClauseIndex ]  Argument " + indexedArgument + ":  Building full index for " + predicateNameAndArity + ".");
 
-                if (definiteClausesByArgNIndex == null) {
-                    definiteClausesByArgNIndex = new MyMap();
-                }
-
                 mapForKey = new HashMap<>();
 
+                DefiniteClauseList seedList = new DefiniteClauseList();
+
                 for (DefiniteClause definiteClause : keyAssertions) {
                     Literal literal = definiteClause.getDefiniteClauseHead();
 
@@ -247,7 +269,7 @@ public class LazyGroundNthArgumentClauseIndex {
                         DefiniteClauseList definiteClauseList = mapForKey.get(nthArgument);
 
                         if (definiteClauseList == null) {
-                            definiteClauseList = new DefiniteClauseList(getDefiniteClauseByNthArgSeedList(predicateNameAndArity));
+                            definiteClauseList = new DefiniteClauseList(seedList);
                             mapForKey.put(nthArgument, definiteClauseList);
                         }
 
@@ -258,28 +280,21 @@ public class LazyGroundNthArgumentClauseIndex {
                             list.add(definiteClause);
                         }
 
-                        addDefiniteClauseByNthArgSeedSentence(predicateNameAndArity, definiteClause);
+                        seedList.add(definiteClause);
                     }
                 }
 
-                definiteClausesByArgNIndex.put(predicateNameAndArity, mapForKey);
-                indicesConstructed++;
-            }
-        }
-        return mapForKey;
-    }
-
-    private class MyMap extends LinkedHashMap<PredicateNameAndArity, Map<Term, DefiniteClauseList>> {
+                if (seedList.isEmpty()) {
+                    definiteClausesWithUngroundNthArg.remove(predicateNameAndArity);
+                }
+                else {
+                    definiteClausesWithUngroundNthArg.put(predicateNameAndArity, seedList);
+                }
 
-        protected boolean removeEldestEntry(Map.Entry<PredicateNameAndArity, Map<Term, DefiniteClauseList>> eldest) {
-            if (size() > maximumIndexSize) {
-                definiteClausesWithUngroundNthArg.remove(eldest.getKey());
-                indicesRemoved++;
-                return true;
-            }
-            else {
-                return false;
+                indexedPredicates.add(predicateNameAndArity);
+                indicesConstructed.increment();
             }
         }
+        return mapForKey;
     }
 }
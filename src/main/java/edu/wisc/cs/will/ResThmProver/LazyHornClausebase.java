@@ -39,6 +39,19 @@ public class LazyHornClausebase implements HornClausebase {
 
     private int duplicateRuleCount = 0;
 
+    /* For each predicate whose facts have been checked for duplicates, how many times each ground fact has been asserted.
+     *
+     * A fact is keyed by its arguments (see getGroundFactKey()).  Built lazily by getGroundFactCounts() and then kept
+     * up to date by the assertions and removeClause().
+     */
+    private Map<PredicateNameAndArity, Map<List<Term>, Integer>> groundFactCounts;
+
+    /* Bumped on every assertion and removeClause.  See getFactsVersion(). */
+    private long factsVersion = 0;
+
+    /* While set, the clausebase cannot change and may be queried from several threads.  See setFrozen(). */
+    private volatile boolean frozen = false;
+
     public LazyHornClausebase(HandleFOPCstrings stringHandler) {
         initializeClausebase(stringHandler);
     }
@@ -52,6 +65,7 @@ public class LazyHornClausebase implements HornClausebase {
     /* Initializes the clausebase. */
     private void setupDataStructures() {
         assertions = new MapOfDefiniteClauseLists();
+        groundFactCounts = new HashMap<>();
         // Check to see if the indexers are null, since someone might have tried to use other indexing class
         // if they knew something specific about their data.
         if (indexerForAllAssertions == null) {
@@ -62,11 +76,16 @@ public class LazyHornClausebase implements HornClausebase {
 
     @Override
     public void assertBackgroundKnowledge(DefiniteClause definiteClause) throws IllegalArgumentException {
+        checkNotFrozen(definiteClause);
         if (definiteClause.isDefiniteClause()) {
             Clause clause = definiteClause.getDefiniteClauseAsClause();
             if (checkRule(clause)) {
                 assertions.add(clause.getDefiniteClauseHead().getPredicateNameAndArity(), definiteClause);
                 indexerForAllAssertions.indexAssertion(clause);
+                if (definiteClause.isDefiniteClauseFact()) {
+                    countGroundFact(definiteClause.getDefiniteClauseFactAsLiteral(), 1);
+                }
+                factsVersion++;
             }
         }
         else {
@@ -76,9 +95,12 @@ public class LazyHornClausebase implements HornClausebase {
 
     @Override
     public void assertFact(Literal literal) {
+        checkNotFrozen(literal);
         if (checkFact(literal)) {
             assertions.add(literal.getPredicateNameAndArity(), literal);
             indexerForAllAssertions.indexAssertion(literal);
+            countGroundFact(literal, 1);
+            factsVersion++;
         }
     }
 
@@ -91,15 +113,22 @@ public class LazyHornClausebase implements HornClausebase {
     }
 
     private void removeClause(DefiniteClause clauseToRemove) {
+        checkNotFrozen(clauseToRemove);
         PredicateNameAndArity pnaa = clauseToRemove.getDefiniteClauseHead().getPredicateNameAndArity();
         assertions.removeValue(pnaa, clauseToRemove);
         removeFromIndexes(clauseToRemove);
+        if (clauseToRemove.isDefiniteClauseFact()) {
+            countGroundFact(clauseToRemove.getDefiniteClauseFactAsLiteral(), -1);
+        }
+        factsVersion++;
     }
 
     @Override
     public void retractAllClausesWithUnifyingBody(DefiniteClause definiteClause) {
         Literal clauseHead = definiteClause.getDefiniteClauseHead();
-        Collection<DefiniteClause> matchAssertions = getAssertions(clauseHead.predicateName, clauseHead.numberArgs());
+        // The indexes only return the assertions whose heads could unify with clauseHead, e.g., for a ground fact its copies
+        // and any clauses with variables in their heads, rather than every assertion of the predicate.
+        Collection<DefiniteClause> matchAssertions = getPossibleMatchingAssertions(clauseHead, null);
         if (matchAssertions != null) {
             Iterator<DefiniteClause> it = matchAssertions.iterator();
             DefiniteClauseList clausesToRemove = null;
@@ -219,12 +248,34 @@ public class LazyHornClausebase implements HornClausebase {
         return list == null ? null : list.getFactIterable();
     }
 
-    public MapOfDefiniteClauseLists getAssertionsMap() {
-        return assertions;
+    @Override
+    public long getFactsVersion() {
+        return factsVersion;
     }
 
-    private DefiniteClauseList getAssertions(PredicateName predName, int arity) {
-        return getIndexerForAllAssertions().getPossibleMatchingAssertions(predName, arity);
+    @Override
+    public void setFrozen(boolean frozen) {
+        this.frozen = frozen;
+    }
+
+    @Override
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    @Override
+    public void buildEagerIndex() {
+        indexerForAllAssertions.buildEagerIndex();
+    }
+
+    private void checkNotFrozen(DefiniteClause definiteClause) {
+        if (frozen) {
+            throw new IllegalStateException("Attempted to change a frozen clausebase: " + definiteClause);
+        }
+    }
+
+    public MapOfDefiniteClauseLists getAssertionsMap() {
+        return assertions;
     }
 
     @Override
@@ -274,6 +325,10 @@ public class LazyHornClausebase implements HornClausebase {
     }
 
     private boolean isFactAsserted(Literal literal) {
+        List<Term> key = getGroundFactKey(literal);
+        if (key != null) {
+            return getGroundFactCounts(literal.getPredicateNameAndArity()).containsKey(key);
+        }
         Iterable<Literal> possibleMatchingFacts = getPossibleMatchingFacts(literal, null);
         if (possibleMatchingFacts != null) {
             for (Literal anotherFact : possibleMatchingFacts) {
@@ -286,6 +341,64 @@ public class LazyHornClausebase implements HornClausebase {
         return false;
     }
 
+    /* Returns the number of times each ground fact of the predicate has been asserted, counting them the first time it is asked for. */
+    private Map<List<Term>, Integer> getGroundFactCounts(PredicateNameAndArity pnaa) {
+        Map<List<Term>, Integer> counts = groundFactCounts.get(pnaa);
+        if (counts == null) {
+            counts = new HashMap<>();
+            DefiniteClauseList clauses = assertions.getValues(pnaa);
+            if (clauses != null) {
+                for (DefiniteClause definiteClause : clauses) {
+                    if (definiteClause.isDefiniteClauseFact()) {
+                        List<Term> key = getGroundFactKey(definiteClause.getDefiniteClauseFactAsLiteral());
+                        if (key != null) {
+                            counts.merge(key, 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+            groundFactCounts.put(pnaa, counts);
+        }
+        return counts;
+    }
+
+    /* Updates the count of a ground fact that was asserted (change = 1) or removed (change = -1), if its predicate is being counted. */
+    private void countGroundFact(Literal fact, int change) {
+        Map<List<Term>, Integer> counts = groundFactCounts.get(fact.getPredicateNameAndArity());
+        List<Term> key;
+        if (counts != null && (key = getGroundFactKey(fact)) != null) {
+            Integer count = counts.get(key);
+            int newCount = (count == null ? 0 : count) + change;
+            if (newCount > 0) {
+                counts.put(key, newCount);
+            }
+            else {
+                counts.remove(key);
+            }
+        }
+    }
+
+    /* Returns the key of a fact in groundFactCounts, i.e., its arguments.
+     *
+     * Returns null if the fact has named arguments or an argument that is not a constant (a variable or a function).
+     * Such facts are checked for duplicates by comparing them with each possible match.
+     */
+    private static List<Term> getGroundFactKey(Literal fact) {
+        if (fact.getArgumentNames() != null) {
+            return null;
+        }
+        List<Term> arguments = fact.getArguments();
+        if (arguments == null) {
+            return Collections.emptyList();
+        }
+        for (Term argument : arguments) {
+            if (!(argument instanceof Constant)) {
+                return null;
+            }
+        }
+        return new ArrayList<>(arguments); // Constants are compared by identity, as when checking variants.
+    }
+
     /* Returns the index for all assertions.
      *
      * If the index is not built yet, this method will build it.
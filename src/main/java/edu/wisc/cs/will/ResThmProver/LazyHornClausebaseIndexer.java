@@ -2,7 +2,13 @@ package edu.wisc.cs.will.ResThmProver;
 
 import edu.wisc.cs.will.FOPC.*;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /*
+ * Lookups are safe from any number of threads: the sub-indices build themselves with
+ * ConcurrentHashMap.computeIfAbsent and the statistics are LongAdders.  Indexing and
+ * removing assertions is single threaded and only happens while the clausebase is not frozen.
+ *
  * @author twalker
  */
 class LazyHornClausebaseIndexer {
@@ -15,19 +21,32 @@ class LazyHornClausebaseIndexer {
 
     private LazyGroundClauseIndex groundClauseIndex = null;
 
+    private LazyGroundCompositeArgumentIndex compositeArgIndex = null;
+
     private PredicateIndex<DefiniteClause> predicateIndex = null;
 
-    private long[] singleGroundArgIndexLookupCount = null;
+    /* Only set once buildEagerIndex() is called. */
+    private EagerGroundArgumentIndex eagerIndex = null;
+
+    private LongAdder[] singleGroundArgIndexLookupCount = null;
+
+    private LongAdder groundClauseLookupCount = null;
+
+    private LongAdder compositeArgIndexLookupCount = null;
+
+    private LongAdder predicateLookupCount = null;
+
+    private LongAdder eagerIndexLookupCount = null;
 
-    private long groundClauseLookupCount = 0;
+    private LongAdder[] singleGroundArgIndexHitCount = null;
 
-    private long predicateLookupCount = 0;
+    private LongAdder groundClauseHitCount = null;
 
-    private long[] singleGroundArgIndexHitCount = null;
+    private LongAdder compositeArgIndexHitCount = null;
 
-    private long groundClauseHitCount = 0;
+    private LongAdder predicateHitCount = null;
 
-    private long predicateHitCount = 0;
+    private LongAdder eagerIndexHitCount = null;
 
     LazyHornClausebaseIndexer(HornClausebase clausebase) {
         this(clausebase, 2);
@@ -51,14 +70,34 @@ class LazyHornClausebaseIndexer {
         
         predicateIndex = new PredicateIndex<>();
         groundClauseIndex = new LazyGroundClauseIndex(clausebase);
+        compositeArgIndex = new LazyGroundCompositeArgumentIndex(clausebase);
+        eagerIndex = null;
+
+        singleGroundArgIndexLookupCount = newCounters(indexWidth);
+        groundClauseLookupCount = new LongAdder();
+        compositeArgIndexLookupCount = new LongAdder();
+        predicateLookupCount = new LongAdder();
+        eagerIndexLookupCount = new LongAdder();
+
+        singleGroundArgIndexHitCount = newCounters(indexWidth);
+        groundClauseHitCount = new LongAdder();
+        compositeArgIndexHitCount = new LongAdder();
+        predicateHitCount = new LongAdder();
+        eagerIndexHitCount = new LongAdder();
+    }
 
-        singleGroundArgIndexLookupCount = new long[indexWidth];
-        groundClauseLookupCount = 0;
-        predicateLookupCount = 0;
+    /* Indexes every argument of every predicate now, rather than as lookups come in. */
+    void buildEagerIndex() {
+        eagerIndex = new EagerGroundArgumentIndex(clausebase);
+        eagerIndex.build();
+    }
 
-        singleGroundArgIndexHitCount = new long[indexWidth];
-        groundClauseHitCount = 0;
-        predicateHitCount = 0;
+    private static LongAdder[] newCounters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
     }
 
     void indexAssertion(DefiniteClause definiteClause) {
@@ -67,11 +106,16 @@ class LazyHornClausebaseIndexer {
 
             PredicateNameAndArity key = new PredicateNameAndArity(definiteClause);
 
+            if (eagerIndex != null) {
+                eagerIndex.removePredicate(key);
+            }
+
             // Even though we are lazy, we still need to notify the subindices that
             // new clauses came along, just in case they have indexed that predicate
             // already.
 
             indexDefiniteClauseByAllArgs(key, definiteClause);
+            compositeArgIndex.indexDefiniteClause(key, definiteClause);
             for (int i = 0; i < indexWidth && i < key.getArity(); i++) {
                 indexDefiniteClauseByNthArg(i, key, definiteClause);
             }
@@ -83,8 +127,13 @@ class LazyHornClausebaseIndexer {
 
         PredicateNameAndArity key = new PredicateNameAndArity(definiteClause);
 
+        if (eagerIndex != null) {
+            eagerIndex.removePredicate(key);
+        }
+
         removeDefiniteClauseByPredicate(key, definiteClause);
         removeDefiniteClauseByAllArgs(key, definiteClause);
+        compositeArgIndex.removeDefiniteClause(key, definiteClause);
         for (int i = 0; i < indexWidth && i < key.getArity(); i++) {
             removeDefiniteClauseByNthArg(i, key, definiteClause);
         }
@@ -105,9 +154,18 @@ class LazyHornClausebaseIndexer {
             // Short term, we are just going to apply the binding list to the clause head.
             Literal boundClauseHead = (clauseHead.isGrounded() || currentBindings == null) ? clauseHead : clauseHead.applyTheta(currentBindings.theta);
 
+            if (eagerIndex != null) {
+                eagerIndexLookupCount.increment();
+                set = eagerIndex.lookupDefiniteClauses(boundClauseHead);
+                if (set != null) {
+                    eagerIndexHitCount.increment();
+                    return set;
+                }
+            }
+
             set = lookupDefiniteClauseByAllArgs(boundClauseHead);
             if (set != null) {
-                groundClauseHitCount++;
+                groundClauseHitCount.increment();
                 return set;
             }
             else {
@@ -120,7 +178,7 @@ class LazyHornClausebaseIndexer {
                         aSet = lookupDefiniteClausesByNthArgs(i, boundClauseHead);
 
                         if (aSet != null) {
-                            singleGroundArgIndexHitCount[i]++;
+                            singleGroundArgIndexHitCount[i].increment();
                             if (set == null || aSet.size() < set.size()) {
                                 set = aSet;
                             }
@@ -128,10 +186,24 @@ class LazyHornClausebaseIndexer {
                     }
                 }
 
+                // The single argument indices only cover the first indexWidth arguments, one at a time.
+                // When more (or other) arguments are ground, let the composite index narrow things down.
+                int groundArgumentMask = LazyGroundCompositeArgumentIndex.getGroundArgumentMask(boundClauseHead);
+                if (groundArgumentMask != 0 && (Integer.bitCount(groundArgumentMask) > 1 || groundArgumentMask >= 1 << indexWidth) && (set == null || set.size() > 1)) {
+                    aSet = lookupDefiniteClausesByCompositeArgs(boundClauseHead, groundArgumentMask);
+
+                    if (aSet != null) {
+                        compositeArgIndexHitCount.increment();
+                        if (set == null || aSet.size() < set.size()) {
+                            set = aSet;
+                        }
+                    }
+                }
+
                 if (set == null) {
                     set = lookupDefiniteClausesByPredicate(pnaa);
                     if (set != null && !set.isEmpty()) {
-                        predicateHitCount++;
+                        predicateHitCount.increment();
                     }
                 }
                 return set;
@@ -163,12 +235,17 @@ class LazyHornClausebaseIndexer {
 
     private DefiniteClauseList lookupDefiniteClausesByNthArgs(int indexedArgument, Literal literal) {
         if (singleGroundArgIndexArray[indexedArgument] != null) {
-            singleGroundArgIndexLookupCount[indexedArgument]++;
+            singleGroundArgIndexLookupCount[indexedArgument].increment();
             return singleGroundArgIndexArray[indexedArgument].lookupDefiniteClauses(literal);
         }
         return null;
     }
 
+    private DefiniteClauseList lookupDefiniteClausesByCompositeArgs(Literal literal, int groundArgumentMask) {
+        compositeArgIndexLookupCount.increment();
+        return compositeArgIndex.lookupDefiniteClauses(literal, groundArgumentMask);
+    }
+
     private void indexDefiniteClauseByAllArgs(PredicateNameAndArity key, DefiniteClause sentence) {
         groundClauseIndex.indexDefiniteClause(key, sentence);
     }
@@ -181,7 +258,7 @@ class LazyHornClausebaseIndexer {
 
     private DefiniteClauseList lookupDefiniteClauseByAllArgs(Literal literalToLookup) {
         if (groundClauseIndex != null && literalToLookup != null && literalToLookup.isGrounded()) {
-            groundClauseLookupCount++;
+            groundClauseLookupCount.increment();
             return groundClauseIndex.lookupDefiniteClauses(literalToLookup);
         }
         return null;
@@ -195,7 +272,7 @@ class LazyHornClausebaseIndexer {
 
     private DefiniteClauseList lookupDefiniteClausesByPredicate(PredicateNameAndArity pnaa) {
         if (predicateIndex != null) {
-            predicateLookupCount++;
+            predicateLookupCount.increment();
             return clausebase.getAssertionsMap().getValues(pnaa);
         }
         return null;
@@ -206,13 +283,30 @@ class LazyHornClausebaseIndexer {
         StringBuilder sb = new StringBuilder();
         sb.append("% DefaultHornClauseFactbaseIndexer:\n");
         for (int i = 0; i < indexWidth; i++) {
-            sb.append(String.format("%%   Ground Argument %d  : Lookups = %d, Hits = %d, Efficiency = %.2f%%.\n", i, singleGroundArgIndexLookupCount[i], singleGroundArgIndexHitCount[i], 100.0 * singleGroundArgIndexHitCount[i] / singleGroundArgIndexLookupCount[i]));
+            long lookups = singleGroundArgIndexLookupCount[i].sum();
+            long hits    = singleGroundArgIndexHitCount[i].sum();
+            sb.append(String.format("%%   Ground Argument %d  : Lookups = %d, Hits = %d, Efficiency = %.2f%%.\n", i, lookups, hits, 100.0 * hits / lookups));
         }
 
-        sb.append(String.format("%%   All ground index    : Lookups = %d, Hits = %d, Efficiency = %.2f%%.\n", groundClauseLookupCount, groundClauseHitCount, 100.0 * groundClauseHitCount / groundClauseLookupCount));
-        sb.append(String.format("%%   Predicates Index    : Lookups = %d, Hits = %d, Efficiency = %.2f%%.\n", predicateLookupCount, predicateHitCount, 100.0 * predicateHitCount / predicateLookupCount));
+        long groundLookups    = groundClauseLookupCount.sum();
+        long groundHits       = groundClauseHitCount.sum();
+        long compositeLookups = compositeArgIndexLookupCount.sum();
+        long compositeHits    = compositeArgIndexHitCount.sum();
+        long predicateLookups = predicateLookupCount.sum();
+        long predicateHits    = predicateHitCount.sum();
+        sb.append(String.format("%%   All ground index    : Lookups = %d, Hits = %d, Efficiency = %.2f%%.\n", groundLookups, groundHits, 100.0 * groundHits / groundLookups));
+        sb.append(String.format("%%   Composite index     : Lookups = %d, Hits = %d, Efficiency = %.2f%%.\n", compositeLookups, compositeHits, 100.0 * compositeHits / compositeLookups));
+        sb.append(String.format("%%   Predicates Index    : Lookups = %d, Hits = %d, Efficiency = %.2f%%.\n", predicateLookups, predicateHits, 100.0 * predicateHits / predicateLookups));
+
+        if (eagerIndex != null) {
+            long eagerLookups = eagerIndexLookupCount.sum();
+            long eagerHits    = eagerIndexHitCount.sum();
+            sb.append(String.format("%%   Eager index         : Lookups = %d, Hits = %d, Efficiency = %.2f%%.\n", eagerLookups, eagerHits, 100.0 * eagerHits / eagerLookups));
+            sb.append(eagerIndex);
+        }
 
         if ( groundClauseIndex != null ) sb.append(groundClauseIndex);
+        if ( compositeArgIndex != null ) sb.append(compositeArgIndex);
         for (LazyGroundNthArgumentClauseIndex lazyGroundNthArgumentClauseIndex : singleGroundArgIndexArray) {
             if (lazyGroundNthArgumentClauseIndex != null) sb.append(lazyGroundNthArgumentClauseIndex);
         }
@@ -0,0 +1,357 @@
+package edu.wisc.cs.will.ResThmProver;
+
+import edu.wisc.cs.will.FOPC.ConnectiveName;
+import edu.wisc.cs.will.FOPC.HandleFOPCstrings;
+import edu.wisc.cs.will.FOPC.Literal;
+import edu.wisc.cs.will.FOPC.PredicateName;
+import edu.wisc.cs.will.FOPC.Sentence;
+import edu.wisc.cs.will.FOPC.Term;
+import edu.wisc.cs.will.FOPC.Variable;
+import edu.wisc.cs.will.Utils.Utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Reads a facts file and asserts each fact into the clausebase as soon as it is read.
+ *
+ * FileParser reads the whole file into a list of sentences before anything is asserted.  This
+ * reads a line at a time instead, and lexes the usual one-fact-per-line form, e.g.
+ *
+ *     p(a, b, 3, 1.5).
+ *
+ * straight into a literal using the same string handler calls as the parser.  Anything else
+ * (quoted strings, variables, signs, several facts on a line, a fact spread over several lines,
+ * block comments, ...) is handed to the parser one statement at a time, so the clausebase ends up
+ * the same either way.  Directives such as 'usePrologVariables: true.' change how the rest of the
+ * file is read, so everything from the first directive on is read by the parser.
+ *
+ * The returned list holds the asserted sentences themselves (TypeManagement still needs to look
+ * at them), not copies.
+ */
+public class StreamingFactLoader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final HornClauseContext context;
+
+    private final HandleFOPCstrings stringHandler;
+
+    private long factsLexed = 0;
+
+    private long statementsParsed = 0;
+
+    public StreamingFactLoader(HornClauseContext context) {
+        this.context       = context;
+        this.stringHandler = context.getStringHandler();
+    }
+
+    public List<Sentence> load(Reader reader, String directoryName) {
+        BufferedReader in = new BufferedReader(reader, BUFFER_SIZE);
+        List<Sentence> loaded = new ArrayList<>();
+
+        StringBuilder    pending = new StringBuilder(); // Lines the parser needs to read, up to the end of a statement.
+        StatementScanner scanner = new StatementScanner();
+
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (pending.length() == 0) {
+                    int start = skipWhitespace(line, 0);
+                    if (atEndOfLine(line, start)) {
+                        continue;
+                    }
+
+                    Literal fact = lexFact(line, start);
+                    if (fact != null) {
+                        context.getClausebase().assertFact(fact);
+                        loaded.add(fact);
+                        factsLexed++;
+                        continue;
+                    }
+                }
+
+                pending.append(line).append('\n');
+                scanner.scan(line);
+
+                if (scanner.atDirective()) {
+                    // Let the parser read the rest, so the directive applies to all of it.
+                    PushbackReader rest = new PushbackReader(in, pending.length());
+                    rest.unread(pending.toString().toCharArray());
+                    parseAndAssert(rest, directoryName, loaded);
+                    pending.setLength(0);
+                    break;
+                }
+                if (scanner.atEndOfStatement()) {
+                    parseAndAssert(new StringReader(pending.toString()), directoryName, loaded);
+                    pending.setLength(0);
+                    scanner.reset();
+                }
+            }
+            if (pending.length() > 0) {
+                parseAndAssert(new StringReader(pending.toString()), directoryName, loaded);
+            }
+        } catch (IOException e) {
+            Utils.reportStackTrace(e);
+            Utils.error("Unable to read the facts from: " + reader + ".\nError message: " + e.getMessage());
+        }
+
+        Utils.println("% [ StreamingFactLoader ]  Lexed " + Utils.comma(factsLexed) + " facts and parsed " + Utils.comma(statementsParsed) + " other statements.");
+        return loaded;
+    }
+
+    public long getFactsLexed() {
+        return factsLexed;
+    }
+
+    public long getStatementsParsed() {
+        return statementsParsed;
+    }
+
+    private void parseAndAssert(Reader reader, String directoryName, List<Sentence> loaded) {
+        List<Sentence> sentences = context.getFileParser().readFOPCreader(reader, directoryName);
+        if (sentences != null) {
+            context.assertSentences(sentences);
+            loaded.addAll(sentences);
+            statementsParsed += sentences.size();
+        }
+    }
+
+    /* Returns the fact on this line, or null if the line is not a single ground fact the lexer knows how to read.
+     *
+     * Terms are built the way FileParser.processRestOfTerm() builds them.
+     */
+    private Literal lexFact(String line, int start) {
+        int end = skipWord(line, start);
+        if (end == start || isDigit(line.charAt(start))) {
+            return null;
+        }
+        String name = line.substring(start, end);
+        if (isReservedWord(name)) {
+            return null;
+        }
+
+        int i = skipWhitespace(line, end);
+        if (i == line.length() || line.charAt(i) != '(') {
+            return null;
+        }
+
+        List<Term> arguments = new ArrayList<>(4);
+        while (true) {
+            i = skipWhitespace(line, i + 1);
+            end = skipWord(line, i);
+            if (end == i) {
+                return null;
+            }
+
+            Term argument;
+            if (isDigit(line.charAt(i))) {
+                if (!isAllDigits(line, i, end)) {
+                    argument = stringHandler.getVariableOrConstant(null, line.substring(i, end)); // Not a number to the parser either.
+                }
+                else if (end + 1 < line.length() && line.charAt(end) == '.' && isDigit(line.charAt(end + 1))) {
+                    int fractionEnd = skipWord(line, end + 1);
+                    if (!isAllDigits(line, end + 1, fractionEnd)) {
+                        return null;
+                    }
+                    argument = stringHandler.getNumericConstant(null, Double.parseDouble(line.substring(i, fractionEnd)));
+                    end = fractionEnd;
+                }
+                else if (end - i < 19) { // Any longer might not fit in a long.
+                    argument = stringHandler.getNumericConstant(null, (double) Long.parseLong(line.substring(i, end)));
+                }
+                else {
+                    return null;
+                }
+            }
+            else {
+                argument = stringHandler.getVariableOrConstant(null, line.substring(i, end));
+                if (argument instanceof Variable) {
+                    stringHandler.resetAllVariables();
+                    return null;
+                }
+            }
+            arguments.add(argument);
+
+            i = skipWhitespace(line, end);
+            if (i == line.length()) {
+                return null;
+            }
+            if (line.charAt(i) == ')') {
+                break;
+            }
+            if (line.charAt(i) != ',') {
+                return null;
+            }
+        }
+
+        i = skipWhitespace(line, i + 1);
+        if (i == line.length() || line.charAt(i) != '.' || !atEndOfLine(line, skipWhitespace(line, i + 1))) {
+            return null;
+        }
+
+        PredicateName predicateName = stringHandler.getPredicateName(stringHandler.getFunctionName(name).name);
+        return stringHandler.getLiteral(predicateName, arguments, null);
+    }
+
+    /* Words the parser treats specially at the start of a sentence or as a function name. */
+    private static boolean isReservedWord(String word) {
+        if (ConnectiveName.isaConnective(word)) {
+            return true;
+        }
+        switch (word.toLowerCase()) {
+            case "forall":
+            case "thereexists":
+            case "exists":
+            case "exist":
+            case "weight":
+            case "wgt":
+            case "is":
+            case "mod":
+            case "once":
+            case "call":
+            case "findall":
+            case "all":
+            case "bagof":
+            case "setof":
+            case "countproofs":
+            case "countuniquebindings":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /* The word characters of FileParser's tokenizer. */
+    private static boolean isWordCharacter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_' || c == '?' || (c >= '\u00AA' && c <= '\u00FF');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean isAllDigits(String line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isDigit(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWord(String line, int i) {
+        while (i < line.length() && isWordCharacter(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(String line, int i) {
+        while (i < line.length() && isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /* True if there is nothing but a comment from i on. */
+    private static boolean atEndOfLine(String line, int i) {
+        return i == line.length() || line.charAt(i) == '%' || line.startsWith("//", i);
+    }
+
+    /* Follows the lines handed to the parser closely enough to tell where a statement ends.
+     *
+     * Like the parser's tokenizer, quoted strings end at the end of a line, and backslashes escape
+     * the next character inside them.
+     */
+    private static class StatementScanner {
+
+        private boolean inBlockComment;
+
+        private char lastCharacter; // The last character outside comments and whitespace.
+
+        private int wordState; // 0: nothing read yet, 1: reading the first word, 2: after the first word, 3: not a directive, 4: directive.
+
+        StatementScanner() {
+            reset();
+        }
+
+        final void reset() {
+            inBlockComment = false;
+            lastCharacter  = 0;
+            wordState      = 0;
+        }
+
+        boolean atDirective() {
+            return wordState == 4;
+        }
+
+        boolean atEndOfStatement() {
+            return !inBlockComment && (lastCharacter == '.' || lastCharacter == ';');
+        }
+
+        void scan(String line) {
+            char quote = 0;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (inBlockComment) {
+                    if (c == '*' && i + 1 < line.length() && line.charAt(i + 1) == '/') {
+                        inBlockComment = false;
+                        i++;
+                    }
+                }
+                else if (quote != 0) {
+                    if (c == '\\') {
+                        i++;
+                    }
+                    else if (c == quote) {
+                        quote = 0;
+                    }
+                }
+                else if (c == '%' || line.startsWith("//", i)) {
+                    break;
+                }
+                else if (line.startsWith("/*", i)) {
+                    inBlockComment = true;
+                    i++;
+                }
+                else if (isWhitespace(c)) {
+                    if (wordState == 1) {
+                        wordState = 2;
+                    }
+                }
+                else {
+                    if (c == '"' || c == '\'') {
+                        quote = c;
+                    }
+                    lastCharacter = c;
+                    noteCharacter(c);
+                }
+            }
+        }
+
+        private void noteCharacter(char c) {
+            switch (wordState) {
+                case 0:
+                    wordState = (isWordCharacter(c) ? 1 : 3);
+                    break;
+                case 1:
+                    if (!isWordCharacter(c)) {
+                        wordState = (c == ':' ? 4 : 3);
+                    }
+                    break;
+                case 2:
+                    wordState = (c == ':' ? 4 : 3);
+                    break;
+            }
+        }
+    }
+}
@@ -50,6 +50,10 @@ public class MapOfLists<Key, Value> implements Iterable<Value> {
         return map == null ? null : map.get(key);
     }
 
+    public Set<Key> keySet() {
+        return map == null ? Collections.emptySet() : Collections.unmodifiableSet(map.keySet());
+    }
+
     protected List<Value> createValueList() {
         return new ArrayList<>();
     }
@@ -22,6 +22,13 @@ public class RegressionValueOrVector {
 		setRegressionVector(dist);
 	}
 
+	public RegressionValueOrVector copy() {
+		if (isHasVector()) {
+			return new RegressionValueOrVector(regressionVector.clone());
+		}
+		return new RegressionValueOrVector(singleRegressionValue);
+	}
+
 	public void multiply(double scalar) {
 		if (isHasVector()) {
 			regressionVector = VectorStatistics.scalarProduct(regressionVector, scalar); 
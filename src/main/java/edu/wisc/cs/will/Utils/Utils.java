@@ -125,7 +125,10 @@ public class Utils {
     private static PrintStream dribbleStream       = null;  // <----- 'state' being held in this static.  BUGGY if multiple threads running.
 
     /* The random instance for all the random utility functions. */
-    private static final Random randomInstance = new Random(112957);
+    private static final RandomWithState randomInstance = new RandomWithState(112957);
+
+    /* If set, the random instance this thread uses in place of the shared one. */
+    private static final ThreadLocal<RandomWithState> randomInstanceOfThisThread = new ThreadLocal<>();
 
     private static BufferedReader inBufferedReader;
 
@@ -179,7 +182,7 @@ public class Utils {
     public static String comma(int value) { // Always use separators (e.g., "100,000").
     	return String.format("%,d", value);    	
     }    
-    private static String comma(long value) { // Always use separators (e.g., "100,000").
+    public static String comma(long value) { // Always use separators (e.g., "100,000").
     	return String.format("%,d", value);    	
     }
 
@@ -490,11 +493,82 @@ public class Utils {
         randomInstance.setSeed(seed);
     }
 
+    /*
+     * The same sequence as java.util.Random, but with the 48-bit seed kept here, so that the
+     * sequence can be saved and continued later (or on another thread).  Only next() is used
+     * by the utility functions below (nextGaussian's saved second value is not part of the state).
+     */
+    private static final class RandomWithState extends Random {
+        private static final long MULTIPLIER = 0x5DEECE66DL;
+        private static final long ADDEND     = 0xBL;
+        private static final long MASK       = (1L << 48) - 1;
+
+        private long state; // Set by setSeed(), which the constructor calls.
+
+        RandomWithState(long seed) {
+            super(seed);
+        }
+
+        @Override
+        public synchronized void setSeed(long seed) {
+            super.setSeed(seed);
+            state = (seed ^ MULTIPLIER) & MASK;
+        }
+
+        @Override
+        protected synchronized int next(int bits) {
+            state = (state * MULTIPLIER + ADDEND) & MASK;
+            return (int) (state >>> (48 - bits));
+        }
+
+        synchronized long getState() {
+            return state;
+        }
+
+        synchronized void setState(long state) {
+            this.state = state & MASK;
+        }
+    }
+
+    private static RandomWithState getRandomInstance() {
+        RandomWithState random = randomInstanceOfThisThread.get();
+        return (random == null ? randomInstance : random);
+    }
+
+    /*
+     * @return The state of the random instance this thread uses.  Random numbers drawn after
+     *         setRandomState (or setRandomStateOfThisThread) with this state are the ones drawn after this call.
+     */
+    public static long getRandomState() {
+        return getRandomInstance().getState();
+    }
+
+    /*
+     * Puts the shared random instance in the given state (from getRandomState).
+     */
+    public static void setRandomState(long state) {
+        randomInstance.setState(state);
+    }
+
+    /*
+     * Makes this thread use its own random instance, in the given state, in place of the shared one
+     * (until clearRandomStateOfThisThread is called).
+     */
+    public static void setRandomStateOfThisThread(long state) {
+        RandomWithState random = new RandomWithState(0);
+        random.setState(state);
+        randomInstanceOfThisThread.set(random);
+    }
+
+    public static void clearRandomStateOfThisThread() {
+        randomInstanceOfThisThread.remove();
+    }
+
     /*
      * @return The next random double.
      */
     public static double random() {
-        return randomInstance.nextDouble();
+        return getRandomInstance().nextDouble();
     }
 
     /*
@@ -11,10 +11,32 @@ import java.util.List;
  * @author shavlik
  */
 public class BestFirstSearch extends SearchStrategy {
+    private final boolean useScoredOpenList;
+
     /*
-     * Default constructor. Does nothing.
+     * Default constructor.  OPEN is a ScoredOpenList.
      */
     public BestFirstSearch() {
+        this(true);
+    }
+
+    /*
+     * @param useScoredOpenList If false, OPEN is a plain OpenList that is scanned to insert each node (the nodes come out in the same order either way).
+     */
+    public BestFirstSearch(boolean useScoredOpenList) {
+        this.useScoredOpenList = useScoredOpenList;
+    }
+
+    /*
+     * @return A best-first search like this one, for another search task (a strategy belongs to a single task).
+     */
+    public BestFirstSearch copy() {
+        return new BestFirstSearch(useScoredOpenList);
+    }
+
+    @Override
+    public <T extends SearchNode> OpenList<T> createOpenList(StateBasedSearchTask<T> task) {
+        return useScoredOpenList ? new ScoredOpenList<>(task) : new OpenList<>(task);
     }
 
     /*
@@ -2,19 +2,24 @@ package edu.wisc.cs.will.stdAIsearch;
 
 import edu.wisc.cs.will.Utils.Utils;
 
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.ListIterator;
 
 /*
  * Keep an ordered list of search nodes being considered.
  * Method for inserting new items depends on the search strategy being used.
+ *
+ * The nodes are kept in a linked list, which is cheap to add to and pop from at either end (as depth-first search does).
+ * Inserting by score has to scan the list, so best-first search uses a ScoredOpenList instead (see SearchStrategy.createOpenList).
  * @author shavlik
  *
  */
-public class OpenList<T extends SearchNode> extends LinkedList<T> {
+public class OpenList<T extends SearchNode> implements Iterable<T> {
 
-    private static final long serialVersionUID = 1L;
+    final StateBasedSearchTask task;
 
-    private final StateBasedSearchTask task;
+    private final LinkedList<T> nodes = new LinkedList<>();
 
     public OpenList(StateBasedSearchTask task) {
         this.task = task;
@@ -29,16 +34,61 @@ public class OpenList<T extends SearchNode> extends LinkedList<T> {
     }
 
     public T popOpenList() {
-        T popped = pop();
+        T popped = removeFirstNode();
 
         task.nodesConsidered++;
         task.nodesConsideredThisIteration++;
         return popped;
     }
 
+    public int size() {
+        return nodes.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        nodes.clear();
+    }
+
     @Override
-    public boolean add(T node) {
-        throw new UnsupportedOperationException("Programmer error: Do not use add() to add to the open list.  Use a method that also informs the search monitor.");
+    public Iterator<T> iterator() {
+        return nodes.iterator();
+    }
+
+    // The ways nodes are stored.  Subclasses that store the nodes differently override these (and size, clear and iterator).
+    T removeFirstNode() {
+        return nodes.removeFirst();
+    }
+
+    void removeLastNode() {
+        nodes.removeLast();
+    }
+
+    void addFirstNode(T node) {
+        nodes.addFirst(node);
+    }
+
+    void addLastNode(T node) {
+        nodes.addLast(node);
+    }
+
+    // Insert after the nodes with a higher total score (score plus bonus).  Ties go after the nodes already in OPEN, unless tiesInFront.
+    void addNodeByScore(T node, double totalScore, boolean tiesInFront) {
+        ListIterator<T> iter = nodes.listIterator();
+        while (iter.hasNext()) {
+            SearchNode currentNode = iter.next();
+            double currentTotalScore = currentNode.score + currentNode.bonusScore;
+            if ((tiesInFront && totalScore >= currentTotalScore) || (!tiesInFront && totalScore > currentTotalScore)) {
+                iter.previous();
+                iter.add(node);
+                return;
+            }
+        }
+        // Don't forget this might need to be the LAST item.
+        nodes.addLast(node);
     }
 
     public void addToEndOfOpenList(T node) {
@@ -48,7 +98,7 @@ public class OpenList<T extends SearchNode> extends LinkedList<T> {
         if (task.closed != null && task.closed.alreadyInClosedList(node)) {
             return;
         }
-        super.add(node);
+        addLastNode(node);
         recordNodeCreation(node);
 
         if (task.beamWidth > 0) {
@@ -63,7 +113,7 @@ public class OpenList<T extends SearchNode> extends LinkedList<T> {
         if (task.closed != null && task.closed.alreadyInClosedList(node)) {
             return;
         }
-        super.add(0, node);
+        addFirstNode(node);
         recordNodeCreation(node);
 
         if (task.beamWidth > 0) {
@@ -121,24 +171,8 @@ public class OpenList<T extends SearchNode> extends LinkedList<T> {
         node.score = score;
         node.bonusScore = bonusScore;
 
-        int position = 0;
-        boolean found = false;
-        boolean tiesInFront = task.inOpenListPutNewTiesInFront;
-        for (SearchNode currentNode : this) {
-            double currentTotalScore = currentNode.score + currentNode.bonusScore;
-            if ((tiesInFront && totalScore >= currentTotalScore) || (!tiesInFront && totalScore > currentTotalScore)) {
-                found = true;
-                super.add(position, node);
-                recordNodeCreation(node);
-                break;
-            }
-            position++;
-        }
-        if (!found) {
-            // Don't forget this might need to be the LAST item.
-            super.add(node);
-            recordNodeCreation(node);
-        }
+        addNodeByScore(node, totalScore, task.inOpenListPutNewTiesInFront);
+        recordNodeCreation(node);
 
         if (task.beamWidth > 0) {
             checkBeamWidth();
@@ -153,11 +187,34 @@ public class OpenList<T extends SearchNode> extends LinkedList<T> {
         this.insertByScoreIntoOpenList(node, task.minAcceptableScore, task.allowToTieMinAcceptableScore);
     }
 
+    /*
+     * The total score (score plus bonus) a node inserted by score needs to be placed among the first n nodes of OPEN,
+     * i.e., negative infinity if OPEN holds fewer than n nodes.  A node scoring less than this would go behind them all.
+     */
+    public double getTotalScoreNeededToBeAmongFirst(int n) {
+        if (size() < n) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double lowestTotalScore = Double.POSITIVE_INFINITY;
+        int    counted          = 0;
+        for (T node : nodes) {
+            if (counted++ >= n) {
+                break;
+            }
+            double totalScore = node.score + node.bonusScore;
+            if (Double.isNaN(totalScore)) {
+                return Double.NEGATIVE_INFINITY; // Never scored, so be safe.
+            }
+            lowestTotalScore = Math.min(lowestTotalScore, totalScore);
+        }
+        return lowestTotalScore;
+    }
+
     private void checkBeamWidth() {
         if (task.beamWidth > 0 && size() > task.beamWidth) {
             int excess = size() - task.beamWidth;
             for (int i = 0; i < excess; i++) {
-                removeLast();
+                removeLastNode();
             }
         }
     }
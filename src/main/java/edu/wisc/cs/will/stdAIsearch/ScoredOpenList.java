@@ -0,0 +1,122 @@
+package edu.wisc.cs.will.stdAIsearch;
+
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/*
+ * An OPEN list kept sorted in a balanced tree, so that inserting a node by score, popping the best node and
+ * trimming the worst nodes to the beam width each take O(log n), instead of a scan of OPEN.
+ *
+ * Nodes are ordered as in OpenList: by total score (score plus bonus), highest first.  Ties are broken by the order the
+ * nodes were added, oldest first, or newest first if the task puts new ties in front.  A node added to the front of OPEN
+ * goes ahead of every node already in OPEN, and one added to the end goes behind every node already in OPEN, which is
+ * where OpenList puts them as long as the nodes are not also inserted by score.
+ */
+public class ScoredOpenList<T extends SearchNode> extends OpenList<T> {
+
+    private final TreeSet<Entry<T>> entries = new TreeSet<>();
+
+    private long nextSequenceNumber = 0;
+
+    private long frontSequenceNumber = 0; // Counts down, so the latest node added to the front is first.
+
+    public ScoredOpenList(StateBasedSearchTask<T> task) {
+        super(task);
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final Iterator<Entry<T>> iter = entries.iterator();
+        return new Iterator<T>() {
+            public boolean hasNext() { return iter.hasNext(); }
+            public T       next()    { return iter.next().node; }
+        };
+    }
+
+    @Override
+    T removeFirstNode() {
+        return entries.pollFirst().node;
+    }
+
+    @Override
+    void removeLastNode() {
+        entries.pollLast();
+    }
+
+    @Override
+    void addFirstNode(T node) {
+        entries.add(new Entry<>(node, Entry.FRONT, 0.0, --frontSequenceNumber));
+    }
+
+    @Override
+    void addLastNode(T node) {
+        entries.add(new Entry<>(node, Entry.BACK, 0.0, nextSequenceNumber++));
+    }
+
+    @Override
+    public double getTotalScoreNeededToBeAmongFirst(int n) {
+        if (size() < n) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double lowestTotalScore = Double.POSITIVE_INFINITY; // Nodes added to the front go ahead whatever their score.
+        int    counted          = 0;
+        for (Entry<T> entry : entries) {
+            if (counted++ >= n) {
+                break;
+            }
+            if (entry.place == Entry.BACK) {
+                return Double.NEGATIVE_INFINITY; // Nodes inserted by score go ahead of these.
+            }
+            if (entry.place == Entry.SCORED) {
+                lowestTotalScore = entry.totalScore;
+            }
+        }
+        return lowestTotalScore;
+    }
+
+    @Override
+    void addNodeByScore(T node, double totalScore, boolean tiesInFront) {
+        long sequenceNumber = nextSequenceNumber++;
+        entries.add(new Entry<>(node, Entry.SCORED, totalScore, tiesInFront ? -sequenceNumber : sequenceNumber));
+    }
+
+    private static class Entry<T> implements Comparable<Entry<T>> {
+
+        static final int FRONT  = 0;
+        static final int SCORED = 1;
+        static final int BACK   = 2;
+
+        final T      node;
+        final int    place;
+        final double totalScore;
+        final long   sequenceNumber;
+
+        Entry(T node, int place, double totalScore, long sequenceNumber) {
+            this.node           = node;
+            this.place          = place;
+            this.totalScore     = totalScore;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public int compareTo(Entry<T> other) {
+            if (place != other.place) {
+                return place < other.place ? -1 : 1;
+            }
+            // Compare as OpenList does, i.e., with '>' so that 0.0 and -0.0 tie.
+            if (totalScore > other.totalScore) { return -1; }
+            if (totalScore < other.totalScore) { return  1; }
+            return Long.compare(sequenceNumber, other.sequenceNumber);
+        }
+    }
+}
@@ -43,7 +43,7 @@ public abstract class SearchNode implements Serializable {
 		depth  = parentNode.depth + 1;
 	}
 	
-	boolean dontActuallyAddToOpen() {
+	public boolean dontActuallyAddToOpen() {
 		return dontAddMeToOPEN;
 	}
 
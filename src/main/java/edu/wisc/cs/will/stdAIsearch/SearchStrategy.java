@@ -28,4 +28,14 @@ public abstract class SearchStrategy {
      */
     public abstract <T extends SearchNode> void addChildrenToOpenList(OpenList<T> open, List<T> children) throws SearchInterrupted;
 
+    /*
+     * Creates the open list this strategy works with.
+     * 
+     * @param task The search task that will own the open list.
+     * @return An empty open list.
+     */
+    public <T extends SearchNode> OpenList<T> createOpenList(StateBasedSearchTask<T> task) {
+        return new OpenList<>(task);
+    }
+
 }
@@ -167,7 +167,7 @@ public class StateBasedSearchTask<T extends SearchNode> {
 
         childrenGenerator.setSearchTask(this);
 
-        if (open == null) { open = new OpenList<>(this); }
+        if (open == null) { open = strategy.createOpenList(this); }
     }
     
     /*
@@ -216,7 +216,7 @@ public class StateBasedSearchTask<T extends SearchNode> {
                 closed.emptyClosedList();
             } // Should we allow closed lists to persist across multiple iterations?  Generally won't want to do so.  Hence another boolean would be needed.
             if (open == null) {
-                open = new OpenList<>(this);
+                open = strategy.createOpenList(this);
             }
             initializer.initializeOpen(open); // Do this AFTER clearing CLOSED.
             initialized = true;
@@ -265,7 +265,7 @@ public class StateBasedSearchTask<T extends SearchNode> {
             return result;
         }
 		if (open == null) {
-		    open = new OpenList<>(this);
+		    open = strategy.createOpenList(this);
 		    initializer.initializeOpen(open);
 		} // Do this here so that 'verbosity' can be set before OPEN is created.
 
@@ -314,7 +314,7 @@ public class StateBasedSearchTask<T extends SearchNode> {
         	if (redoable) {
         		searchMonitor.searchResult = SearchMonitor.openBecameEmpty;
         	} else  {
-        		Utils.waitHere("This search will never start for '" + taskName + "': continueTheSearch = " + continueTheSearch + ", |open| = " + Utils.comma(open));
+        		Utils.waitHere("This search will never start for '" + taskName + "': continueTheSearch = " + continueTheSearch + ", |open| = " + Utils.comma(open.size()));
         	}
         }
 
@@ -419,6 +419,10 @@ public class StateBasedSearchTask<T extends SearchNode> {
         this.maximumClockTimePerIterationInMillisec = maximumClockTimePerIterationInMilliseconds;
     }
 
+    public long getMaximumClockTimePerIterationInMillisec() {
+        return maximumClockTimePerIterationInMillisec;
+    }
+
 	public int getNodesConsidered() {
 		return nodesConsidered;
 	}
@@ -447,4 +451,8 @@ public class StateBasedSearchTask<T extends SearchNode> {
         this.maxNodesToCreate = maxNodesToCreate;
     }
 
+    public SearchStrategy getStrategy() {
+        return strategy;
+    }
+
 }
@@ -0,0 +1,46 @@
+package edu.wisc.cs.will;
+
+import edu.wisc.cs.will.FOPC.HandleFOPCstrings;
+import edu.wisc.cs.will.FOPC.Literal;
+import edu.wisc.cs.will.ResThmProver.DefaultHornClauseContext;
+import edu.wisc.cs.will.ResThmProver.HornClauseContext;
+import edu.wisc.cs.will.ResThmProver.HornClauseProver;
+import edu.wisc.cs.will.ResThmProver.LazyHornClausebase;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HornClauseProverCountProofsTest {
+
+    private static final String CLAUSES =
+            "parent(a,b). parent(a,c). parent(b,d). parent(c,d).\n" +
+            "grandparent(X,Z) :- parent(X,Y), parent(Y,Z).\n";
+
+    @Test
+    public void testCountProofs() throws Exception {
+        HornClauseContext context = new DefaultHornClauseContext(new LazyHornClausebase(new HandleFOPCstrings()));
+        context.assertSentences(context.getFileParser().readFOPCstream(CLAUSES));
+        HornClauseProver prover = new HornClauseProver(context, true);
+
+        assertEquals(4,  prover.countProofs(parse(context, "parent(X,Y)"),                  Long.MAX_VALUE));
+        assertEquals(2,  prover.countProofs(parse(context, "parent(X,Y), parent(Y,Z)"),     Long.MAX_VALUE));
+        assertEquals(2,  prover.countProofs(parse(context, "grandparent(a,d)"),             Long.MAX_VALUE)); // Through b and through c.
+        assertEquals(16, prover.countProofs(parse(context, "parent(X,Y), parent(U,V)"),     Long.MAX_VALUE)); // Counted as 4 times 4.
+        assertEquals(0,  prover.countProofs(parse(context, "parent(d,X)"),                  Long.MAX_VALUE));
+        assertEquals(0,  prover.countProofs(parse(context, "grandparent(X,Z), parent(d,W)"), Long.MAX_VALUE));
+
+        // The counts stop at maxProofs.
+        assertEquals(3,  prover.countProofs(parse(context, "parent(X,Y)"),                  3));
+        assertEquals(10, prover.countProofs(parse(context, "parent(X,Y), parent(U,V)"),     10));
+
+        // The prover can still be used to prove a query afterwards.
+        assertTrue(prover.proveConjunctiveQuery(parse(context, "grandparent(a,d)")));
+    }
+
+    private static List<Literal> parse(HornClauseContext context, String conjunction) throws Exception {
+        return context.getFileParser().parseDefiniteClause("query(X) :- " + conjunction + ".").negLiterals;
+    }
+}
@@ -0,0 +1,102 @@
+package edu.wisc.cs.will;
+
+import edu.wisc.cs.will.Boosting.Utils.NumberGroundingsCalculator;
+import edu.wisc.cs.will.DataSetUtils.TypeManagement;
+import edu.wisc.cs.will.FOPC.*;
+import edu.wisc.cs.will.ResThmProver.DefaultHornClauseContext;
+import edu.wisc.cs.will.ResThmProver.HornClauseContext;
+import edu.wisc.cs.will.ResThmProver.LazyHornClausebase;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NumberGroundingsCalculatorTest {
+
+    private static final String FACTS =
+            "mode: p(+person,+person).\nmode: q(+person).\nmode: r(+person,+person).\n" +
+            "q(c0). q(c1). q(c2). q(c3).\n" +
+            "p(c0,c1). p(c0,c2). p(c1,c1). p(c2,c0). p(c3,c3).\n" +
+            "r(c1,c2). r(c2,c2). r(c3,c0).\n";
+
+    // The groundings of the negated literals after the first are counted without listing them where no later literal uses their variables.
+    @Test
+    public void testComplementCountsMatchEnumeration() throws Exception {
+        HandleFOPCstrings stringHandler = new HandleFOPCstrings();
+        HornClauseContext context       = new DefaultHornClauseContext(new LazyHornClausebase(stringHandler));
+        List<Sentence>    sentences     = context.getFileParser().readFOPCstream(FACTS);
+        context.assertSentences(sentences);
+        Set<PredicateNameAndArity> modes = new HashSet<>();
+        for (String name : new String[] { "p", "q", "r" }) {
+            modes.add(new PredicateNameAndArity(stringHandler.getPredicateName(name), name.equals("q") ? 1 : 2));
+        }
+        new TypeManagement(stringHandler).collectTypedConstants(null, null, modes, null, null, sentences);
+        List<Term> people = new ArrayList<>(stringHandler.isaHandler.getAllInstances(stringHandler.isaHandler.getIsaType("person")));
+
+        String[][] conjunctions = {
+                { "q(X)",          "p(X,Y)" },          // Counted.
+                { "q(X)",          "p(Y,X)" },          // Counted.
+                { "q(X)",          "p(Y,Z)" },          // Counted, with two variables.
+                { "q(X)",          "p(c0,Y)" },         // Counted, with a constant.
+                { "q(X)",          "p(X,Y), r(Y,Z)" },  // Listed for p, counted for r.
+                { "q(X)",          "p(X,Y), p(Y,Z)" },  // Listed for the first p, counted for the second.
+                { "q(X), p(X,Y)",  "r(Y,Z)" },          // Counted.
+        };
+        NumberGroundingsCalculator calculator = new NumberGroundingsCalculator(context);
+        for (String[] conjunction : conjunctions) {
+            // Parse both parts in one clause so that they share their variables.
+            int numberOfPositiveLiterals = context.getFileParser().parseDefiniteClause("h(X) :- " + conjunction[0] + ".").negLiterals.size();
+            List<Literal> literals    = context.getFileParser().parseDefiniteClause("h(X) :- " + conjunction[0] + ", " + conjunction[1] + ".").negLiterals;
+            List<Literal> posLiterals = new ArrayList<>(literals.subList(0, numberOfPositiveLiterals));
+            List<Literal> negLiterals = new ArrayList<>(literals.subList(numberOfPositiveLiterals, literals.size()));
+
+            long expected = countByEnumeration(calculator, posLiterals, negLiterals, people);
+            assertEquals(expected, calculator.countGroundingsForConjunction(posLiterals, negLiterals, null), Arrays.toString(conjunction));
+        }
+    }
+
+    // Tries every binding of the variables to the constants.
+    private static long countByEnumeration(NumberGroundingsCalculator calculator, List<Literal> posLiterals, List<Literal> negLiterals, List<Term> constants) {
+        List<Variable> variables = new ArrayList<>();
+        for (Literal literal : posLiterals) {
+            addNewVariables(literal, variables);
+        }
+        for (Literal literal : negLiterals) {
+            addNewVariables(literal, variables);
+        }
+        long count = 0;
+        int[] choice = new int[variables.size()];
+        while (true) {
+            BindingList bindings = new BindingList();
+            for (int i = 0; i < choice.length; i++) {
+                bindings.addBinding(variables.get(i), constants.get(choice[i]));
+            }
+            boolean holds = true;
+            for (Literal literal : posLiterals) {
+                holds = holds && calculator.isaFact(literal.applyTheta(bindings));
+            }
+            for (Literal literal : negLiterals) {
+                holds = holds && !calculator.isaFact(literal.applyTheta(bindings));
+            }
+            if (holds) {
+                count++;
+            }
+            int i = 0;
+            while (i < choice.length && ++choice[i] == constants.size()) {
+                choice[i++] = 0;
+            }
+            if (i == choice.length) {
+                return count;
+            }
+        }
+    }
+
+    private static void addNewVariables(Literal literal, List<Variable> variables) {
+        for (Variable variable : literal.collectAllVariables()) {
+            if (!variables.contains(variable)) {
+                variables.add(variable);
+            }
+        }
+    }
+}
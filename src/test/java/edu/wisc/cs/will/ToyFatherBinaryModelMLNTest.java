@@ -0,0 +1,34 @@
+package edu.wisc.cs.will;
+
+import edu.wisc.cs.will.Boosting.Common.RunBoostedModels;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ToyFatherBinaryModelMLNTest {
+    @Test
+    public void testToyFatherBinaryModelLearnInfer() throws IOException {
+        String[] trainArgs = {"-l", "-mln", "-train", "data/toy_father/train/", "-target", "father", "-trees", "10", "-binaryModel"};
+        RunBoostedModels.main(trainArgs);
+        assertTrue(Files.exists(Paths.get("data/toy_father/train/models/bRDNs/father.model.bin")));
+
+        // The model loaded from the binary file should give the same probabilities as the one loaded from the text files.
+        String[] textArgs = {"-i", "-mln", "-model", "data/toy_father/train/models/", "-test", "data/toy_father/test/", "-target", "father"};
+        RunBoostedModels.main(textArgs);
+        List<String> textResults = Files.readAllLines(Paths.get("data/toy_father/test/results_father.db"));
+
+        String[] binaryArgs = {"-i", "-mln", "-model", "data/toy_father/train/models/", "-test", "data/toy_father/test/", "-target", "father", "-binaryModel"};
+        RunBoostedModels.main(binaryArgs);
+        List<String> binaryResults = Files.readAllLines(Paths.get("data/toy_father/test/results_father.db"));
+
+        assertFalse(textResults.isEmpty());
+        assertEquals(textResults, binaryResults);
+    }
+}
@@ -0,0 +1,18 @@
+package edu.wisc.cs.will;
+
+import edu.wisc.cs.will.Boosting.Common.RunBoostedModels;
+import org.junit.jupiter.api.Test;
+
+public class UWCSEFactsSnapshotRDNTest {
+    @Test
+    public void testUWCSEFactsSnapshotLearnInfer() {
+        // The first run writes the snapshots and the second reads them.
+        String[] trainArgs = {"-l", "-train", "data/uwcse/fold1/train/", "-target", "advisedby", "-trees", "10", "-factsSnapshot"};
+        RunBoostedModels.main(trainArgs);
+        RunBoostedModels.main(trainArgs);
+
+        String[] testArgs = {"-i", "-model", "data/uwcse/fold1/train/models/", "-test", "data/uwcse/fold1/test/", "-target", "advisedby", "-factsSnapshot"};
+        RunBoostedModels.main(testArgs);
+        RunBoostedModels.main(testArgs);
+    }
+}
@@ -0,0 +1,32 @@
+package edu.wisc.cs.will;
+
+import edu.wisc.cs.will.Boosting.Common.RunBoostedModels;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class UWCSEParallelRDNTest {
+    @Test
+    public void testUWCSEParallelLearnInfer() throws IOException {
+        String[] trainArgs = {"-l", "-train", "data/uwcse/fold1/train/", "-target", "advisedby", "-trees", "10", "-threads", "4"};
+        RunBoostedModels.main(trainArgs);
+
+        // Each line of the results is an example and its probability, so the parallel results should be the same lines.
+        String[] serialArgs = {"-i", "-model", "data/uwcse/fold1/train/models/", "-test", "data/uwcse/fold1/test/", "-target", "advisedby", "-threads", "1"};
+        RunBoostedModels.main(serialArgs);
+        List<String> serialResults = Files.readAllLines(Paths.get("data/uwcse/fold1/test/results_advisedby.db"));
+
+        String[] parallelArgs = {"-i", "-model", "data/uwcse/fold1/train/models/", "-test", "data/uwcse/fold1/test/", "-target", "advisedby", "-threads", "4"};
+        RunBoostedModels.main(parallelArgs);
+        List<String> parallelResults = Files.readAllLines(Paths.get("data/uwcse/fold1/test/results_advisedby.db"));
+
+        assertFalse(serialResults.isEmpty());
+        assertEquals(serialResults, parallelResults);
+    }
+}
@@ -0,0 +1,33 @@
+package edu.wisc.cs.will;
+
+import edu.wisc.cs.will.Boosting.Common.RunBoostedModels;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class UWCSEParallelTreeNodesRDNTest {
+    @Test
+    public void testUWCSEParallelTreeNodesLearnInfer() throws IOException {
+        String[] testArgs = {"-i", "-model", "data/uwcse/fold1/train/models/", "-test", "data/uwcse/fold1/test/", "-target", "advisedby"};
+
+        String[] serialArgs = {"-l", "-train", "data/uwcse/fold1/train/", "-target", "advisedby", "-trees", "10", "-seed", "12345"};
+        RunBoostedModels.main(serialArgs);
+        RunBoostedModels.main(testArgs);
+        List<String> serialResults = Files.readAllLines(Paths.get("data/uwcse/fold1/test/results_advisedby.db"));
+
+        // Learning several tree nodes at once should learn the same trees, so the results should be the same lines.
+        String[] parallelArgs = {"-l", "-train", "data/uwcse/fold1/train/", "-target", "advisedby", "-trees", "10", "-seed", "12345", "-parallelTreeNodes", "4"};
+        RunBoostedModels.main(parallelArgs);
+        RunBoostedModels.main(testArgs);
+        List<String> parallelResults = Files.readAllLines(Paths.get("data/uwcse/fold1/test/results_advisedby.db"));
+
+        assertFalse(serialResults.isEmpty());
+        assertEquals(serialResults, parallelResults);
+    }
+}